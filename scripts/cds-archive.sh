@@ -0,0 +1,54 @@
+#!/usr/bin/env bash
+# Unpacks the repackaged jar into a CDS-friendly layout and records a class-data-sharing archive from a
+# training run that stops right after the application context is refreshed (no web server, no database
+# traffic). Run the result with:
+#   cd target/cds && java @jvm.args com.example.userservice.UserServiceApplication
+set -euo pipefail
+
+JAR=${1:?usage: cds-archive.sh <boot-jar> <output-dir>}
+OUT=${2:?usage: cds-archive.sh <boot-jar> <output-dir>}
+JAR=$(cd "$(dirname "$JAR")" && pwd)/$(basename "$JAR")
+
+rm -rf "$OUT"
+mkdir -p "$OUT/unpacked" "$OUT/lib"
+(cd "$OUT/unpacked" && jar -xf "$JAR")
+
+# CDS only archives classes loaded from jars, so the application classes are re-jarred, and the library
+# order from classpath.idx is kept so the runtime classpath matches the one the archive was dumped with.
+jar -cf "$OUT/application.jar" -C "$OUT/unpacked/BOOT-INF/classes" .
+CLASSPATH=application.jar
+while read -r entry; do
+    lib=${entry#- \"BOOT-INF/lib/}
+    lib=${lib%\"}
+    mv "$OUT/unpacked/BOOT-INF/lib/$lib" "$OUT/lib/$lib"
+    CLASSPATH=$CLASSPATH:lib/$lib
+done < "$OUT/unpacked/BOOT-INF/classpath.idx"
+rm -rf "$OUT/unpacked"
+
+cat > "$OUT/jvm.args" <<ARGS
+-cp $CLASSPATH
+-XX:SharedArchiveFile=application.jsa
+-Dspring.aot.enabled=true
+-Dspring.profiles.active=fast-startup
+ARGS
+
+cd "$OUT"
+java -cp "$CLASSPATH" \
+    -XX:ArchiveClassesAtExit=application.jsa \
+    -Xlog:cds=error \
+    -Dspring.aot.enabled=true \
+    -Dspring.profiles.active=fast-startup \
+    -Dspring.context.exit=onRefresh \
+    -Dspring.cloud.config.enabled=false \
+    -Deureka.client.register-with-eureka=false \
+    -Deureka.client.fetch-registry=false \
+    -Dspring.kafka.admin.auto-create=false \
+    -Dapp.cache.snapshot.enabled=false \
+    -Dspring.kafka.topic.name=cds-training \
+    -Dspring.datasource.url=jdbc:postgresql://localhost:5432/cds-training \
+    -Dspring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect \
+    -Dspring.jpa.hibernate.ddl-auto=none \
+    -Dspring.jpa.properties.hibernate.temp.use_jdbc_metadata_defaults=false \
+    com.example.userservice.UserServiceApplication
+
+echo "CDS archive written to $OUT/application.jsa"
@@ -0,0 +1,76 @@
+#!/usr/bin/env bash
+# Compares startup of the plain jar, the fast-startup profile, the AOT-processed context and AOT + CDS.
+# Build first with:  mvn -Pstartup package -DskipTests
+#
+#   scripts/startup-benchmark.sh [runs]
+#
+# BENCH_UNTIL=ready (default) launches each mode and polls the readiness probe; it needs the usual
+# datasource/Kafka settings in the environment (SPRING_DATASOURCE_URL, ...).
+# BENCH_UNTIL=refresh stops each run right after the context refresh and needs no external services.
+# Reports the median time (ms since launch) and the median peak RSS (MB) of each mode.
+set -euo pipefail
+
+RUNS=${1:-5}
+UNTIL=${BENCH_UNTIL:-ready}
+PORT=${BENCH_PORT:-18080}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR=$(ls "$ROOT"/target/user-service-*.jar | grep -v original | head -1)
+CDS_DIR=$ROOT/target/cds
+
+[[ -f "$CDS_DIR/application.jsa" ]] || { echo "missing $CDS_DIR, build with -Pstartup" >&2; exit 1; }
+
+COMMON=(-Dserver.port=$PORT -Dapp.grpc.port=0 -Dmanagement.endpoint.health.probes.enabled=true)
+if [[ "$UNTIL" == refresh ]]; then
+    COMMON+=(-Dspring.context.exit=onRefresh
+        -Dspring.cloud.config.enabled=false
+        -Deureka.client.register-with-eureka=false -Deureka.client.fetch-registry=false
+        -Dspring.kafka.admin.auto-create=false
+        -Dspring.kafka.topic.name=startup-benchmark
+        -Dspring.datasource.url=jdbc:postgresql://localhost:5432/startup-benchmark
+        -Dspring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect
+        -Dspring.jpa.hibernate.ddl-auto=none
+        -Dspring.jpa.properties.hibernate.temp.use_jdbc_metadata_defaults=false)
+fi
+
+# prints "<millis> <peak rss kB>" for one launch of the given command
+measure() {
+    local start pid hwm=0 status elapsed
+    start=$(date +%s%N)
+    "$@" > /dev/null 2>&1 &
+    pid=$!
+    while kill -0 "$pid" 2> /dev/null; do
+        status=$(grep VmHWM "/proc/$pid/status" 2> /dev/null | awk '{print $2}') || true
+        [[ -n "$status" ]] && hwm=$status
+        if [[ "$UNTIL" == ready ]] && curl -fs "http://localhost:$PORT/actuator/health/readiness" > /dev/null; then
+            break
+        fi
+        sleep 0.02
+    done
+    elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+    kill "$pid" 2> /dev/null && wait "$pid" 2> /dev/null || true
+    echo "$elapsed $hwm"
+}
+
+median() {
+    sort -n | awk '{a[NR]=$1} END {print (NR % 2) ? a[(NR+1)/2] : int((a[NR/2] + a[NR/2+1]) / 2)}'
+}
+
+run_mode() {
+    local name=$1 dir=$2
+    shift 2
+    local times=() rss=()
+    for ((i = 0; i < RUNS; i++)); do
+        read -r t r < <(cd "$dir" && measure "$@")
+        times+=("$t")
+        rss+=("$r")
+    done
+    printf '%-14s %8s ms %8s MB\n' "$name" \
+        "$(printf '%s\n' "${times[@]}" | median)" \
+        "$(( $(printf '%s\n' "${rss[@]}" | median) / 1024 ))"
+}
+
+echo "mode           time-to-$UNTIL   peak RSS   ($RUNS runs, median)"
+run_mode default "$ROOT" java "${COMMON[@]}" -jar "$JAR"
+run_mode fast-startup "$ROOT" java "${COMMON[@]}" -Dspring.profiles.active=fast-startup -jar "$JAR"
+run_mode aot "$ROOT" java "${COMMON[@]}" -Dspring.profiles.active=fast-startup -Dspring.aot.enabled=true -jar "$JAR"
+run_mode aot-cds "$CDS_DIR" java @jvm.args "${COMMON[@]}" com.example.userservice.UserServiceApplication
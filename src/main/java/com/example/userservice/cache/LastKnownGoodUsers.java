@@ -0,0 +1,127 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserDto;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The last successfully read state of single users and of the user list, for the circuit breaker fallbacks to
+ * serve while the database is unavailable. Users are evicted least recently used first; the list is only kept
+ * while it has at most {@code max-size} users. Entries never expire: they are only read when nothing fresher
+ * can be, and the caller reports their age.
+ */
+@Slf4j
+@Component
+public class LastKnownGoodUsers {
+    private static final String ALL_USERS = "all";
+
+    private final LruCache<Long, Stale<UserDto>> users;
+    private final int maxSize;
+    private final Duration retryAfter;
+    private final Clock clock;
+    private final ExecutorService refresher;
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private volatile Stale<List<UserDto>> all;
+
+    @Autowired
+    public LastKnownGoodUsers(@Value("${app.cache.last-known-good.max-size:10000}") int maxSize,
+                              @Value("${app.cache.last-known-good.retry-after:PT30S}") Duration retryAfter) {
+        this(maxSize, retryAfter, Clock.systemUTC(), Executors.newSingleThreadExecutor());
+    }
+
+    LastKnownGoodUsers(int maxSize, Duration retryAfter, Clock clock, ExecutorService refresher) {
+        this.users = new LruCache<>(maxSize);
+        this.maxSize = maxSize;
+        this.retryAfter = retryAfter;
+        this.clock = clock;
+        this.refresher = refresher;
+    }
+
+    public void put(UserDto user) {
+        users.put(user.getId(), new Stale<>(user, clock.millis()));
+    }
+
+    public void putAll(List<UserDto> list) {
+        all = list.size() <= maxSize ? new Stale<>(List.copyOf(list), clock.millis()) : null;
+    }
+
+    public void evict(Long id) {
+        users.remove(id);
+    }
+
+    public Optional<Stale<UserDto>> get(Long id) {
+        return Optional.ofNullable(users.get(id));
+    }
+
+    public Optional<Stale<List<UserDto>>> all() {
+        return Optional.ofNullable(all);
+    }
+
+    /**
+     * How long clients are asked to wait when there is nothing to serve.
+     */
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+
+    public Duration age(Stale<?> stale) {
+        return Duration.ofMillis(Math.max(0, clock.millis() - stale.storedAt()));
+    }
+
+    /**
+     * Runs {@code probe} in the background unless one for the same user is still running. The probe reads
+     * through the circuit breaker and stores what it gets, so stale entries are replaced as soon as reads
+     * succeed again. Failures are expected while the breaker is open and are only logged at debug.
+     */
+    public void refresh(Long id, Runnable probe) {
+        refreshInBackground(id, probe);
+    }
+
+    public void refreshAll(Runnable probe) {
+        refreshInBackground(ALL_USERS, probe);
+    }
+
+    private void refreshInBackground(Object key, Runnable probe) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    probe.run();
+                } catch (RuntimeException e) {
+                    log.debug("Refresh of last known good user {} failed: {}", key, e.toString());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    public record Stale<T>(T value, long storedAt) {
+    }
+}
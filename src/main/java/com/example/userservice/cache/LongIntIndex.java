@@ -0,0 +1,165 @@
+package com.example.userservice.cache;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Open-addressing hash table from {@code long} keys to non-negative {@code int} values, with linear probing and
+ * backward-shift deletion so no tombstones build up. Keys may repeat when added with {@link #add}. Not
+ * thread-safe, though {@link #find} always returns while a write runs, so it can be used for optimistic reads
+ * that are validated afterwards.
+ */
+final class LongIntIndex {
+    static final int ABSENT = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int shift;
+    private int size;
+
+    LongIntIndex(int expectedSize) {
+        allocate(Math.max(16, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1));
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(long key) {
+        return find(key, value -> true);
+    }
+
+    /**
+     * Returns the first value stored under {@code key} that {@code accept} agrees to, or {@link #ABSENT}.
+     * <p>
+     * Reads both arrays once: a concurrent rehash replaces them one after the other, and its new {@code values}
+     * may still read as zeros rather than {@link #ABSENT}, so the probe also stops after one lap of the table.
+     */
+    int find(long key, IntPredicate accept) {
+        long[] keys = this.keys;
+        int[] values = this.values;
+        if (keys.length != values.length) {
+            return ABSENT;
+        }
+        int mask = values.length - 1;
+        int i = slot(key, 64 - Integer.numberOfTrailingZeros(values.length));
+        for (int probes = 0; probes < values.length; probes++, i = (i + 1) & mask) {
+            int value = values[i];
+            if (value == ABSENT) {
+                return ABSENT;
+            }
+            if (keys[i] == key && accept.test(value)) {
+                return value;
+            }
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Stores the value under the key, replacing the key's current value; returns the replaced value or
+     * {@link #ABSENT}.
+     */
+    int put(long key, int value) {
+        int mask = values.length - 1;
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (values[i] == ABSENT) {
+                insertAt(i, key, value);
+                return ABSENT;
+            }
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Stores the value under the key alongside any values the key already has.
+     */
+    void add(long key, int value) {
+        int mask = values.length - 1;
+        int i = slot(key);
+        while (values[i] != ABSENT) {
+            i = (i + 1) & mask;
+        }
+        insertAt(i, key, value);
+    }
+
+    boolean remove(long key, int value) {
+        int mask = values.length - 1;
+        for (int i = slot(key); values[i] != ABSENT; i = (i + 1) & mask) {
+            if (keys[i] == key && values[i] == value) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void forEachValue(IntConsumer consumer) {
+        for (int value : values) {
+            if (value != ABSENT) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    private void insertAt(int i, long key, int value) {
+        keys[i] = key;
+        values[i] = value;
+        if (++size > values.length / 2) {
+            rehash(values.length * 2);
+        }
+    }
+
+    // moves later entries of the probe run into the gap so lookups never stop early
+    private void shiftBack(int gap) {
+        int mask = values.length - 1;
+        for (int i = (gap + 1) & mask; values[i] != ABSENT; i = (i + 1) & mask) {
+            int home = slot(keys[i]);
+            boolean movable = gap <= i ? home <= gap || home > i : home <= gap && home > i;
+            if (movable) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = ABSENT;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != ABSENT) {
+                int i = slot(oldKeys[j]);
+                while (values[i] != ABSENT) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    // Fibonacci hashing: spreads sequential ids over the whole table
+    private int slot(long key) {
+        return slot(key, shift);
+    }
+
+    private static int slot(long key, int shift) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+}
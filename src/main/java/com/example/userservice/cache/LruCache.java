@@ -0,0 +1,114 @@
+package com.example.userservice.cache;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Bounded thread-safe map that evicts the least recently used entries. A read only stamps its entry with the
+ * time, so hits never wait on each other; once the map has grown {@code maxSize / 16} past its bound, one
+ * writer drops the entries read longest ago to bring it back to {@code maxSize}. Under concurrent use the
+ * order is approximate.
+ */
+public class LruCache<K, V> {
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final int evictAbove;
+    private final ReentrantLock eviction = new ReentrantLock();
+
+    public LruCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.evictAbove = maxSize + maxSize / 16;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastRead = System.nanoTime();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        entries.put(key, new Entry<>(value));
+        evictIfFull();
+    }
+
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        Entry<V> computed = entries.compute(key, (k, entry) -> {
+            V value = remapping.apply(k, entry != null ? entry.value : null);
+            if (value == null) {
+                return null;
+            }
+            return entry != null && entry.value == value ? entry.touch() : new Entry<>(value);
+        });
+        evictIfFull();
+        return computed != null ? computed.value : null;
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Values ordered from most to least recently used.
+     */
+    public List<V> valuesMostRecentFirst(int limit) {
+        return stamped().stream()
+                .sorted(Comparator.comparingLong(Stamped<K, V>::lastRead).reversed())
+                .limit(limit)
+                .map(stamped -> stamped.entry().value)
+                .toList();
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= evictAbove || !eviction.tryLock()) {
+            return;
+        }
+        try {
+            int excess = entries.size() - maxSize;
+            if (excess <= 0) {
+                return;
+            }
+            stamped().stream()
+                    .sorted(Comparator.comparingLong(Stamped::lastRead))
+                    .limit(excess)
+                    // an entry replaced since the scan was just written, so it stays
+                    .forEach(stamped -> entries.remove(stamped.key(), stamped.entry()));
+        } finally {
+            eviction.unlock();
+        }
+    }
+
+    // copies the stamps first, as reads keep moving them while the copy is sorted
+    private List<Stamped<K, V>> stamped() {
+        return entries.entrySet().stream()
+                .map(entry -> new Stamped<>(entry.getKey(), entry.getValue(), entry.getValue().lastRead))
+                .toList();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private volatile long lastRead = System.nanoTime();
+
+        private Entry(V value) {
+            this.value = value;
+        }
+
+        private Entry<V> touch() {
+            lastRead = System.nanoTime();
+            return this;
+        }
+    }
+
+    private record Stamped<K, V>(K key, Entry<V> entry, long lastRead) {
+    }
+}
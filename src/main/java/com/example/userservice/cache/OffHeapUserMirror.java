@@ -0,0 +1,158 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserChangeDto;
+import com.example.userservice.dto.UserDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Optional copy of every user, archived or not, in an {@link OffHeapUserStore}, serving {@code getUserById} and
+ * {@code getAllUsers} without the database once loaded. Writes made through this instance are applied when they
+ * commit; writes through other instances arrive from the change feed once it has settled them, within about a
+ * poll interval. The full reload every {@code refresh-interval} repairs anything missed. Writes that commit while
+ * a reload runs are replayed onto the new copy before it replaces the old one, and the store keeps the newest
+ * version of a user whatever order its changes arrive in. Not used with sharding.
+ */
+@Slf4j
+@Component
+public class OffHeapUserMirror {
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final int expectedUsers;
+    private final Object changes = new Object();
+    private volatile OffHeapUserStore store;
+    private List<Consumer<OffHeapUserStore>> changesDuringReload;
+
+    @Autowired
+    public OffHeapUserMirror(UserRepository userRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.cache.off-heap.enabled:false}") boolean enabled,
+                             @Value("${app.datasource.sharding.enabled:false}") boolean sharded,
+                             @Value("${app.cache.off-heap.expected-users:100000}") int expectedUsers) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled && !sharded;
+        this.expectedUsers = expectedUsers;
+        if (enabled && sharded) {
+            log.warn("app.cache.off-heap.enabled is ignored while users are sharded");
+        }
+    }
+
+    public boolean isLoaded() {
+        return store != null;
+    }
+
+    public Optional<UserView> get(Long id) {
+        OffHeapUserStore current = store;
+        return current != null ? current.get(id) : Optional.empty();
+    }
+
+    public Optional<UserView> findByEmail(String email) {
+        OffHeapUserStore current = store;
+        return current != null ? current.findByEmail(email) : Optional.empty();
+    }
+
+    /**
+     * All users in id order, or empty until the mirror is loaded.
+     */
+    public Optional<List<UserView>> all() {
+        OffHeapUserStore current = store;
+        return current != null ? Optional.of(current.all()) : Optional.empty();
+    }
+
+    public void put(UserView user) {
+        apply(target -> target.put(user));
+    }
+
+    public void remove(Long id) {
+        apply(target -> target.remove(id));
+    }
+
+    /**
+     * Applies changes read from the change feed, which carries the writes of every instance.
+     */
+    public void applyChanges(List<UserChangeDto> changes) {
+        if (!enabled) {
+            return;
+        }
+        for (UserChangeDto change : changes) {
+            if (change.type() == UserChangeDto.Type.DELETE) {
+                remove(change.id());
+            } else {
+                put(toView(change.user()));
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.cache.off-heap.refresh-interval:PT10M}",
+            fixedDelayString = "${app.cache.off-heap.refresh-interval:PT10M}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (changes) {
+            changesDuringReload = new ArrayList<>();
+        }
+        try {
+            long start = System.nanoTime();
+            OffHeapUserStore current = store;
+            OffHeapUserStore fresh = new OffHeapUserStore(
+                    Math.max(expectedUsers, current != null ? current.size() : 0));
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<UserView> users = userRepository.streamAllViews()) {
+                    users.forEach(fresh::put);
+                }
+            });
+            synchronized (changes) {
+                changesDuringReload.forEach(change -> change.accept(fresh));
+                store = fresh;
+            }
+            log.info("Mirrored {} users in {} MB off-heap in {} ms", fresh.size(), fresh.offHeapBytes() >> 20,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Failed to reload the off-heap user mirror, keeping the previous copy", e);
+        } finally {
+            synchronized (changes) {
+                changesDuringReload = null;
+            }
+        }
+    }
+
+    private static UserView toView(UserDto user) {
+        return new UserView(user.getId(), user.getName(), user.getEmail(), user.getAge(), user.getCreatedAt(),
+                user.getVersion());
+    }
+
+    private void apply(Consumer<OffHeapUserStore> change) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (changes) {
+            OffHeapUserStore current = store;
+            if (current != null) {
+                change.accept(current);
+            }
+            if (changesDuringReload != null) {
+                changesDuringReload.add(change);
+            }
+        }
+    }
+}
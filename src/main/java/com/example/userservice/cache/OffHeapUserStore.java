@@ -0,0 +1,205 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserView;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Users kept outside the Java heap in direct-buffer slabs of fixed-size {@link UserRecordLayout} records, with
+ * primitive hash indexes on id and email, so millions of users cost the garbage collector a few arrays instead of
+ * millions of objects.
+ * <p>
+ * Updates are copy-on-write: a new record is written to a free slot outside the lock, and only the index swap
+ * and the release of the old slot take the write lock. Lookups are optimistic and retry under the read lock only
+ * if a swap happened meanwhile, so readers never see a half-written record.
+ */
+public class OffHeapUserStore {
+    static final int SLAB_RECORDS = 8192;
+
+    private final StampedLock lock = new StampedLock();
+    private final Object writes = new Object();
+    private final LongIntIndex byId;
+    private final LongIntIndex byEmail;
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int nextSlot;
+
+    public OffHeapUserStore(int expectedUsers) {
+        this.byId = new LongIntIndex(expectedUsers);
+        this.byEmail = new LongIntIndex(expectedUsers);
+    }
+
+    public Optional<UserView> get(long id) {
+        long stamp = lock.tryOptimisticRead();
+        try {
+            UserView user = read(byId.get(id));
+            if (lock.validate(stamp)) {
+                return Optional.ofNullable(user);
+            }
+        } catch (RuntimeException e) {
+            // read a slot while it was being recycled, retry under the lock
+        }
+        stamp = lock.readLock();
+        try {
+            return Optional.ofNullable(read(byId.get(id)));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public Optional<UserView> findByEmail(String email) {
+        long hash = emailHash(email);
+        long stamp = lock.tryOptimisticRead();
+        try {
+            UserView user = read(byEmail.find(hash, slot -> email.equals(read(slot).email())));
+            if (lock.validate(stamp)) {
+                return Optional.ofNullable(user);
+            }
+        } catch (RuntimeException e) {
+            // read a slot while it was being recycled, retry under the lock
+        }
+        stamp = lock.readLock();
+        try {
+            return Optional.ofNullable(read(byEmail.find(hash, slot -> email.equals(read(slot).email()))));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Stores the user unless a newer version is already stored. Returns false if the user does not fit the
+     * record layout, in which case any older version is removed so lookups fall through to the database.
+     */
+    public boolean put(UserView user) {
+        synchronized (writes) {
+            int current = byId.get(user.id());
+            if (current != LongIntIndex.ABSENT && version(current) > versionOf(user)) {
+                return true;
+            }
+            int slot = allocate();
+            ByteBuffer slab = slabs[slot / SLAB_RECORDS];
+            if (!UserRecordLayout.write(slab, offset(slot), user)) {
+                release(slot);
+                remove(user.id());
+                return false;
+            }
+
+            long stamp = lock.writeLock();
+            try {
+                byId.put(user.id(), slot);
+                if (current != LongIntIndex.ABSENT) {
+                    byEmail.remove(emailHash(read(current).email()), current);
+                }
+                byEmail.add(emailHash(user.email()), slot);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            if (current != LongIntIndex.ABSENT) {
+                release(current);
+            }
+            return true;
+        }
+    }
+
+    public void remove(long id) {
+        synchronized (writes) {
+            int current = byId.get(id);
+            if (current == LongIntIndex.ABSENT) {
+                return;
+            }
+            String email = read(current).email();
+            long stamp = lock.writeLock();
+            try {
+                byId.remove(id, current);
+                byEmail.remove(emailHash(email), current);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            release(current);
+        }
+    }
+
+    /**
+     * Every stored user in id order. Holds the read lock while copying, so writers wait for it.
+     */
+    public List<UserView> all() {
+        long stamp = lock.readLock();
+        try {
+            List<UserView> users = new ArrayList<>(byId.size());
+            byId.forEachValue(slot -> users.add(read(slot)));
+            users.sort(Comparator.comparing(UserView::id));
+            return users;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return byId.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long offHeapBytes() {
+        return (long) slabs.length * SLAB_RECORDS * UserRecordLayout.RECORD_SIZE;
+    }
+
+    private UserView read(int slot) {
+        if (slot == LongIntIndex.ABSENT) {
+            return null;
+        }
+        return UserRecordLayout.read(slabs[slot / SLAB_RECORDS], offset(slot));
+    }
+
+    private long version(int slot) {
+        return read(slot).version();
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int slot = nextSlot++;
+        if (slot / SLAB_RECORDS == slabs.length) {
+            ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+            grown[slabs.length] = ByteBuffer.allocateDirect(SLAB_RECORDS * UserRecordLayout.RECORD_SIZE);
+            slabs = grown;
+        }
+        return slot;
+    }
+
+    private void release(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private static int offset(int slot) {
+        return (slot % SLAB_RECORDS) * UserRecordLayout.RECORD_SIZE;
+    }
+
+    private static long versionOf(UserView user) {
+        return user.version() != null ? user.version() : 0L;
+    }
+
+    // 64-bit FNV-1a, so distinct emails rarely share a probe run; equal hashes are told apart by the record
+    static long emailHash(String email) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < email.length(); i++) {
+            hash ^= email.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Maps emails, normalized with {@link User#normalizeEmail}, to user ids for {@code getUserByEmail}. Holds ids
+ * only, so the user itself is read through {@link UserReadCache}; callers check the user still has the email
+ * before trusting an entry.
+ */
+@Component
+public class UserEmailCache {
+    private final LruCache<String, Long> ids;
+
+    public UserEmailCache(@Value("${app.cache.emails.max-size:10000}") int maxSize) {
+        this.ids = new LruCache<>(maxSize);
+    }
+
+    public Optional<Long> get(String email) {
+        return Optional.ofNullable(ids.get(User.normalizeEmail(email)));
+    }
+
+    public void put(String email, Long id) {
+        ids.put(User.normalizeEmail(email), id);
+    }
+
+    public void evict(String email) {
+        ids.remove(User.normalizeEmail(email));
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
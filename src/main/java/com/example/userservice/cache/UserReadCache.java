@@ -0,0 +1,154 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserChangeDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.repository.ArchivedUserRepository;
+import com.example.userservice.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through cache for {@code getUserById}. Entries are trusted for {@code revalidate-after}; after that,
+ * and always for entries restored from a snapshot, the next hit checks the row version with a single-column
+ * query and reloads the user only if it changed. Users missing from {@code users} are looked up in the archive.
+ * The queries of one lookup share a read-only transaction, so they go to a replica over one connection; fresh
+ * hits check out none.
+ * <p>
+ * {@code revalidate-after} defaults to zero, so every hit checks the version. With a longer window, writes
+ * through other instances are only seen once the change feed hands them to {@link #applyChanges}, about a poll
+ * interval later. An entry never replaces one holding a newer version, so a slow load cannot undo a write.
+ */
+@Component
+public class UserReadCache {
+    private static final long UNVERIFIED = Long.MIN_VALUE;
+
+    private final UserRepository userRepository;
+    private final ArchivedUserRepository archivedUserRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final LruCache<Long, CachedUser> entries;
+    private final long revalidateAfterMillis;
+    private final Clock clock;
+
+    @Autowired
+    public UserReadCache(UserRepository userRepository,
+                         ArchivedUserRepository archivedUserRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.cache.users.max-size:10000}") int maxSize,
+                         @Value("${app.cache.users.revalidate-after:PT0S}") Duration revalidateAfter) {
+        this(userRepository, archivedUserRepository, new TransactionTemplate(transactionManager), maxSize,
+                revalidateAfter, Clock.systemUTC());
+    }
+
+    UserReadCache(UserRepository userRepository, ArchivedUserRepository archivedUserRepository,
+                  TransactionTemplate readOnlyTransaction, int maxSize, Duration revalidateAfter, Clock clock) {
+        this.userRepository = userRepository;
+        this.archivedUserRepository = archivedUserRepository;
+        this.readOnlyTransaction = readOnlyTransaction;
+        this.readOnlyTransaction.setReadOnly(true);
+        this.entries = new LruCache<>(maxSize);
+        this.revalidateAfterMillis = revalidateAfter.toMillis();
+        this.clock = clock;
+    }
+
+    public Optional<UserView> get(Long id) {
+        CachedUser cached = entries.get(id);
+        long now = clock.millis();
+        if (cached != null && cached.verifiedAt() != UNVERIFIED && now - cached.verifiedAt() < revalidateAfterMillis) {
+            return Optional.of(cached.view());
+        }
+        return readOnlyTransaction.execute(status -> load(id, cached, now));
+    }
+
+    private Optional<UserView> load(Long id, CachedUser cached, long now) {
+        if (cached != null) {
+            Optional<Long> version = userRepository.findVersionById(id)
+                    .or(() -> archivedUserRepository.findVersionById(id));
+            if (version.isEmpty()) {
+                entries.remove(id);
+                return Optional.empty();
+            }
+            if (version.get().equals(cached.view().version())) {
+                store(cached.view(), now);
+                return Optional.of(cached.view());
+            }
+        }
+        Optional<UserView> loaded = userRepository.findViewById(id)
+                .or(() -> archivedUserRepository.findViewById(id));
+        loaded.ifPresentOrElse(view -> store(view, now), () -> entries.remove(id));
+        return loaded;
+    }
+
+    /**
+     * Loads a user by normalized email, bypassing the cache, and caches the result.
+     */
+    public Optional<UserView> loadByEmail(String email) {
+        return readOnlyTransaction.execute(status -> {
+            Optional<UserView> loaded = userRepository.findViewByEmail(email)
+                    .or(() -> archivedUserRepository.findViewByEmail(email));
+            loaded.ifPresent(this::put);
+            return loaded;
+        });
+    }
+
+    public void put(UserView view) {
+        store(view, clock.millis());
+    }
+
+    private void store(UserView view, long verifiedAt) {
+        entries.compute(view.id(), (id, existing) -> existing != null && isNewer(existing.view(), view)
+                ? existing : new CachedUser(view, verifiedAt));
+    }
+
+    /**
+     * Adds an entry of unknown freshness; it is revalidated on first access.
+     */
+    public void putUnverified(UserView view) {
+        entries.compute(view.id(), (id, existing) -> existing != null ? existing : new CachedUser(view, UNVERIFIED));
+    }
+
+    public void evict(Long id) {
+        entries.remove(id);
+    }
+
+    /**
+     * Drops the entries that changes read from the change feed made stale, unless they already hold that version.
+     */
+    public void applyChanges(List<UserChangeDto> changes) {
+        for (UserChangeDto change : changes) {
+            if (change.type() == UserChangeDto.Type.DELETE) {
+                entries.remove(change.id());
+            } else {
+                Long version = change.user().getVersion();
+                entries.compute(change.id(), (id, existing) -> existing != null && version != null
+                        && versionOf(existing.view()) >= version ? existing : null);
+            }
+        }
+    }
+
+    public List<UserView> hottest(int limit) {
+        return entries.valuesMostRecentFirst(limit).stream().map(CachedUser::view).toList();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static boolean isNewer(UserView cached, UserView view) {
+        return versionOf(cached) > versionOf(view);
+    }
+
+    private static long versionOf(UserView view) {
+        return view.version() != null ? view.version() : 0L;
+    }
+
+    private record CachedUser(UserView view, long verifiedAt) {
+    }
+}
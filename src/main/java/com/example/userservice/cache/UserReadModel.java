@@ -0,0 +1,351 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserView;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.LongDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Optional replica of every user built from the compacted state topic instead of the database. On start, up to
+ * {@code consumers} threads each replay their share of the topic's partitions from the beginning, without a
+ * consumer group, and keep applying new states after that. Once every partition has reached the end offset it had
+ * when the replay started, {@code UserStateSync} brings the model in line with the database and marks it ready:
+ * {@code UserService} then serves id, email and list reads from it, and the readiness health group stops
+ * reporting OUT_OF_SERVICE.
+ * <p>
+ * A record carries the whole user and the {@link OffHeapUserStore} keeps the highest version of each, so neither
+ * the order across partitions nor a late send of an older state matters. Users that do not fit the record layout
+ * are counted as skipped and are not found here.
+ */
+@Slf4j
+@Component
+public class UserReadModel implements HealthIndicator {
+    private static final String RECORDS = "users.read_model.records";
+
+    private final Supplier<Consumer<Long, byte[]>> consumers;
+    private final boolean enabled;
+    private final String topic;
+    private final int maxConsumers;
+    private final Duration pollTimeout;
+    private final OffHeapUserStore store;
+    private final Map<TopicPartition, Long> replayEnds = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Long> positions = new ConcurrentHashMap<>();
+    private final List<Consumer<Long, byte[]>> open = new CopyOnWriteArrayList<>();
+    private final AtomicInteger partitionsBehind = new AtomicInteger();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final CompletableFuture<Void> replayed = new CompletableFuture<>();
+    private ExecutorService pollers;
+    private volatile boolean stopped;
+    private volatile boolean ready;
+    private volatile long replayStartNanos;
+    private volatile long replayMillis;
+    private volatile Exception failure;
+
+    @Autowired
+    public UserReadModel(ConsumerFactory<?, ?> consumerFactory,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.read-model.enabled:false}") boolean enabled,
+                         @Value("${app.read-model.state-topic:users-state}") String topic,
+                         @Value("${app.read-model.consumers:3}") int consumers,
+                         @Value("${app.read-model.expected-users:100000}") int expectedUsers,
+                         @Value("${app.read-model.poll-timeout:PT0.5S}") Duration pollTimeout) {
+        this(stateConsumers(consumerFactory), meterRegistry, enabled, topic, consumers, expectedUsers, pollTimeout);
+    }
+
+    UserReadModel(Supplier<Consumer<Long, byte[]>> consumers, MeterRegistry meterRegistry, boolean enabled,
+                  String topic, int maxConsumers, int expectedUsers, Duration pollTimeout) {
+        this.consumers = consumers;
+        this.enabled = enabled;
+        this.topic = topic;
+        this.maxConsumers = Math.max(1, maxConsumers);
+        this.pollTimeout = pollTimeout;
+        this.store = enabled ? new OffHeapUserStore(expectedUsers) : null;
+        if (enabled) {
+            registerMeters(meterRegistry);
+        }
+    }
+
+    private static Supplier<Consumer<Long, byte[]>> stateConsumers(ConsumerFactory<?, ?> consumerFactory) {
+        Map<String, Object> configs = new HashMap<>(consumerFactory.getConfigurationProperties());
+        configs.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        configs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        DefaultKafkaConsumerFactory<Long, byte[]> factory = new DefaultKafkaConsumerFactory<>(configs,
+                new LongDeserializer(), new ByteArrayDeserializer());
+        return factory::createConsumer;
+    }
+
+    private void registerMeters(MeterRegistry meterRegistry) {
+        Gauge.builder("users.read_model.users", store, OffHeapUserStore::size)
+                .description("Users held by the read model")
+                .register(meterRegistry);
+        Gauge.builder("users.read_model.replay.remaining", this, UserReadModel::remaining)
+                .description("State records still to replay")
+                .register(meterRegistry);
+        Gauge.builder("users.read_model.ready", this, model -> model.ready ? 1 : 0)
+                .register(meterRegistry);
+        TimeGauge.builder("users.read_model.replay.duration", this, TimeUnit.MILLISECONDS,
+                        model -> model.replayed.isDone() ? model.replayMillis : elapsedMillis(model.replayStartNanos))
+                .description("Time the replay took, or has taken so far")
+                .register(meterRegistry);
+        FunctionCounter.builder(RECORDS, applied, AtomicLong::get)
+                .tag("outcome", "applied")
+                .register(meterRegistry);
+        FunctionCounter.builder(RECORDS, skipped, AtomicLong::get)
+                .tag("outcome", "skipped")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Lets reads use the model, once it has been reconciled with the database.
+     */
+    public void markReady() {
+        if (failure != null) {
+            return;
+        }
+        ready = true;
+        log.info("Serving user reads from the read model of {} users", store.size());
+    }
+
+    public Optional<UserView> get(Long id) {
+        return store.get(id);
+    }
+
+    public Optional<UserView> findByEmail(String email) {
+        return store.findByEmail(email);
+    }
+
+    /**
+     * All users in id order, or empty until the replay has finished.
+     */
+    public Optional<List<UserView>> all() {
+        return ready ? Optional.of(store.all()) : Optional.empty();
+    }
+
+    /**
+     * All users held so far in id order, ready or not.
+     */
+    public List<UserView> snapshot() {
+        return store.all();
+    }
+
+    /**
+     * Applies a state published outside the topic's consumers, keeping the newer version like a replayed record.
+     */
+    public void put(UserView user) {
+        store.put(user);
+    }
+
+    public void remove(Long id) {
+        store.remove(id);
+    }
+
+    /**
+     * Starts the replay. The returned future completes once every partition has reached the end offset it had
+     * when the replay started, or fails with the replay.
+     */
+    public synchronized CompletableFuture<Void> start() {
+        if (enabled && pollers == null) {
+            pollers = Executors.newFixedThreadPool(maxConsumers);
+            pollers.execute(this::replay);
+        }
+        return replayed;
+    }
+
+    /**
+     * Splits the partitions among the consumers and runs the first share on the calling thread.
+     */
+    private void replay() {
+        replayStartNanos = System.nanoTime();
+        Consumer<Long, byte[]> first = openConsumer();
+        List<TopicPartition> partitions;
+        try {
+            partitions = first.partitionsFor(topic).stream()
+                    .map(info -> new TopicPartition(topic, info.partition()))
+                    .toList();
+            if (partitions.isEmpty()) {
+                throw new IllegalStateException("State topic " + topic + " has no partitions");
+            }
+            replayEnds.putAll(first.endOffsets(partitions));
+        } catch (RuntimeException e) {
+            fail(first, "Failed to read the partitions of " + topic, e);
+            return;
+        }
+        partitionsBehind.set(partitions.size());
+        int threads = Math.min(maxConsumers, partitions.size());
+        log.info("Replaying {} partitions of {} with {} consumers", partitions.size(), topic, threads);
+        for (int i = 1; i < threads; i++) {
+            List<TopicPartition> share = share(partitions, i, threads);
+            Consumer<Long, byte[]> consumer = openConsumer();
+            pollers.execute(() -> poll(consumer, share));
+        }
+        poll(first, share(partitions, 0, threads));
+    }
+
+    private static List<TopicPartition> share(List<TopicPartition> partitions, int index, int consumers) {
+        List<TopicPartition> share = new ArrayList<>();
+        for (int i = index; i < partitions.size(); i += consumers) {
+            share.add(partitions.get(i));
+        }
+        return share;
+    }
+
+    private Consumer<Long, byte[]> openConsumer() {
+        Consumer<Long, byte[]> consumer = consumers.get();
+        open.add(consumer);
+        if (stopped) {
+            consumer.wakeup();
+        }
+        return consumer;
+    }
+
+    private void poll(Consumer<Long, byte[]> consumer, List<TopicPartition> partitions) {
+        Set<TopicPartition> behind = new HashSet<>(partitions);
+        try {
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            while (!stopped) {
+                trackPositions(consumer, partitions, behind);
+                for (ConsumerRecord<Long, byte[]> record : consumer.poll(pollTimeout)) {
+                    apply(record);
+                }
+            }
+            consumer.close();
+        } catch (WakeupException e) {
+            consumer.close();
+        } catch (RuntimeException e) {
+            fail(consumer, "Stopped reading " + partitions + " of the user state topic", e);
+        } finally {
+            open.remove(consumer);
+        }
+    }
+
+    private void trackPositions(Consumer<Long, byte[]> consumer, List<TopicPartition> partitions,
+                                Set<TopicPartition> behind) {
+        for (TopicPartition partition : partitions) {
+            long position = consumer.position(partition);
+            positions.put(partition, position);
+            if (behind.contains(partition) && position >= replayEnds.getOrDefault(partition, 0L)) {
+                behind.remove(partition);
+                if (partitionsBehind.decrementAndGet() == 0) {
+                    replayMillis = elapsedMillis(replayStartNanos);
+                    log.info("Replayed {} users from {} in {} ms", store.size(), topic, replayMillis);
+                    replayed.complete(null);
+                }
+            }
+        }
+    }
+
+    void apply(ConsumerRecord<Long, byte[]> record) {
+        if (record.key() == null) {
+            skipped.incrementAndGet();
+            return;
+        }
+        if (record.value() == null) {
+            store.remove(record.key());
+            applied.incrementAndGet();
+            return;
+        }
+        try {
+            if (store.put(UserStateCodec.decode(record.value()))) {
+                applied.incrementAndGet();
+                return;
+            }
+            log.warn("User {} does not fit the read model's record layout", record.key());
+        } catch (InvalidProtocolBufferException e) {
+            log.warn("Skipping unreadable state of user {} at {}-{}@{}", record.key(), record.topic(),
+                    record.partition(), record.offset());
+        }
+        skipped.incrementAndGet();
+    }
+
+    private long remaining() {
+        if (replayed.isDone()) {
+            return 0;
+        }
+        long remaining = 0;
+        for (Map.Entry<TopicPartition, Long> end : replayEnds.entrySet()) {
+            remaining += Math.max(0, end.getValue() - positions.getOrDefault(end.getKey(), 0L));
+        }
+        return remaining;
+    }
+
+    private void fail(Consumer<Long, byte[]> consumer, String message, RuntimeException e) {
+        if (!stopped) {
+            failure = e;
+            ready = false;
+            replayed.completeExceptionally(e);
+            log.error(message + ", reads go to the database again", e);
+        }
+        consumer.close();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return startNanos == 0 ? 0 : (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Override
+    public Health health() {
+        if (!enabled) {
+            return Health.up().withDetail("enabled", false).build();
+        }
+        Health.Builder health = failure != null ? Health.down(failure) : ready ? Health.up() : Health.outOfService();
+        return health
+                .withDetail("users", store.size())
+                .withDetail("remaining", remaining())
+                .build();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        stopped = true;
+        open.forEach(Consumer::wakeup);
+        if (pollers != null) {
+            pollers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserView;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Fixed 512-byte binary layout of a {@link UserView}:
+ * <pre>
+ * 0   id            long
+ * 8   version       long
+ * 16  createdAt     long  epoch seconds of the local date-time read as UTC
+ * 24  createdNanos  int
+ * 28  age           int
+ * 32  nameLength    short
+ * 34  emailLength   short
+ * 36  name          200 bytes UTF-8
+ * 236 email         276 bytes UTF-8
+ * </pre>
+ */
+public final class UserRecordLayout {
+    public static final int RECORD_SIZE = 512;
+
+    private static final int ID = 0;
+    private static final int VERSION = 8;
+    private static final int CREATED_SECONDS = 16;
+    private static final int CREATED_NANOS = 24;
+    private static final int AGE = 28;
+    private static final int NAME_LENGTH = 32;
+    private static final int EMAIL_LENGTH = 34;
+    private static final int NAME = 36;
+    private static final int MAX_NAME_BYTES = 200;
+    private static final int EMAIL = NAME + MAX_NAME_BYTES;
+    private static final int MAX_EMAIL_BYTES = RECORD_SIZE - EMAIL;
+
+    private UserRecordLayout() {
+    }
+
+    /**
+     * Writes the user at {@code offset}; returns false, leaving the buffer untouched, if it does not fit the layout.
+     */
+    public static boolean write(ByteBuffer buffer, int offset, UserView user) {
+        byte[] name = user.name().getBytes(StandardCharsets.UTF_8);
+        byte[] email = user.email().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES || email.length > MAX_EMAIL_BYTES) {
+            return false;
+        }
+        buffer.putLong(offset + ID, user.id());
+        buffer.putLong(offset + VERSION, user.version() != null ? user.version() : 0L);
+        buffer.putLong(offset + CREATED_SECONDS, user.createdAt().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(offset + CREATED_NANOS, user.createdAt().getNano());
+        buffer.putInt(offset + AGE, user.age());
+        buffer.putShort(offset + NAME_LENGTH, (short) name.length);
+        buffer.putShort(offset + EMAIL_LENGTH, (short) email.length);
+        buffer.put(offset + NAME, name);
+        buffer.put(offset + EMAIL, email);
+        return true;
+    }
+
+    /**
+     * Reads the user at {@code offset}; throws IllegalArgumentException if the record does not fit the layout.
+     */
+    public static UserView read(ByteBuffer buffer, int offset) {
+        short nameLength = buffer.getShort(offset + NAME_LENGTH);
+        short emailLength = buffer.getShort(offset + EMAIL_LENGTH);
+        if (nameLength < 0 || nameLength > MAX_NAME_BYTES || emailLength < 0 || emailLength > MAX_EMAIL_BYTES) {
+            throw new IllegalArgumentException("Corrupt user record at offset " + offset + ": name length "
+                    + nameLength + ", email length " + emailLength);
+        }
+        byte[] name = new byte[nameLength];
+        byte[] email = new byte[emailLength];
+        buffer.get(offset + NAME, name);
+        buffer.get(offset + EMAIL, email);
+        return new UserView(
+                buffer.getLong(offset + ID),
+                new String(name, StandardCharsets.UTF_8),
+                new String(email, StandardCharsets.UTF_8),
+                buffer.getInt(offset + AGE),
+                LocalDateTime.ofEpochSecond(buffer.getLong(offset + CREATED_SECONDS),
+                        buffer.getInt(offset + CREATED_NANOS), ZoneOffset.UTC),
+                buffer.getLong(offset + VERSION));
+    }
+
+    public static long id(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + ID);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserView;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Snapshot of hot users: a 32-byte header (magic, format version, record size, record count, write time)
+ * followed by fixed-size {@link UserRecordLayout} records, least recently used first.
+ */
+public final class UserSnapshotFile {
+    static final int MAGIC = 0x55534E50; // "USNP"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 32;
+
+    private static final Set<PosixFilePermission> OWNER_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private UserSnapshotFile() {
+    }
+
+    /**
+     * Writes to a temporary file and atomically replaces {@code target}, so readers never see a partial snapshot.
+     * The snapshot holds names and emails, so where the file system allows it only the owner can read it, and
+     * directories this creates are owner-only too. Returns the number of users written.
+     */
+    public static int write(Path target, List<UserView> users) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + users.size() * UserRecordLayout.RECORD_SIZE);
+        int count = 0;
+        for (UserView user : users) {
+            if (UserRecordLayout.write(buffer, HEADER_SIZE + count * UserRecordLayout.RECORD_SIZE, user)) {
+                count++;
+            }
+        }
+        buffer.putInt(0, MAGIC)
+                .putInt(4, FORMAT_VERSION)
+                .putInt(8, UserRecordLayout.RECORD_SIZE)
+                .putInt(12, count)
+                .putLong(16, System.currentTimeMillis());
+        buffer.limit(HEADER_SIZE + count * UserRecordLayout.RECORD_SIZE);
+
+        Path parent = target.toAbsolutePath().getParent();
+        Path temp;
+        if (parent.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(parent, PosixFilePermissions.asFileAttribute(OWNER_DIRECTORY));
+            temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp",
+                    PosixFilePermissions.asFileAttribute(OWNER_FILE));
+        } else {
+            Files.createDirectories(parent);
+            temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Memory-maps the snapshot and hands every record to {@code consumer}. Returns the number of users read.
+     * A corrupt record fails the read with an IOException; records before it have already been handed over.
+     */
+    public static int read(Path source, Consumer<UserView> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Snapshot " + source + " is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION
+                    || buffer.getInt(8) != UserRecordLayout.RECORD_SIZE) {
+                throw new IOException("Snapshot " + source + " has an unsupported format");
+            }
+            int count = buffer.getInt(12);
+            if (count < 0 || HEADER_SIZE + (long) count * UserRecordLayout.RECORD_SIZE > size) {
+                throw new IOException("Snapshot " + source + " is truncated");
+            }
+            for (int i = 0; i < count; i++) {
+                UserView user;
+                try {
+                    user = UserRecordLayout.read(buffer, HEADER_SIZE + i * UserRecordLayout.RECORD_SIZE);
+                } catch (RuntimeException e) {
+                    throw new IOException("Snapshot " + source + " has a corrupt record " + i, e);
+                }
+                consumer.accept(user);
+            }
+            return count;
+        }
+    }
+}
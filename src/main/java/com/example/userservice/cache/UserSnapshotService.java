@@ -0,0 +1,73 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserView;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Periodically persists the hottest cached users and restores them on startup. Loading happens during bean
+ * initialisation, before lifecycle beans such as the Eureka registration start, so a new instance is only
+ * announced as UP with a warm cache.
+ * <p>
+ * The snapshot holds user names and emails, so it is off unless {@code app.cache.snapshot.enabled} is set, and
+ * then needs an explicit {@code app.cache.snapshot.path}; the file is written readable by the owner only.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.cache.snapshot.enabled", havingValue = "true")
+public class UserSnapshotService {
+    private final UserReadCache userReadCache;
+
+    @Value("${app.cache.snapshot.path}")
+    private Path snapshotPath;
+
+    @Value("${app.cache.snapshot.max-users:10000}")
+    private int maxUsers;
+
+    @PostConstruct
+    public void restore() {
+        if (!Files.exists(snapshotPath)) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            int restored = UserSnapshotFile.read(snapshotPath, userReadCache::putUnverified);
+            log.info("Warmed user cache with {} users from {} in {} ms", restored, snapshotPath,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            // restored entries are revalidated on first access, so a partial restore is still safe to serve
+            log.warn("Ignoring unreadable user snapshot {}", snapshotPath, e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.cache.snapshot.interval:PT1M}",
+            fixedDelayString = "${app.cache.snapshot.interval:PT1M}")
+    @PreDestroy
+    public void save() {
+        List<UserView> hottest = new ArrayList<>(userReadCache.hottest(maxUsers));
+        if (hottest.isEmpty()) {
+            return;
+        }
+        Collections.reverse(hottest);
+        try {
+            int written = UserSnapshotFile.write(snapshotPath, hottest);
+            log.debug("Wrote {} hot users to {}", written, snapshotPath);
+        } catch (IOException e) {
+            log.warn("Failed to write user snapshot {}", snapshotPath, e);
+        }
+    }
+}
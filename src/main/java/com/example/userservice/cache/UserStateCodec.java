@@ -0,0 +1,57 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserView;
+import com.example.userservice.grpc.v1.User;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Timestamp;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Value format of the compacted user state topic: the gRPC {@code User} message. The record key is the user id
+ * and a deleted user is a tombstone (null value), carrying the user's last version in a {@code version} header
+ * when it is known. Creation times are written as UTC so a {@link LocalDateTime}
+ * reads back unchanged whatever the time zones of writer and reader.
+ */
+public final class UserStateCodec {
+
+    public static final String VERSION_HEADER = "version";
+
+    private UserStateCodec() {
+    }
+
+    public static byte[] encodeVersion(long version) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(version).array();
+    }
+
+    public static byte[] encode(UserView user) {
+        User.Builder builder = User.newBuilder()
+                .setId(user.id())
+                .setName(user.name())
+                .setEmail(user.email())
+                .setAge(user.age());
+        if (user.createdAt() != null) {
+            Instant createdAt = user.createdAt().toInstant(ZoneOffset.UTC);
+            builder.setCreatedAt(Timestamp.newBuilder()
+                    .setSeconds(createdAt.getEpochSecond())
+                    .setNanos(createdAt.getNano()));
+        }
+        if (user.version() != null) {
+            builder.setVersion(user.version());
+        }
+        return builder.build().toByteArray();
+    }
+
+    public static UserView decode(byte[] value) throws InvalidProtocolBufferException {
+        User user = User.parseFrom(value);
+        LocalDateTime createdAt = user.hasCreatedAt()
+                ? LocalDateTime.ofEpochSecond(user.getCreatedAt().getSeconds(), user.getCreatedAt().getNanos(),
+                ZoneOffset.UTC)
+                : null;
+        return new UserView(user.getId(), user.getName(), user.getEmail(), user.getAge(), createdAt,
+                user.getVersion());
+    }
+}
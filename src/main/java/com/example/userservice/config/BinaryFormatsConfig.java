@@ -0,0 +1,46 @@
+package com.example.userservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.LinkRelationProvider;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * CBOR and Smile representations for service-to-service callers, selected via {@code Accept}.
+ * Both render HAL like the JSON endpoints, so the payloads only differ in encoding.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder,
+                                                                           LinkRelationProvider relProvider,
+                                                                           MessageResolver messageResolver) {
+        ObjectMapper mapper = builder.factory(new CBORFactory()).build();
+        return new MappingJackson2CborHttpMessageConverter(withHal(mapper, relProvider, messageResolver));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder,
+                                                                             LinkRelationProvider relProvider,
+                                                                             MessageResolver messageResolver) {
+        ObjectMapper mapper = builder.factory(new SmileFactory()).build();
+        return new MappingJackson2SmileHttpMessageConverter(withHal(mapper, relProvider, messageResolver));
+    }
+
+    public static ObjectMapper withHal(ObjectMapper mapper, LinkRelationProvider relProvider,
+                                       MessageResolver messageResolver) {
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(
+                new Jackson2HalModule.HalHandlerInstantiator(relProvider, CurieProvider.NONE, messageResolver));
+        return mapper;
+    }
+}
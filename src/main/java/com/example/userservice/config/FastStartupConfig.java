@@ -0,0 +1,55 @@
+package com.example.userservice.config;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.type.MethodMetadata;
+
+import java.util.List;
+
+/**
+ * Defers creation of beans that no request on the hot path needs (API documentation and Swagger UI) until
+ * they are first used. Everything else stays eager so a broken datasource or Kafka setup still fails the
+ * startup rather than the first request.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("fast-startup")
+public class FastStartupConfig {
+    static final List<String> LAZY_PREFIXES = List.of(
+            "org.springdoc.",
+            OpenApiConfig.class.getName());
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyDocumentationBeans() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (isLazyCandidate(definition)) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    static boolean isLazyCandidate(BeanDefinition definition) {
+        String className = definition.getBeanClassName();
+        if (definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            if (factoryMethod != null) {
+                className = factoryMethod.getDeclaringClassName();
+            }
+        }
+        if (className == null) {
+            return false;
+        }
+        for (String prefix : LAZY_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
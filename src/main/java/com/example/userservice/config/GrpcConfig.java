@@ -0,0 +1,33 @@
+package com.example.userservice.config;
+
+import com.example.userservice.grpc.GrpcServer;
+import com.example.userservice.grpc.UserGrpcService;
+import com.example.userservice.service.UserService;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "app.grpc.enabled", havingValue = "true")
+public class GrpcConfig {
+
+    @Value("${app.grpc.port:9090}")
+    private int grpcPort;
+
+    @Value("${app.grpc.list-threads:4}")
+    private int listThreads;
+
+    @Bean
+    public UserGrpcService userGrpcService(UserService userService, Validator validator) {
+        return new UserGrpcService(userService, validator, listThreads);
+    }
+
+    @Bean
+    public GrpcServer grpcServer(UserGrpcService userGrpcService) {
+        return new GrpcServer(grpcPort, List.of(userGrpcService));
+    }
+}
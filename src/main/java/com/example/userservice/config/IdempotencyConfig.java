@@ -0,0 +1,25 @@
+package com.example.userservice.config;
+
+import com.example.userservice.filter.IdempotencyFilter;
+import com.example.userservice.filter.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            IdempotencyStore idempotencyStore,
+            @Value("${app.idempotency.lock-timeout:PT10S}") Duration lockTimeout,
+            @Value("${app.idempotency.max-body-size:1048576}") int maxBodySize) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(idempotencyStore, lockTimeout, maxBodySize));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
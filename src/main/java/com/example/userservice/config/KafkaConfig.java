@@ -12,6 +12,12 @@ public class KafkaConfig {
     @Value("${spring.kafka.topic.name}")
     private String userEventsTopic;
 
+    @Value("${app.read-model.state-topic:users-state}")
+    private String userStateTopic;
+
+    @Value("${app.read-model.state-partitions:6}")
+    private int userStatePartitions;
+
     @Bean
     public NewTopic userEventsTopic() {
         return TopicBuilder.name(userEventsTopic)
@@ -19,4 +25,13 @@ public class KafkaConfig {
                 .replicas(1)
                 .build();
     }
-}
\ No newline at end of file
+
+    @Bean
+    public NewTopic userStateTopic() {
+        return TopicBuilder.name(userStateTopic)
+                .partitions(userStatePartitions)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+}
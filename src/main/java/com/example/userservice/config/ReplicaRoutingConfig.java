@@ -0,0 +1,78 @@
+package com.example.userservice.config;
+
+import com.example.userservice.datasource.DataSourceRoutingProperties;
+import com.example.userservice.datasource.ReadYourWrites;
+import com.example.userservice.datasource.ReadYourWritesFilter;
+import com.example.userservice.datasource.ReplicaLagMonitor;
+import com.example.userservice.datasource.ReplicaPool;
+import com.example.userservice.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties primaryProperties,
+                                                             DataSourceRoutingProperties routing) {
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+
+        List<ReplicaPool> replicas = new ArrayList<>();
+        for (int i = 0; i < routing.getReplicas().size(); i++) {
+            DataSourceRoutingProperties.Replica replica = routing.getReplicas().get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + i);
+            pool.setJdbcUrl(replica.getUrl());
+            pool.setUsername(replica.getUsername());
+            pool.setPassword(replica.getPassword());
+            pool.setMaximumPoolSize(replica.getMaximumPoolSize());
+            pool.setReadOnly(true);
+            replicas.add(new ReplicaPool(pool.getPoolName(), pool));
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, routing.getBalancing());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReadYourWrites readYourWrites(DataSourceRoutingProperties routing) {
+        return new ReadYourWrites(routing.getReadYourWritesWindow(), Clock.systemUTC());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReadYourWrites readYourWrites,
+                                                                            DataSourceRoutingProperties routing) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(
+                new ReadYourWritesFilter(readYourWrites, routing.getClientIdHeader()));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                               ReadYourWrites readYourWrites,
+                                               DataSourceRoutingProperties routing) {
+        return new ReplicaLagMonitor(replicaRoutingDataSource, readYourWrites, routing.getMaxReplicaLag());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.userservice.config;
+
+import com.example.userservice.datasource.ShardRing;
+import com.example.userservice.datasource.ShardRouter;
+import com.example.userservice.datasource.ShardRoutingDataSource;
+import com.example.userservice.datasource.ShardSchemaIntegrator;
+import com.example.userservice.datasource.ShardingProperties;
+import com.example.userservice.datasource.SnowflakeIdGenerator;
+import com.example.userservice.entity.UserIdGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties homeProperties,
+                                                         ShardingProperties sharding) {
+        HikariDataSource home = homeProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        home.setPoolName("shard-0");
+
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(home);
+        for (int i = 0; i < sharding.getShards().size(); i++) {
+            ShardingProperties.Shard shard = sharding.getShards().get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("shard-" + (i + 1));
+            pool.setJdbcUrl(shard.getUrl());
+            pool.setUsername(shard.getUsername());
+            pool.setPassword(shard.getPassword());
+            pool.setMaximumPoolSize(shard.getMaximumPoolSize());
+            shards.add(pool);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernateProperties(ShardRoutingDataSource shardRoutingDataSource) {
+        IntegratorProvider integrators = () -> List.of(
+                new ShardSchemaIntegrator(shardRoutingDataSource.shardCount()));
+        return properties -> {
+            properties.put(UserIdGenerator.ASSIGNED, true);
+            properties.put("hibernate.integrator_provider", integrators);
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    public ShardRouter shardRouter(ShardRoutingDataSource shardRoutingDataSource, ShardingProperties sharding,
+                                   PlatformTransactionManager transactionManager) {
+        if (sharding.getWorkerId() == null) {
+            throw new IllegalStateException("app.datasource.sharding.worker-id must be set to an id unique among "
+                    + "running instances when sharding is enabled");
+        }
+        int shardCount = shardRoutingDataSource.shardCount();
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return new ShardRouter(
+                new ShardRing(shardCount, sharding.getVirtualNodes()),
+                new SnowflakeIdGenerator(sharding.getWorkerId(), Clock.systemUTC()),
+                shardCount,
+                sharding.getPageSize(),
+                Executors.newFixedThreadPool(shardCount),
+                newTransaction);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.userservice.config;
+
+import com.example.userservice.datasource.SqlRoundTripFilter;
+import com.example.userservice.datasource.SqlRoundTrips;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Per-request SQL statement and transaction counts, published as {@link SqlRoundTripFilter#STATEMENTS} and
+ * {@link SqlRoundTripFilter#TRANSACTIONS}. Wraps the {@code dataSource} bean, whichever of the plain, replica
+ * routing or sharding setups defines it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.query-count.enabled", havingValue = "true")
+public class SqlRoundTripConfig {
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Bean
+    public static BeanPostProcessor countingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource) {
+                    return SqlRoundTrips.counting(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlRoundTripFilter> sqlRoundTripFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<SqlRoundTripFilter> registration = new FilterRegistrationBean<>(
+                new SqlRoundTripFilter(meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.dto.BulkDeleteJobDto;
+import com.example.userservice.dto.BulkDeleteRequestDto;
+import com.example.userservice.service.BulkDeleteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+@RequestMapping("/api/users/bulk-delete")
+@RequiredArgsConstructor
+@Tag(name = "User Management", description = "Endpoints for managing users")
+public class BulkDeleteController {
+    private final BulkDeleteService bulkDeleteService;
+
+    @Operation(summary = "Bulk delete users",
+            description = "Starts a background job that deletes the given ids or every user matching the filter " +
+                    "in chunks, publishing a DELETED event per user")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Job accepted, follow the Location to track progress"),
+            @ApiResponse(responseCode = "400", description = "Neither ids nor a filter given, or both"),
+            @ApiResponse(responseCode = "501", description = "Users are sharded")
+    })
+    @PostMapping
+    public ResponseEntity<EntityModel<BulkDeleteJobDto>> startBulkDelete(
+            @Parameter(description = "Users to delete", required = true)
+            @RequestBody @Valid BulkDeleteRequestDto request) {
+        BulkDeleteJobDto job = bulkDeleteService.start(request);
+        return ResponseEntity
+                .accepted()
+                .location(linkTo(methodOn(BulkDeleteController.class).getBulkDelete(job.id())).toUri())
+                .body(toModel(job));
+    }
+
+    @Operation(summary = "Get bulk delete job", description = "Returns the status and progress of a bulk delete job")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Job found and returned"),
+            @ApiResponse(responseCode = "404", description = "Job not found with given ID")
+    })
+    @GetMapping("/{jobId}")
+    public EntityModel<BulkDeleteJobDto> getBulkDelete(
+            @Parameter(description = "ID of the job", required = true, example = "1")
+            @PathVariable Long jobId) {
+        return toModel(bulkDeleteService.getJob(jobId));
+    }
+
+    @Operation(summary = "Resume bulk delete job",
+            description = "Continues a failed or interrupted job after its last completed chunk")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Job resumed, or already completed"),
+            @ApiResponse(responseCode = "404", description = "Job not found with given ID"),
+            @ApiResponse(responseCode = "501", description = "Users are sharded")
+    })
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<EntityModel<BulkDeleteJobDto>> resumeBulkDelete(
+            @Parameter(description = "ID of the job", required = true, example = "1")
+            @PathVariable Long jobId) {
+        return ResponseEntity.accepted().body(toModel(bulkDeleteService.resume(jobId)));
+    }
+
+    private EntityModel<BulkDeleteJobDto> toModel(BulkDeleteJobDto job) {
+        return EntityModel.of(job,
+                linkTo(methodOn(BulkDeleteController.class).getBulkDelete(job.id())).withSelfRel(),
+                linkTo(methodOn(BulkDeleteController.class).resumeBulkDelete(job.id())).withRel("resume"));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.dto.UserCollectionVersion;
+import com.example.userservice.exception.PreconditionFailedException;
+
+final class ETags {
+    private static final String ANY = "*";
+
+    private ETags() {
+    }
+
+    static String forUser(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String forCollection(UserCollectionVersion version) {
+        return "\"" + version.count() + "-" + version.idSum() + "-" + version.versionSum() + "\"";
+    }
+
+    /**
+     * Weak comparison, as required for {@code If-None-Match}.
+     */
+    static boolean matchesAny(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (ANY.equals(tag) || etag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the version required by an {@code If-Match} header, or {@code null} when any version is acceptable.
+     */
+    static Long expectedVersion(Long id, String ifMatch) {
+        if (ifMatch == null || ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException(id);
+        }
+        try {
+            return Long.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException(id);
+        }
+    }
+}
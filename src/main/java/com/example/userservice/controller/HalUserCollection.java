@@ -0,0 +1,12 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.dto.UserDto;
+
+import java.util.List;
+
+/**
+ * The user list as {@link HalUserCollectionConverter} writes it: the links of every user are derived from
+ * {@code usersHref} while writing instead of being built per user up front.
+ */
+public record HalUserCollection(List<UserDto> users, String usersHref) {
+}
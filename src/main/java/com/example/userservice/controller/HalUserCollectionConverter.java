@@ -0,0 +1,185 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.dto.UserDto;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes {@link HalUserCollection} as the same bytes Jackson's HAL module produces for the equivalent
+ * {@code CollectionModel<EntityModel<UserDto>>}, but streams them straight to the response: field names are
+ * pre-encoded, fields are read through plain getters instead of bean introspection, and no {@code EntityModel}
+ * or {@code Link} is built per user.
+ */
+@Component
+public class HalUserCollectionConverter extends AbstractHttpMessageConverter<HalUserCollection> {
+    private static final SerializableString EMBEDDED = new SerializedString("_embedded");
+    private static final SerializableString USER_LIST = new SerializedString("userDtoList");
+    private static final SerializableString LINKS = new SerializedString("_links");
+    private static final SerializableString SELF = new SerializedString("self");
+    private static final SerializableString USER_DETAILS = new SerializedString("user-details");
+    private static final SerializableString CREATE_USER = new SerializedString("create-user");
+    private static final SerializableString HREF = new SerializedString("href");
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString AGE = new SerializedString("age");
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+
+    private final JsonFactory jsonFactory;
+
+    public HalUserCollectionConverter(ObjectMapper objectMapper) {
+        super(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON);
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return HalUserCollection.class == clazz;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected HalUserCollection readInternal(Class<? extends HalUserCollection> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("User collections are not accepted as input", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(HalUserCollection collection, HttpOutputMessage outputMessage) throws IOException {
+        write(collection, StreamUtils.nonClosing(outputMessage.getBody()));
+    }
+
+    public void write(HalUserCollection collection, OutputStream out) throws IOException {
+        try (JsonGenerator json = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            Hrefs hrefs = new Hrefs(collection.usersHref());
+            json.writeStartObject();
+            if (!collection.users().isEmpty()) {
+                json.writeFieldName(EMBEDDED);
+                json.writeStartObject();
+                json.writeFieldName(USER_LIST);
+                json.writeStartArray();
+                for (UserDto user : collection.users()) {
+                    writeUser(json, user, hrefs);
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeFieldName(LINKS);
+            json.writeStartObject();
+            writeLink(json, SELF, collection.usersHref());
+            writeLink(json, CREATE_USER, collection.usersHref());
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeUser(JsonGenerator json, UserDto user, Hrefs hrefs) throws IOException {
+        json.writeStartObject();
+        json.writeFieldName(ID);
+        writeNumber(json, user.getId());
+        json.writeFieldName(NAME);
+        json.writeString(user.getName());
+        json.writeFieldName(EMAIL);
+        json.writeString(user.getEmail());
+        json.writeFieldName(AGE);
+        if (user.getAge() != null) {
+            json.writeNumber(user.getAge());
+        } else {
+            json.writeNull();
+        }
+        json.writeFieldName(CREATED_AT);
+        writeDateTime(json, user.getCreatedAt());
+
+        hrefs.pointTo(user.getId());
+        json.writeFieldName(LINKS);
+        json.writeStartObject();
+        writeLink(json, SELF, hrefs);
+        writeLink(json, USER_DETAILS, hrefs);
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator json, Long value) throws IOException {
+        if (value != null) {
+            json.writeNumber(value);
+        } else {
+            json.writeNull();
+        }
+    }
+
+    // the format Jackson's JavaTimeModule uses when dates are not written as timestamps
+    private static void writeDateTime(JsonGenerator json, LocalDateTime value) throws IOException {
+        json.writeString(value != null ? DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value) : null);
+    }
+
+    private static void writeLink(JsonGenerator json, SerializableString rel, String href) throws IOException {
+        json.writeFieldName(rel);
+        json.writeStartObject();
+        json.writeFieldName(HREF);
+        json.writeString(href);
+        json.writeEndObject();
+    }
+
+    private static void writeLink(JsonGenerator json, SerializableString rel, Hrefs hrefs) throws IOException {
+        json.writeFieldName(rel);
+        json.writeStartObject();
+        json.writeFieldName(HREF);
+        json.writeString(hrefs.chars, 0, hrefs.length);
+        json.writeEndObject();
+    }
+
+    /**
+     * {@code usersHref + "/" + id} in a reused buffer, so user links cost no strings.
+     */
+    private static final class Hrefs {
+        private final int prefixLength;
+        private final char[] chars;
+        private int length;
+
+        Hrefs(String usersHref) {
+            prefixLength = usersHref.length() + 1;
+            chars = new char[prefixLength + 20];
+            usersHref.getChars(0, usersHref.length(), chars, 0);
+            chars[prefixLength - 1] = '/';
+        }
+
+        void pointTo(Long id) {
+            if (id == null || id < 0) {
+                String suffix = String.valueOf(id);
+                suffix.getChars(0, suffix.length(), chars, prefixLength);
+                length = prefixLength + suffix.length();
+                return;
+            }
+            int digits = 1;
+            for (long rest = id / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            length = prefixLength + digits;
+            long rest = id;
+            for (int i = length - 1; i >= prefixLength; i--) {
+                chars[i] = (char) ('0' + rest % 10);
+                rest /= 10;
+            }
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package com.example.userservice.controller;
 
+import com.example.userservice.dto.UserChangesDto;
+import com.example.userservice.dto.UserCollectionVersion;
 import com.example.userservice.dto.UserDto;
+import com.example.userservice.dto.UserStatsDto;
 import com.example.userservice.dto.CreateUserDto;
+import com.example.userservice.dto.PatchUserDto;
+import com.example.userservice.service.StaleReads;
 import com.example.userservice.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,10 +20,16 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,40 +41,186 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @RequiredArgsConstructor
 @Tag(name = "User Management", description = "Endpoints for managing users")
 public class UserController {
+    private static final int MAX_WAIT_SECONDS = 60;
+    private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    private static final String SMILE_VALUE = "application/x-jackson-smile";
+    private static final String USERS_SCHEMA = "#/components/schemas/CollectionModelEntityModelUserDto";
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
     private final UserService userService;
 
     @Operation(summary = "Get all users", description = "Retrieves a list of all users with navigation links")
-    @ApiResponse(responseCode = "200", description = "Successfully retrieved list of users")
-    @GetMapping
-    public CollectionModel<EntityModel<UserDto>> getAllUsers() {
-        List<EntityModel<UserDto>> users = userService.getAllUsers().stream()
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved list of users", content = {
+                    @Content(mediaType = MediaTypes.HAL_JSON_VALUE, schema = @Schema(ref = USERS_SCHEMA)),
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(ref = USERS_SCHEMA)),
+                    @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE, schema = @Schema(ref = USERS_SCHEMA)),
+                    @Content(mediaType = SMILE_VALUE, schema = @Schema(ref = USERS_SCHEMA)),
+                    @Content(mediaType = MediaTypes.HAL_FORMS_JSON_VALUE, schema = @Schema(ref = USERS_SCHEMA))}),
+            @ApiResponse(responseCode = "304", description = "No user changed since the given ETag"),
+            @ApiResponse(responseCode = "503", description = "Database unavailable and no list read before")
+    })
+    @GetMapping(produces = {MediaType.APPLICATION_CBOR_VALUE, SMILE_VALUE, MediaTypes.HAL_FORMS_JSON_VALUE})
+    public ResponseEntity<CollectionModel<EntityModel<UserDto>>> getAllUsers(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String unchangedTag = unchangedCollectionTag(ifNoneMatch);
+        if (unchangedTag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(unchangedTag).build();
+        }
+
+        List<UserDto> userDtos = userService.getAllUsers();
+        List<EntityModel<UserDto>> users = userDtos.stream()
                 .map(user -> EntityModel.of(user,
-                        linkTo(methodOn(UserController.class).getUserById(user.getId())).withSelfRel(),
+                        linkTo(methodOn(UserController.class).getUserById(user.getId(), null)).withSelfRel(),
                         linkTo(UserController.class).slash(user.getId()).withRel("user-details")))
                 .collect(Collectors.toList());
 
-        Link selfLink = linkTo(methodOn(UserController.class).getAllUsers()).withSelfRel();
+        Link selfLink = linkTo(methodOn(UserController.class).getAllUsers(null)).withSelfRel();
         Link createLink = linkTo(methodOn(UserController.class).createUser(null)).withRel("create-user");
 
-        return CollectionModel.of(users, selfLink, createLink);
+        return ok()
+                .eTag(ETags.forCollection(UserCollectionVersion.of(userDtos)))
+                .body(CollectionModel.of(users, selfLink, createLink));
+    }
+
+    /**
+     * {@link #getAllUsers} for JSON clients and any client without a preference, written by
+     * {@link HalUserCollectionConverter} without building a model per user.
+     */
+    @Operation(hidden = true)
+    @GetMapping
+    public ResponseEntity<HalUserCollection> getAllUsersAsJson(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String unchangedTag = unchangedCollectionTag(ifNoneMatch);
+        if (unchangedTag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(unchangedTag).build();
+        }
+
+        List<UserDto> userDtos = userService.getAllUsers();
+        String usersHref = linkTo(methodOn(UserController.class).getAllUsers(null)).withSelfRel().getHref();
+
+        return ok()
+                .eTag(ETags.forCollection(UserCollectionVersion.of(userDtos)))
+                .body(new HalUserCollection(userDtos, usersHref));
+    }
+
+    private String unchangedCollectionTag(String ifNoneMatch) {
+        UserCollectionVersion version = ifNoneMatch != null ? userService.getUsersVersion() : null;
+        if (version == null) {
+            return null;
+        }
+        String currentTag = ETags.forCollection(version);
+        return ETags.matchesAny(ifNoneMatch, currentTag) ? currentTag : null;
+    }
+
+    /**
+     * 200, with {@code Age} and a stale {@code Warning} when the service answered from its last known good state.
+     */
+    private static ResponseEntity.BodyBuilder ok() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        StaleReads.take().ifPresent(age -> response
+                .header(HttpHeaders.AGE, Long.toString(age.toSeconds()))
+                .header(HttpHeaders.WARNING, STALE_WARNING));
+        return response;
+    }
+
+    @Operation(summary = "Get user statistics",
+            description = "Returns total count, age histogram and users created per day from in-memory counters")
+    @ApiResponse(responseCode = "200", description = "Statistics returned")
+    @GetMapping("/stats")
+    public UserStatsDto getUserStats() {
+        return userService.getStatistics();
+    }
+
+    @Operation(summary = "Get user changes",
+            description = "Returns changes after the given cursor. Without a cursor returns the current head of the " +
+                    "feed. With wait > 0 the request is held until a change arrives or the wait elapses")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Changes returned, possibly none"),
+            @ApiResponse(responseCode = "410", description = "Cursor is older than the retained change history"),
+            @ApiResponse(responseCode = "501", description = "Users are sharded")
+    })
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<UserChangesDto> getChanges(
+            @Parameter(description = "Cursor returned by a previous call", example = "42")
+            @RequestParam(required = false) Long since,
+            @Parameter(description = "Maximum number of changes to return", example = "500")
+            @RequestParam(defaultValue = "500") int limit,
+            @Parameter(description = "Seconds to wait for a change when there is none yet", example = "30")
+            @RequestParam(defaultValue = "0") int wait) {
+        return userService.getChanges(since, limit, Duration.ofSeconds(Math.min(Math.max(wait, 0), MAX_WAIT_SECONDS)));
+    }
+
+    @Operation(summary = "Stream user changes",
+            description = "Server-sent events of user changes after the given cursor or Last-Event-ID")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @ApiResponse(responseCode = "501", description = "Users are sharded")
+    })
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @Parameter(description = "Cursor to start after, defaults to the current head", example = "42")
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return userService.streamChanges(lastEventId != null ? lastEventId : since);
     }
 
     @Operation(summary = "Get user by ID", description = "Retrieves a specific user by their ID")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "User found and returned"),
-            @ApiResponse(responseCode = "404", description = "User not found with given ID")
+            @ApiResponse(responseCode = "304", description = "User unchanged since the given ETag"),
+            @ApiResponse(responseCode = "404", description = "User not found with given ID"),
+            @ApiResponse(responseCode = "503", description = "Database unavailable and the user not seen before")
     })
     @GetMapping("/{id}")
-    public EntityModel<UserDto> getUserById(
+    public ResponseEntity<EntityModel<UserDto>> getUserById(
             @Parameter(description = "ID of the user to be retrieved", required = true, example = "1")
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long version = ifNoneMatch != null ? userService.getUserVersion(id) : null;
+        if (version != null) {
+            String currentTag = ETags.forUser(version);
+            if (ETags.matchesAny(ifNoneMatch, currentTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentTag).build();
+            }
+        }
+
         UserDto user = userService.getUserById(id);
 
-        return EntityModel.of(user,
-                linkTo(methodOn(UserController.class).getUserById(id)).withSelfRel(),
-                linkTo(methodOn(UserController.class).getAllUsers()).withRel("all-users"),
-                linkTo(methodOn(UserController.class).updateUser(id, null)).withRel("update-user"),
-                linkTo(methodOn(UserController.class).deleteUser(id)).withRel("delete-user"));
+        return ok()
+                .eTag(ETags.forUser(user.getVersion()))
+                .body(EntityModel.of(user,
+                        linkTo(methodOn(UserController.class).getUserById(id, null)).withSelfRel(),
+                        linkTo(methodOn(UserController.class).getAllUsers(null)).withRel("all-users"),
+                        linkTo(methodOn(UserController.class).updateUser(id, null, null)).withRel("update-user"),
+                        linkTo(methodOn(UserController.class).deleteUser(id, null)).withRel("delete-user")));
+    }
+
+    @Operation(summary = "Get user by email", description = "Retrieves the user with the given email, ignoring case")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "User found and returned"),
+            @ApiResponse(responseCode = "304", description = "User unchanged since the given ETag"),
+            @ApiResponse(responseCode = "404", description = "User not found with given email")
+    })
+    @GetMapping("/by-email/{email}")
+    public ResponseEntity<EntityModel<UserDto>> getUserByEmail(
+            @Parameter(description = "Email of the user to be retrieved", required = true, example = "john@example.com")
+            @PathVariable String email,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        UserDto user = userService.getUserByEmail(email);
+        String currentTag = ETags.forUser(user.getVersion());
+        if (ifNoneMatch != null && ETags.matchesAny(ifNoneMatch, currentTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentTag).build();
+        }
+
+        Long id = user.getId();
+        return ResponseEntity.ok()
+                .eTag(currentTag)
+                .body(EntityModel.of(user,
+                        linkTo(methodOn(UserController.class).getUserById(id, null)).withSelfRel(),
+                        linkTo(methodOn(UserController.class).getAllUsers(null)).withRel("all-users"),
+                        linkTo(methodOn(UserController.class).updateUser(id, null, null)).withRel("update-user"),
+                        linkTo(methodOn(UserController.class).deleteUser(id, null)).withRel("delete-user")));
     }
 
     @Operation(summary = "Create a new user", description = "Creates a new user with the provided details")
@@ -78,11 +237,12 @@ public class UserController {
         UserDto createdUser = userService.createUser(createUserDto);
 
         EntityModel<UserDto> resource = EntityModel.of(createdUser,
-                linkTo(methodOn(UserController.class).getUserById(createdUser.getId())).withSelfRel(),
-                linkTo(methodOn(UserController.class).getAllUsers()).withRel("all-users"));
+                linkTo(methodOn(UserController.class).getUserById(createdUser.getId(), null)).withSelfRel(),
+                linkTo(methodOn(UserController.class).getAllUsers(null)).withRel("all-users"));
 
         return ResponseEntity
-                .created(linkTo(methodOn(UserController.class).getUserById(createdUser.getId())).toUri())
+                .created(linkTo(methodOn(UserController.class).getUserById(createdUser.getId(), null)).toUri())
+                .eTag(ETags.forUser(createdUser.getVersion()))
                 .body(resource);
     }
 
@@ -91,33 +251,66 @@ public class UserController {
             @ApiResponse(responseCode = "200", description = "User updated successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid input data"),
             @ApiResponse(responseCode = "404", description = "User not found with given ID"),
-            @ApiResponse(responseCode = "409", description = "New email already exists")
+            @ApiResponse(responseCode = "409", description = "New email already exists"),
+            @ApiResponse(responseCode = "412", description = "User changed since the ETag given in If-Match")
     })
     @PutMapping("/{id}")
-    public EntityModel<UserDto> updateUser(
+    public ResponseEntity<EntityModel<UserDto>> updateUser(
             @Parameter(description = "ID of the user to update", required = true, example = "1")
             @PathVariable Long id,
             @Parameter(description = "Updated user data", required = true)
-            @RequestBody @Valid CreateUserDto updateUserDto) {
-        UserDto updatedUser = userService.updateUser(id, updateUserDto);
+            @RequestBody @Valid CreateUserDto updateUserDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UserDto updatedUser = userService.updateUser(id, updateUserDto, ETags.expectedVersion(id, ifMatch));
+
+        return ResponseEntity.ok()
+                .eTag(ETags.forUser(updatedUser.getVersion()))
+                .body(EntityModel.of(updatedUser,
+                        linkTo(methodOn(UserController.class).getUserById(id, null)).withSelfRel(),
+                        linkTo(methodOn(UserController.class).getAllUsers(null)).withRel("all-users"),
+                        linkTo(methodOn(UserController.class).deleteUser(id, null)).withRel("delete-user")));
+    }
+
+    @Operation(summary = "Patch user",
+            description = "Applies a JSON Merge Patch, changing only the supplied fields. A patch that changes " +
+                    "nothing is not written")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "User patched successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid patch document"),
+            @ApiResponse(responseCode = "404", description = "User not found with given ID"),
+            @ApiResponse(responseCode = "409", description = "New email already exists"),
+            @ApiResponse(responseCode = "412", description = "User changed since the ETag given in If-Match")
+    })
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<EntityModel<UserDto>> patchUser(
+            @Parameter(description = "ID of the user to patch", required = true, example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Fields to change", required = true)
+            @RequestBody @Valid PatchUserDto patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UserDto patchedUser = userService.patchUser(id, patch, ETags.expectedVersion(id, ifMatch));
 
-        return EntityModel.of(updatedUser,
-                linkTo(methodOn(UserController.class).getUserById(id)).withSelfRel(),
-                linkTo(methodOn(UserController.class).getAllUsers()).withRel("all-users"),
-                linkTo(methodOn(UserController.class).deleteUser(id)).withRel("delete-user"));
+        return ResponseEntity.ok()
+                .eTag(ETags.forUser(patchedUser.getVersion()))
+                .body(EntityModel.of(patchedUser,
+                        linkTo(methodOn(UserController.class).getUserById(id, null)).withSelfRel(),
+                        linkTo(methodOn(UserController.class).getAllUsers(null)).withRel("all-users"),
+                        linkTo(methodOn(UserController.class).deleteUser(id, null)).withRel("delete-user")));
     }
 
     @Operation(summary = "Delete user", description = "Deletes a user by their ID")
     @ApiResponses({
             @ApiResponse(responseCode = "204", description = "User deleted successfully"),
-            @ApiResponse(responseCode = "404", description = "User not found with given ID")
+            @ApiResponse(responseCode = "404", description = "User not found with given ID"),
+            @ApiResponse(responseCode = "412", description = "User changed since the ETag given in If-Match")
     })
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public ResponseEntity<Void> deleteUser(
             @Parameter(description = "ID of the user to delete", required = true, example = "1")
-            @PathVariable Long id) {
-        userService.deleteUser(id);
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userService.deleteUser(id, ETags.expectedVersion(id, ifMatch));
         return ResponseEntity.noContent().build();
     }
 }
\ No newline at end of file
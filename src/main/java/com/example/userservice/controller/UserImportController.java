@@ -0,0 +1,99 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.dto.UserImportDto;
+import com.example.userservice.service.UserImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+@RequestMapping("/api/users/import")
+@RequiredArgsConstructor
+@Tag(name = "User Management", description = "Endpoints for managing users")
+public class UserImportController {
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final UserImportService userImportService;
+
+    @Operation(summary = "Import users from CSV",
+            description = "Creates a user per valid row of a CSV upload with a header row naming the columns " +
+                    "name, email and age, publishing a CREATED event per user. Rows that fail validation or " +
+                    "whose email is taken are skipped and listed in the import's error report")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Import finished, see its status and counts"),
+            @ApiResponse(responseCode = "400", description = "Empty upload or header row missing a column"),
+            @ApiResponse(responseCode = "501", description = "Users are sharded")
+    })
+    @PostMapping(consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<EntityModel<UserImportDto>> importUsers(InputStream csv) {
+        UserImportDto userImport = userImportService.importCsv(csv);
+        return ResponseEntity
+                .created(linkTo(methodOn(UserImportController.class).getImport(userImport.id())).toUri())
+                .body(toModel(userImport));
+    }
+
+    @Operation(summary = "Get user import", description = "Returns the status and counts of a CSV import")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Import found and returned"),
+            @ApiResponse(responseCode = "404", description = "Import not found with given ID")
+    })
+    @GetMapping("/{importId}")
+    public EntityModel<UserImportDto> getImport(
+            @Parameter(description = "ID of the import", required = true, example = "1")
+            @PathVariable Long importId) {
+        return toModel(userImportService.getImport(importId));
+    }
+
+    @Operation(summary = "Resume user import",
+            description = "Sends the CREATED events a failed import still owes for the users it created")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Events sent, or none owed; see the import's status"),
+            @ApiResponse(responseCode = "404", description = "Import not found with given ID")
+    })
+    @PostMapping("/{importId}/resume")
+    public ResponseEntity<EntityModel<UserImportDto>> resumeImport(
+            @Parameter(description = "ID of the import", required = true, example = "1")
+            @PathVariable Long importId) {
+        return ResponseEntity.accepted().body(toModel(userImportService.resume(importId)));
+    }
+
+    @Operation(summary = "Get user import errors",
+            description = "Streams the rejected rows of a CSV import with the reason for each")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Error report, possibly with no rows"),
+            @ApiResponse(responseCode = "404", description = "Import not found with given ID")
+    })
+    @GetMapping(value = "/{importId}/errors", produces = TEXT_CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> getImportErrors(
+            @Parameter(description = "ID of the import", required = true, example = "1")
+            @PathVariable Long importId) {
+        userImportService.getImport(importId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TEXT_CSV_VALUE + ";charset=UTF-8"))
+                .body(out -> userImportService.writeErrorReport(importId,
+                        new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))));
+    }
+
+    private EntityModel<UserImportDto> toModel(UserImportDto userImport) {
+        return EntityModel.of(userImport,
+                linkTo(methodOn(UserImportController.class).getImport(userImport.id())).withSelfRel(),
+                linkTo(methodOn(UserImportController.class).getImportErrors(userImport.id())).withRel("errors"),
+                linkTo(methodOn(UserImportController.class).resumeImport(userImport.id())).withRel("resume"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.userservice.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public class DataSourceRoutingProperties {
+
+    public enum Balancing {
+        ROUND_ROBIN, LEAST_CONNECTIONS
+    }
+
+    private boolean enabled;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    private Balancing balancing = Balancing.ROUND_ROBIN;
+
+    /**
+     * Replicas lagging behind the primary by more than this are skipped until they catch up.
+     */
+    private Duration maxReplicaLag = Duration.ofSeconds(5);
+
+    private Duration lagCheckInterval = Duration.ofSeconds(2);
+
+    /**
+     * How long a client's reads stay on the primary after it performed a write.
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    private String clientIdHeader = "X-Client-Id";
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.userservice.datasource;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.ToLongFunction;
+
+/**
+ * Merges rows from several shards into one stream in ascending key order. Each shard is read in keyset pages
+ * ({@code key > last key, order by key, limit page size}), so no query returns more than one page and only one
+ * page per shard is held in memory. The first page of every shard is fetched in parallel.
+ */
+public class KeysetMerge<T> implements Iterator<T> {
+
+    @FunctionalInterface
+    public interface PageSource<T> {
+        List<T> fetch(long afterKey, int limit);
+    }
+
+    private final ToLongFunction<T> key;
+    private final int pageSize;
+    private final PriorityQueue<Cursor> heads;
+
+    public KeysetMerge(List<PageSource<T>> sources, ToLongFunction<T> key, int pageSize, Executor executor) {
+        this.key = key;
+        this.pageSize = pageSize;
+        this.heads = new PriorityQueue<>(Math.max(sources.size(), 1),
+                (a, b) -> Long.compare(a.headKey(), b.headKey()));
+
+        List<CompletableFuture<Cursor>> firstPages = new ArrayList<>(sources.size());
+        for (PageSource<T> source : sources) {
+            firstPages.add(CompletableFuture.supplyAsync(() -> new Cursor(source, source.fetch(Long.MIN_VALUE, pageSize)),
+                    executor));
+        }
+        for (CompletableFuture<Cursor> firstPage : firstPages) {
+            Cursor cursor = firstPage.join();
+            if (cursor.hasHead()) {
+                heads.add(cursor);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        Cursor cursor = heads.poll();
+        if (cursor == null) {
+            throw new NoSuchElementException();
+        }
+        T row = cursor.advance();
+        if (cursor.hasHead()) {
+            heads.add(cursor);
+        }
+        return row;
+    }
+
+    public List<T> toList() {
+        List<T> rows = new ArrayList<>();
+        forEachRemaining(rows::add);
+        return rows;
+    }
+
+    private final class Cursor {
+        private final PageSource<T> source;
+        private List<T> page;
+        private int index;
+
+        private Cursor(PageSource<T> source, List<T> page) {
+            this.source = source;
+            this.page = page;
+        }
+
+        private boolean hasHead() {
+            return index < page.size();
+        }
+
+        private long headKey() {
+            return key.applyAsLong(page.get(index));
+        }
+
+        private T advance() {
+            T row = page.get(index++);
+            if (index == page.size() && page.size() == pageSize) {
+                page = source.fetch(key.applyAsLong(row), pageSize);
+                index = 0;
+            }
+            return row;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.userservice.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ReadYourWrites {
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+    private static final ThreadLocal<Runnable> ON_WRITE = new ThreadLocal<>();
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final Duration window;
+    private final Clock clock;
+
+    public ReadYourWrites(Duration window, Clock clock) {
+        this.window = window;
+        this.clock = clock;
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED.get());
+    }
+
+    public static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED.remove();
+    }
+
+    /**
+     * Runs {@code onWrite} whenever a read-write transaction on this thread commits, until {@link #clear()}.
+     */
+    public static void onWrite(Runnable onWrite) {
+        ON_WRITE.set(onWrite);
+    }
+
+    public static void clear() {
+        PINNED.remove();
+        ON_WRITE.remove();
+    }
+
+    /**
+     * Called when a read-write transaction takes its connection. The write counts once the transaction commits,
+     * which is before the caller can see its result, so the writer's next read is already pinned.
+     */
+    static void writeStarted() {
+        Runnable onWrite = ON_WRITE.get();
+        if (onWrite == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onWrite.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                onWrite.run();
+            }
+        });
+    }
+
+    public void recordWrite(String clientId) {
+        lastWrites.put(clientId, clock.millis());
+    }
+
+    public boolean wroteRecently(String clientId) {
+        Long lastWrite = lastWrites.get(clientId);
+        return lastWrite != null && clock.millis() - lastWrite < window.toMillis();
+    }
+
+    public void evictExpired() {
+        long cutoff = clock.millis() - window.toMillis();
+        lastWrites.values().removeIf(lastWrite -> lastWrite < cutoff);
+    }
+}
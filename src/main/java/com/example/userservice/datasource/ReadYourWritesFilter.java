@@ -0,0 +1,48 @@
+package com.example.userservice.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Keeps a client's reads on the primary for a short window after it wrote, so it never reads its own
+ * write back from a replica that has not replayed it yet. The write is recorded as its transaction commits,
+ * before the response can reach the client.
+ */
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private static final Set<String> SAFE_METHODS = Set.of(
+            HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+
+    private final ReadYourWrites readYourWrites;
+    private final String clientIdHeader;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String clientId = clientId(request);
+        if (readYourWrites.wroteRecently(clientId)) {
+            ReadYourWrites.pinToPrimary();
+        }
+        if (!SAFE_METHODS.contains(request.getMethod())) {
+            ReadYourWrites.onWrite(() -> readYourWrites.recordWrite(clientId));
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.clear();
+        }
+    }
+
+    private String clientId(HttpServletRequest request) {
+        String header = request.getHeader(clientIdHeader);
+        return header != null && !header.isBlank() ? header : request.getRemoteAddr();
+    }
+}
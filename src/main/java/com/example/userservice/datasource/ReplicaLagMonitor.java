@@ -0,0 +1,41 @@
+package com.example.userservice.datasource;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+@Slf4j
+@RequiredArgsConstructor
+public class ReplicaLagMonitor {
+    // Zero once the replica has replayed everything it received, so an idle primary is not reported as lag.
+    private static final String LAG_QUERY = """
+            SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   END""";
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final ReadYourWrites readYourWrites;
+    private final Duration maxReplicaLag;
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.lag-check-interval:PT2S}")
+    public void checkReplicas() {
+        for (ReplicaPool replica : routingDataSource.getReplicas()) {
+            try {
+                Number lagMillis = new JdbcTemplate(replica.getDataSource()).queryForObject(LAG_QUERY, Number.class);
+                Duration lag = Duration.ofMillis(lagMillis == null ? 0 : lagMillis.longValue());
+                boolean wasAvailable = replica.isAvailable();
+                replica.markLag(lag, maxReplicaLag);
+                if (wasAvailable && !replica.isAvailable()) {
+                    log.warn("Replica {} lags {} behind primary, routing its reads to primary", replica.getName(), lag);
+                }
+            } catch (Exception e) {
+                replica.markUnavailable();
+                log.warn("Replica {} is unreachable, routing its reads to primary", replica.getName(), e);
+            }
+        }
+        readYourWrites.evictExpired();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.userservice.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.Getter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Getter
+public class ReplicaPool {
+    private final String name;
+    private final DataSource dataSource;
+    private volatile Duration lag = Duration.ZERO;
+    private volatile boolean available = true;
+
+    public ReplicaPool(String name, DataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public void markLag(Duration lag, Duration maxLag) {
+        this.lag = lag;
+        this.available = lag.compareTo(maxLag) <= 0;
+    }
+
+    public void markUnavailable() {
+        this.available = false;
+    }
+
+    public int activeConnections() {
+        if (dataSource instanceof HikariDataSource hikari) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            return pool != null ? pool.getActiveConnections() : 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.userservice.datasource;
+
+import com.example.userservice.datasource.DataSourceRoutingProperties.Balancing;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary. Must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the connection is only
+ * fetched once the transaction's read-only flag has been set.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<ReplicaPool> replicas;
+    private final Balancing balancing;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<ReplicaPool> replicas, Balancing balancing) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.balancing = balancing;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        this.replicas.forEach(replica -> targets.put(replica.getName(), replica.getDataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    public List<ReplicaPool> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ReadYourWrites.writeStarted();
+            return PRIMARY;
+        }
+        if (ReadYourWrites.isPinnedToPrimary()) {
+            return PRIMARY;
+        }
+        ReplicaPool replica = selectReplica();
+        return replica != null ? replica.getName() : PRIMARY;
+    }
+
+    private ReplicaPool selectReplica() {
+        List<ReplicaPool> candidates = replicas.stream().filter(ReplicaPool::isAvailable).toList();
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (balancing == Balancing.LEAST_CONNECTIONS) {
+            return candidates.stream()
+                    .min(Comparator.comparingInt(ReplicaPool::activeConnections))
+                    .orElseThrow();
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    public void close() throws IOException {
+        if (primary instanceof Closeable closeable) {
+            closeable.close();
+        }
+        for (ReplicaPool replica : replicas) {
+            if (replica.getDataSource() instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
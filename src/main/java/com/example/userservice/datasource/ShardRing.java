@@ -0,0 +1,36 @@
+package com.example.userservice.datasource;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring over user ids. Each shard owns {@code virtualNodes} points on the ring and an id belongs
+ * to the first point at or after its hash, so adding a shard only moves the ids that land on the new points.
+ */
+public class ShardRing {
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    public ShardRing(int shards, int virtualNodes) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(mix(((long) shard << 32) | node), shard);
+            }
+        }
+    }
+
+    public int shardOf(long id) {
+        Map.Entry<Long, Integer> point = ring.ceilingEntry(mix(id));
+        return (point != null ? point : ring.firstEntry()).getValue();
+    }
+
+    // SplitMix64 finalizer: sequential ids and node numbers spread evenly over the ring
+    static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.userservice.datasource;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Places users on shards and runs work against one shard or all of them. Work always runs in a transaction of its
+ * own, because a transaction that already holds a connection stays on that connection's shard.
+ */
+public class ShardRouter {
+    private final ShardRing ring;
+    private final SnowflakeIdGenerator ids;
+    private final int shardCount;
+    private final int pageSize;
+    private final ExecutorService executor;
+    private final TransactionTemplate newTransaction;
+
+    public ShardRouter(ShardRing ring, SnowflakeIdGenerator ids, int shardCount, int pageSize,
+                       ExecutorService executor, TransactionTemplate newTransaction) {
+        this.ring = ring;
+        this.ids = ids;
+        this.shardCount = shardCount;
+        this.pageSize = pageSize;
+        this.executor = executor;
+        this.newTransaction = newTransaction;
+    }
+
+    public long nextId() {
+        return ids.nextId();
+    }
+
+    public int shardOf(long id) {
+        return ring.shardOf(id);
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public <T> T onShardOf(long id, Supplier<T> work) {
+        return onShard(shardOf(id), work);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        return Shards.call(shard, () -> newTransaction.execute(status -> work.get()));
+    }
+
+    /**
+     * Runs the work on every shard in parallel and returns the results in shard order.
+     */
+    public <T> List<T> onEachShard(IntFunction<T> work) {
+        List<CompletableFuture<T>> results = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            results.add(CompletableFuture.supplyAsync(() -> onShard(target, () -> work.apply(target)), executor));
+        }
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Reads every shard in keyset pages and merges the rows in ascending key order.
+     */
+    public <T> KeysetMerge<T> merge(KeysetMerge.PageSource<T> perShard, ToLongFunction<T> key) {
+        List<KeysetMerge.PageSource<T>> sources = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            sources.add((afterKey, limit) -> onShard(target, () -> perShard.fetch(afterKey, limit)));
+        }
+        return new KeysetMerge<>(sources, key, pageSize, executor);
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+}
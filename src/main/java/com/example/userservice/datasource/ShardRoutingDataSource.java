@@ -0,0 +1,48 @@
+package com.example.userservice.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends each connection to the shard bound through {@link Shards}. Must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so a transaction only fetches its
+ * connection once the shard has been bound.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < this.shards.size(); i++) {
+            targets.put(i, this.shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(this.shards.get(Shards.HOME));
+        setLenientFallback(false);
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Shards.current();
+    }
+
+    public void close() throws IOException {
+        for (DataSource shard : shards) {
+            if (shard instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
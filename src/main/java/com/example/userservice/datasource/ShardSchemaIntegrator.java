@@ -0,0 +1,37 @@
+package com.example.userservice.datasource;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+/**
+ * Applies the configured schema action ({@code spring.jpa.hibernate.ddl-auto}) to every shard other than the
+ * home shard, which Hibernate handles itself.
+ */
+public class ShardSchemaIntegrator implements Integrator {
+    private final int shardCount;
+
+    public ShardSchemaIntegrator(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                         SessionFactoryImplementor sessionFactory) {
+        for (int shard = Shards.HOME + 1; shard < shardCount; shard++) {
+            Shards.call(shard, () -> {
+                SchemaManagementToolCoordinator.process(metadata, sessionFactory.getServiceRegistry(),
+                        sessionFactory.getProperties(), action -> {
+                        });
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.userservice.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads users over several databases by a consistent hash of their id. Shard 0 is the home shard configured
+ * through {@code spring.datasource}, {@link #shards} lists the others. The home shard also holds the email
+ * directory and every table that is not keyed by user. Archival and the statistics' reconcile run on every shard;
+ * the change feed, bulk delete and CSV import are refused.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.datasource.sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    /**
+     * Shards 1 to n; shard 0 is the home shard.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Identifies this instance in generated ids, must be unique among running instances (0-1023). Required when
+     * sharding is enabled: there is no default, since instances sharing one would generate the same ids.
+     */
+    private Integer workerId;
+
+    /**
+     * Points per shard on the hash ring; more points spread users more evenly.
+     */
+    private int virtualNodes = 128;
+
+    /**
+     * Rows fetched per shard and round trip when listing users across shards.
+     */
+    private int pageSize = 500;
+
+    /**
+     * An email reservation whose user never committed is released after this long.
+     */
+    private Duration reservationTimeout = Duration.ofMinutes(1);
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.userservice.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's next connection is taken from. Unbound threads use the home shard.
+ */
+public final class Shards {
+    public static final int HOME = 0;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private Shards() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : HOME;
+    }
+
+    public static void bind(int shard) {
+        CURRENT.set(shard);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs the work against the given shard and restores the previous binding afterwards.
+     */
+    public static <T> T call(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.userservice.datasource;
+
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Time-ordered 63-bit ids made of 41 bits of milliseconds since 2024-01-01, a 10-bit worker id and a 12-bit
+ * per-millisecond sequence, so every instance can generate unique ids without a shared sequence.
+ */
+public class SnowflakeIdGenerator {
+    static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int WORKER_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_WORKER = (1L << WORKER_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_BACKWARDS_MILLIS = 1000;
+
+    private final long workerId;
+    private final Clock clock;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public SnowflakeIdGenerator(long workerId, Clock clock) {
+        if (workerId < 0 || workerId > MAX_WORKER) {
+            throw new IllegalArgumentException("Worker id must be between 0 and " + MAX_WORKER);
+        }
+        this.workerId = workerId;
+        this.clock = clock;
+    }
+
+    public synchronized long nextId() {
+        long now = clock.millis();
+        if (now < lastMillis) {
+            // the wall clock stepped back: keep issuing from the last timestamp rather than risk a duplicate
+            if (lastMillis - now > MAX_BACKWARDS_MILLIS) {
+                throw new IllegalStateException("Clock moved back by " + (lastMillis - now) + " ms");
+            }
+            now = lastMillis;
+        }
+        if (now == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                now = awaitNextMillis(lastMillis);
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = now;
+        return ((now - EPOCH) << (WORKER_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+
+    private long awaitNextMillis(long after) {
+        long now = clock.millis();
+        while (now <= after) {
+            Thread.onSpinWait();
+            now = clock.millis();
+        }
+        return now;
+    }
+}
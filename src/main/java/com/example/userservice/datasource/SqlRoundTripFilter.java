@@ -0,0 +1,45 @@
+package com.example.userservice.datasource;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements and transactions each request ran on its own thread, tagged like
+ * {@code http.server.requests} by method and URI pattern. Work handed to other threads is not included.
+ */
+@RequiredArgsConstructor
+public class SqlRoundTripFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS = "http.server.requests.sql.statements";
+    public static final String TRANSACTIONS = "http.server.requests.sql.transactions";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlRoundTrips.Counts counts = SqlRoundTrips.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlRoundTrips.stop();
+            Tags tags = Tags.of("method", request.getMethod(), "uri", uri(request));
+            DistributionSummary.builder(STATEMENTS).tags(tags).register(meterRegistry).record(counts.statements());
+            DistributionSummary.builder(TRANSACTIONS).tags(tags).register(meterRegistry).record(counts.transactions());
+        }
+    }
+
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
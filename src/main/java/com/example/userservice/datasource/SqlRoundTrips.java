@@ -0,0 +1,63 @@
+package com.example.userservice.datasource;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * Counts the SQL statements and transactions the current thread sends through a {@link #counting} data source
+ * between {@link #start} and {@link #stop}. A batch counts as one statement, as it is one round trip; a
+ * transaction is counted when it commits or rolls back.
+ */
+public final class SqlRoundTrips {
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    private SqlRoundTrips() {
+    }
+
+    public static Counts start() {
+        Counts counts = new Counts();
+        CURRENT.set(counts);
+        return counts;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    public static DataSource counting(DataSource dataSource) {
+        return ProxyDataSourceBuilder.create("users", dataSource)
+                .afterQuery((execution, queries) -> {
+                    Counts counts = CURRENT.get();
+                    if (counts != null) {
+                        counts.statements++;
+                    }
+                })
+                .afterMethod(context -> {
+                    Counts counts = CURRENT.get();
+                    if (counts != null && context.getTarget() instanceof Connection && endsTransaction(
+                            context.getMethod().getName())) {
+                        counts.transactions++;
+                    }
+                })
+                .build();
+    }
+
+    private static boolean endsTransaction(String connectionMethod) {
+        return "commit".equals(connectionMethod) || "rollback".equals(connectionMethod);
+    }
+
+    public static final class Counts {
+        private int statements;
+        private int transactions;
+
+        public int statements() {
+            return statements;
+        }
+
+        public int transactions() {
+            return transactions;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.userservice.dto;
+
+public record AgeCount(Integer age, Long count) {
+}
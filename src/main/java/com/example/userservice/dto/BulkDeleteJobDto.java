@@ -0,0 +1,21 @@
+package com.example.userservice.dto;
+
+import com.example.userservice.entity.BulkDeleteJob;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Progress of a bulk delete job")
+public record BulkDeleteJobDto(Long id, BulkDeleteJob.Status status,
+                               @Schema(description = "Number of ids requested, null for a filter")
+                               Integer requested,
+                               long deleted, long lastId, LocalDateTime createdAt, LocalDateTime updatedAt,
+                               LocalDateTime finishedAt, String error) {
+
+    public static BulkDeleteJobDto of(BulkDeleteJob job) {
+        return new BulkDeleteJobDto(job.getId(), job.getStatus(),
+                job.isByIds() ? job.getUserIds().length : null,
+                job.getDeletedCount(), job.getLastId(), job.getCreatedAt(), job.getUpdatedAt(),
+                job.getFinishedAt(), job.getError());
+    }
+}
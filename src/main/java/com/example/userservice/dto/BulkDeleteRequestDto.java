@@ -0,0 +1,52 @@
+package com.example.userservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Selects the users to delete, either by id or by a filter of one or more criteria. An empty filter is rejected
+ * so a request cannot delete every user by accident.
+ */
+@Data
+@Schema(description = "Users to delete, either an id list or a filter")
+public class BulkDeleteRequestDto {
+    public static final int MAX_IDS = 100_000;
+
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " ids can be deleted per request")
+    @Schema(description = "Ids of the users to delete", example = "[1, 2, 3]")
+    private List<@NotNull(message = "Ids must not be null") Long> ids;
+
+    @Schema(description = "Delete users created before this time", example = "2024-01-01T00:00:00")
+    private LocalDateTime createdBefore;
+
+    @Pattern(regexp = "[A-Za-z0-9.-]+", message = "Email domain must be a plain domain name")
+    @Schema(description = "Delete users whose email is at this domain", example = "example.com")
+    private String emailDomain;
+
+    @Min(value = 1, message = "Min age must be at least 1")
+    @Max(value = 120, message = "Min age must be less than 120")
+    @Schema(description = "Delete users at least this old", example = "18")
+    private Integer minAge;
+
+    @Min(value = 1, message = "Max age must be at least 1")
+    @Max(value = 120, message = "Max age must be less than 120")
+    @Schema(description = "Delete users at most this old", example = "65")
+    private Integer maxAge;
+
+    @JsonIgnore
+    public boolean isByIds() {
+        return ids != null;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Give either a non-empty id list or at least one filter criterion, not both")
+    public boolean isSelectionValid() {
+        boolean filtered = createdBefore != null || emailDomain != null || minAge != null || maxAge != null;
+        return isByIds() ? !ids.isEmpty() && !filtered : filtered;
+    }
+}
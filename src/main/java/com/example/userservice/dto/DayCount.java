@@ -0,0 +1,6 @@
+package com.example.userservice.dto;
+
+import java.time.LocalDate;
+
+public record DayCount(LocalDate day, Long count) {
+}
@@ -0,0 +1,61 @@
+package com.example.userservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.*;
+import lombok.Getter;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * JSON Merge Patch body for a user. Absent fields are left unchanged; an explicit {@code null} would remove the
+ * field, which is rejected because every user field is mandatory.
+ */
+@Getter
+@Schema(description = "JSON Merge Patch document for a user, only the supplied fields are changed")
+public class PatchUserDto {
+    @Pattern(regexp = ".*\\S.*", message = "Name must not be blank")
+    @Size(min = 2, max = 50, message = "Name must be between 2 and 50 characters")
+    @Schema(description = "User's full name", example = "John Doe", minLength = 2, maxLength = 50)
+    private String name;
+
+    @Email(message = "Email should be valid")
+    @Pattern(regexp = ".*\\S.*", message = "Email must not be blank")
+    @Schema(description = "User's email address", example = "john.doe@example.com",
+            pattern = "^[A-Za-z0-9+_.-]+@(.+)$")
+    private String email;
+
+    @Min(value = 1, message = "Age must be at least 1")
+    @Max(value = 120, message = "Age must be less than 120")
+    @Schema(description = "User's age in years", example = "30", minimum = "1", maximum = "120")
+    private Integer age;
+
+    @JsonIgnore
+    private final Set<String> removedFields = new LinkedHashSet<>();
+
+    public void setName(String name) {
+        this.name = track("name", name);
+    }
+
+    public void setEmail(String email) {
+        this.email = track("email", email);
+    }
+
+    public void setAge(Integer age) {
+        this.age = track("age", age);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Name, email and age are mandatory and cannot be removed")
+    public boolean isNoFieldRemoved() {
+        return removedFields.isEmpty();
+    }
+
+    private <T> T track(String field, T value) {
+        if (value == null) {
+            removedFields.add(field);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "A single entry of the user change feed")
+public record UserChangeDto(
+        @Schema(description = "Position in the change feed, pass it back as 'since' to resume", example = "42")
+        long seq,
+        Type type,
+        @Schema(description = "ID of the changed user", example = "1")
+        Long id,
+        @Schema(description = "Current state of the user, absent for deletes")
+        UserDto user) {
+
+    public enum Type {
+        UPSERT, DELETE
+    }
+}
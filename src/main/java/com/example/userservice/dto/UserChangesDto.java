@@ -0,0 +1,9 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "A batch of user changes and the cursor to resume from")
+public record UserChangesDto(List<UserChangeDto> changes, long cursor) {
+}
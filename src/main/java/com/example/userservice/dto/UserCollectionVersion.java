@@ -0,0 +1,40 @@
+package com.example.userservice.dto;
+
+import java.util.Collection;
+
+/**
+ * Changes whenever a user is created, updated or deleted: deletes lower the count, updates raise the
+ * version sum and new users change the id sum. Computable both in SQL and from an already loaded list.
+ * Ids are summed modulo {@link #ID_MODULUS} so the sum cannot overflow with large generated ids.
+ */
+public record UserCollectionVersion(Long count, Long idSum, Long versionSum) {
+    public static final long ID_MODULUS = 1_000_000_007L;
+
+    public static UserCollectionVersion of(Collection<UserDto> users) {
+        long idSum = 0;
+        long versionSum = 0;
+        for (UserDto user : users) {
+            idSum = (idSum + user.getId() % ID_MODULUS) % ID_MODULUS;
+            versionSum += user.getVersion() != null ? user.getVersion() : 0;
+        }
+        return new UserCollectionVersion((long) users.size(), idSum, versionSum);
+    }
+
+    public static UserCollectionVersion ofViews(Collection<UserView> users) {
+        long idSum = 0;
+        long versionSum = 0;
+        for (UserView user : users) {
+            idSum = (idSum + user.id() % ID_MODULUS) % ID_MODULUS;
+            versionSum += user.version() != null ? user.version() : 0;
+        }
+        return new UserCollectionVersion((long) users.size(), idSum, versionSum);
+    }
+
+    /**
+     * Combines the versions of two disjoint sets of users, such as two shards.
+     */
+    public UserCollectionVersion plus(UserCollectionVersion other) {
+        return new UserCollectionVersion(count + other.count, (idSum + other.idSum) % ID_MODULUS,
+                versionSum + other.versionSum);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.userservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.*;
 import lombok.Data;
@@ -53,4 +54,7 @@ public class UserDto extends RepresentationModel<UserDto> {
             accessMode = Schema.AccessMode.READ_ONLY
     )
     private LocalDateTime createdAt;
+
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.example.userservice.dto;
+
+import com.example.userservice.entity.UserImport;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Outcome of a CSV user import")
+public record UserImportDto(Long id, UserImport.Status status,
+                            @Schema(description = "Data rows read, excluding the header and blank lines")
+                            long rowsRead,
+                            long imported,
+                            @Schema(description = "Rows listed in the error report")
+                            long rejected,
+                            @Schema(description = "CREATED events published for the imported users")
+                            long published,
+                            LocalDateTime createdAt, LocalDateTime finishedAt, String error) {
+
+    public static UserImportDto of(UserImport userImport) {
+        return new UserImportDto(userImport.getId(), userImport.getStatus(), userImport.getRowsRead(),
+                userImport.getImported(), userImport.getRejected(), userImport.getPublished(),
+                userImport.getCreatedAt(), userImport.getFinishedAt(), userImport.getError());
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@Schema(description = "Aggregate user statistics, maintained incrementally")
+public class UserStatsDto {
+    @Schema(description = "Total number of users", example = "1250")
+    private long total;
+
+    @Schema(description = "Number of users per age, for every age from 1 to 120")
+    private Map<Integer, Long> ageHistogram;
+
+    @Schema(description = "Number of users created per day, oldest day first")
+    private Map<LocalDate, Long> createdPerDay;
+
+    @Schema(description = "When the counters were last reconciled against the database")
+    private Instant reconciledAt;
+}
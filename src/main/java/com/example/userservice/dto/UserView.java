@@ -0,0 +1,7 @@
+package com.example.userservice.dto;
+
+import java.time.LocalDateTime;
+
+public record UserView(Long id, String name, String email, Integer age, LocalDateTime createdAt,
+                       Long version) {
+}
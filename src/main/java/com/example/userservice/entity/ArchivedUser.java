@@ -0,0 +1,45 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user moved out of {@code users} by {@link com.example.userservice.service.UserArchiver} after a period without
+ * writes. Keeps the user's id, version and change feed position so it can be moved back unchanged on its next
+ * write.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "users_archive")
+public class ArchivedUser {
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false, unique = true)
+    private String email;
+
+    @Column(nullable = false)
+    private Integer age;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "change_seq")
+    private Long changeSeq;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,76 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * A bulk delete of either an explicit id list or every user matching a filter. Users are deleted in ascending
+ * id order and {@link #lastId} records how far the job got, so an interrupted job resumes after the last
+ * committed chunk. {@link #leaseUntil} keeps two instances from running the same job at once.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "bulk_delete_jobs")
+public class BulkDeleteJob {
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    /**
+     * Sorted, distinct ids to delete, or {@code null} when the job deletes by filter.
+     */
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "user_ids", columnDefinition = "bigint[]")
+    private Long[] userIds;
+
+    @Column(name = "created_before")
+    private LocalDateTime createdBefore;
+
+    @Column(name = "email_domain")
+    private String emailDomain;
+
+    @Column(name = "min_age")
+    private Integer minAge;
+
+    @Column(name = "max_age")
+    private Integer maxAge;
+
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+
+    @Column(name = "deleted_count", nullable = false)
+    private long deletedCount;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(length = 1000)
+    private String error;
+
+    public boolean isByIds() {
+        return userIds != null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response recorded for an {@code Idempotency-Key}, replayed for retries of the same request until it expires.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord implements Persistable<String> {
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(nullable = false)
+    private int status;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    private String location;
+
+    private String etag;
+
+    @Column(nullable = false)
+    private byte[] body;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Override
+    public String getId() {
+        return key;
+    }
+
+    // records are written once, so save() always inserts and a concurrent duplicate fails instead of overwriting
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
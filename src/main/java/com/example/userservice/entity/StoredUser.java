@@ -0,0 +1,41 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Subselect;
+import org.hibernate.annotations.Synchronize;
+
+import java.time.LocalDateTime;
+
+/**
+ * Every user, whether in {@code users} or moved to {@code users_archive} by
+ * {@link com.example.userservice.service.UserArchiver}. Read-only; queries that list, count or version all users
+ * go through it so archiving a user changes none of their results. The archiver moves a user in one statement, so
+ * a query never sees it in both tables.
+ */
+@Getter
+@Entity
+@Immutable
+@NoArgsConstructor
+@Subselect("select id, name, email, age, created_at, version from users " +
+        "union all select id, name, email, age, created_at, version from users_archive")
+@Synchronize({"users", "users_archive"})
+public class StoredUser {
+    @Id
+    private Long id;
+
+    private String name;
+
+    private String email;
+
+    private Integer age;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    private Long version;
+}
@@ -3,21 +3,29 @@ package com.example.userservice.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Data
 @Entity
 @NoArgsConstructor
-@Table(name = "users")
+@DynamicUpdate
+@Table(name = "users", indexes = @Index(name = "idx_users_updated_at", columnList = "updated_at"))
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @UserId
+    @Column(columnDefinition = "bigint generated by default as identity")
     private Long id;
 
     @Column(nullable = false)
     private String name;
 
+    /**
+     * Stored lower-cased, see {@link #normalizeEmail}. {@code uk_users_email_lower} also rejects case variants of
+     * rows written before emails were normalized.
+     */
     @Column(nullable = false, unique = true)
     private String email;
 
@@ -27,10 +35,31 @@ public class User {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Position of the user's latest write in the change feed, drawn from {@code user_change_seq}.
+     */
+    @Column(name = "change_seq", unique = true)
+    private Long changeSeq;
+
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     public User(String name, String email, Integer age) {
         this.name = name;
-        this.email = email;
+        this.email = normalizeEmail(email);
         this.age = age;
         this.createdAt = LocalDateTime.now();
     }
+
+    public void setEmail(String email) {
+        this.email = normalizeEmail(email);
+    }
+
+    public static String normalizeEmail(String email) {
+        return email != null ? email.toLowerCase(Locale.ROOT) : null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Directory entry mapping an email to the user that owns it. Lives on the home shard and enforces email
+ * uniqueness across shards when users are sharded.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "user_emails")
+public class UserEmail {
+    @Id
+    private String email;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "reserved_at", nullable = false)
+    private LocalDateTime reservedAt;
+}
@@ -0,0 +1,35 @@
+package com.example.userservice.entity;
+
+import org.hibernate.boot.ResourceStreamLocator;
+import org.hibernate.boot.model.relational.SimpleAuxiliaryDatabaseObject;
+import org.hibernate.boot.spi.AdditionalMappingContributions;
+import org.hibernate.boot.spi.AdditionalMappingContributor;
+import org.hibernate.boot.spi.InFlightMetadataCollector;
+import org.hibernate.boot.spi.MetadataBuildingContext;
+import org.hibernate.dialect.PostgreSQLDialect;
+
+import java.util.Set;
+
+/**
+ * Adds the {@code lower(email)} indexes behind case-insensitive email lookups to the generated schema. They are
+ * created only if missing and never dropped, as Hibernate's schema update drops and recreates auxiliary objects
+ * on every start. Creating {@code uk_users_email_lower} fails, and is logged, while {@code users} still holds
+ * emails differing only in case.
+ */
+public class UserEmailIndexContributor implements AdditionalMappingContributor {
+    private static final String[] NO_DROP = new String[0];
+
+    @Override
+    public void contribute(AdditionalMappingContributions contributions, InFlightMetadataCollector metadata,
+                           ResourceStreamLocator resourceStreamLocator, MetadataBuildingContext buildingContext) {
+        contributions.contributeAuxiliaryDatabaseObject(index(metadata,
+                "create unique index if not exists uk_users_email_lower on users (lower(email))"));
+        contributions.contributeAuxiliaryDatabaseObject(index(metadata,
+                "create index if not exists idx_users_archive_email_lower on users_archive (lower(email))"));
+    }
+
+    private static SimpleAuxiliaryDatabaseObject index(InFlightMetadataCollector metadata, String create) {
+        return new SimpleAuxiliaryDatabaseObject(metadata.getDatabase().getDefaultNamespace(),
+                new String[]{create}, NO_DROP, Set.of(PostgreSQLDialect.class.getName()));
+    }
+}
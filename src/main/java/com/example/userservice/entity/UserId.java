@@ -0,0 +1,18 @@
+package com.example.userservice.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * A user id: an identity column, or assigned by the application when users are sharded.
+ */
+@IdGeneratorType(UserIdGenerator.class)
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface UserId {
+}
@@ -0,0 +1,42 @@
+package com.example.userservice.entity;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.id.IdentifierGenerationException;
+import org.hibernate.id.IdentityGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+
+/**
+ * Leaves user ids to the identity column unless {@value #ASSIGNED} is set, in which case every user must be given
+ * its id before it is saved, so the id can pick the user's shard. The column stays an identity column either way.
+ */
+public class UserIdGenerator extends IdentityGenerator implements BeforeExecutionGenerator {
+    public static final String ASSIGNED = "app.user-ids.assigned";
+
+    private final boolean assigned;
+
+    public UserIdGenerator(UserId config, Member member, CustomIdGeneratorCreationContext context) {
+        this.assigned = context.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSetting(ASSIGNED, StandardConverters.BOOLEAN, false);
+    }
+
+    @Override
+    public boolean generatedOnExecution() {
+        return !assigned;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        Long id = ((User) owner).getId();
+        if (id == null) {
+            throw new IdentifierGenerationException("User ids are assigned by the application when sharded");
+        }
+        return id;
+    }
+}
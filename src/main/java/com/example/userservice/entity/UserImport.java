@@ -0,0 +1,63 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A CSV import of users. Its rows are staged in {@code user_import_rows}, where the rejected ones stay as the
+ * import's error report until the import expires. {@link #leaseUntil} keeps two instances from working on the
+ * same import, and a running import whose lease expired is picked up again.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "user_imports")
+public class UserImport {
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.RUNNING;
+
+    @Column(name = "rows_read", nullable = false)
+    private long rowsRead;
+
+    @Column(nullable = false)
+    private long imported;
+
+    @Column(nullable = false)
+    private long rejected;
+
+    /**
+     * CREATED events acknowledged by Kafka, which lags {@link #imported} only if publishing failed.
+     */
+    @Column(nullable = false)
+    private long published;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * When the staged rows were merged into {@code users}, set in the merge's transaction along with the counts.
+     */
+    @Column(name = "merged_at")
+    private LocalDateTime mergedAt;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(length = 1000)
+    private String error;
+}
@@ -0,0 +1,37 @@
+package com.example.userservice.entity;
+
+import org.hibernate.boot.ResourceStreamLocator;
+import org.hibernate.boot.model.relational.SimpleAuxiliaryDatabaseObject;
+import org.hibernate.boot.spi.AdditionalMappingContributions;
+import org.hibernate.boot.spi.AdditionalMappingContributor;
+import org.hibernate.boot.spi.InFlightMetadataCollector;
+import org.hibernate.boot.spi.MetadataBuildingContext;
+import org.hibernate.dialect.PostgreSQLDialect;
+
+import java.util.Set;
+
+/**
+ * Adds the staging table CSV imports COPY their rows into. It is unlogged, as staged rows are only needed until
+ * their import is merged and its error report expires, and is kept across schema updates like
+ * {@link UserEmailIndexContributor}'s indexes.
+ */
+public class UserImportStagingContributor implements AdditionalMappingContributor {
+    private static final String CREATE = """
+            create unlogged table if not exists user_import_rows (
+                import_id bigint not null,
+                line bigint not null,
+                name text,
+                email text,
+                age integer,
+                error text,
+                primary key (import_id, line)
+            )""";
+
+    @Override
+    public void contribute(AdditionalMappingContributions contributions, InFlightMetadataCollector metadata,
+                           ResourceStreamLocator resourceStreamLocator, MetadataBuildingContext buildingContext) {
+        contributions.contributeAuxiliaryDatabaseObject(new SimpleAuxiliaryDatabaseObject(
+                metadata.getDatabase().getDefaultNamespace(), new String[]{CREATE}, new String[0],
+                Set.of(PostgreSQLDialect.class.getName())));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records a deleted user in the change feed. Shares {@code user_change_seq} with {@link User#getChangeSeq()}
+ * so upserts and deletes form one ordered sequence.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "user_tombstones", indexes = @Index(name = "idx_user_tombstones_deleted_at", columnList = "deleted_at"))
+public class UserTombstone {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_change_seq")
+    @SequenceGenerator(name = "user_change_seq", sequenceName = "user_change_seq", allocationSize = 1)
+    @Column(name = "change_seq")
+    private Long changeSeq;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public UserTombstone(Long userId, LocalDateTime deletedAt) {
+        this.userId = userId;
+        this.deletedAt = deletedAt;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class BulkDeleteJobNotFoundException extends RuntimeException {
+    public BulkDeleteJobNotFoundException(Long id) {
+        super("Bulk delete job not found with id: " + id);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+public class BulkDeleteNotSupportedException extends RuntimeException {
+    public BulkDeleteNotSupportedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)
+public class ChangeCursorExpiredException extends RuntimeException {
+    public ChangeCursorExpiredException(long cursor) {
+        super("Change cursor " + cursor + " is older than the retained change history, resync from /api/users");
+    }
+}
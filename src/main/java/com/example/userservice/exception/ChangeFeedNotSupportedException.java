@@ -0,0 +1,11 @@
+package com.example.userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+public class ChangeFeedNotSupportedException extends RuntimeException {
+    public ChangeFeedNotSupportedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.userservice.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public ServiceUnavailableException(Duration retryAfter, Throwable cause) {
+        super("User service is unavailable, retry after " + retryAfter.toSeconds() + " seconds", cause);
+        this.retryAfter = retryAfter;
+    }
+}
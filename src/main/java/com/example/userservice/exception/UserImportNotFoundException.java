@@ -0,0 +1,11 @@
+package com.example.userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class UserImportNotFoundException extends RuntimeException {
+    public UserImportNotFoundException(Long id) {
+        super("User import not found with id: " + id);
+    }
+}
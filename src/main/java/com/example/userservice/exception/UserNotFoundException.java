@@ -8,4 +8,8 @@ public class UserNotFoundException extends RuntimeException {
     public UserNotFoundException(Long id) {
         super("User not found with id: " + id);
     }
+
+    public UserNotFoundException(String email) {
+        super("User not found with email: " + email);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+package com.example.userservice.filter;
+
+import com.example.userservice.entity.IdempotencyRecord;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Replays the recorded response for a POST or PUT carrying an {@code Idempotency-Key} that was already
+ * processed, without running the request again. A duplicate arriving while the first is still running
+ * waits for it. Reusing a key for a different request is rejected with 422. Only responses written by the handler
+ * are recorded: errors sent with {@code sendError}, such as those of {@code @ResponseStatus} exceptions, get their
+ * body from the error dispatch after this filter has returned, so a retry runs the request again instead.
+ * <p>
+ * The body is buffered to hash it, so bodies over {@code maxBodySize} are rejected with 413 and uploads streamed
+ * to their handler, such as CSV imports, are passed through without idempotency.
+ */
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+    private static final Set<String> METHODS = Set.of(HttpMethod.POST.name(), HttpMethod.PUT.name());
+    private static final Set<String> STREAMED_PATHS = Set.of("/api/users/import");
+
+    private final IdempotencyStore store;
+    private final Duration lockTimeout;
+    private final int maxBodySize;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !METHODS.contains(request.getMethod()) || request.getHeader(HEADER) == null
+                || STREAMED_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        if (request.getContentLengthLong() > maxBodySize) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), tooLarge());
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(maxBodySize + 1);
+        if (body.length > maxBodySize) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), tooLarge());
+            return;
+        }
+        String requestHash = hash(request, body);
+
+        if (!claim(key)) {
+            response.sendError(HttpStatus.CONFLICT.value(), "A request with this " + HEADER + " is still in progress");
+            return;
+        }
+        try {
+            Optional<IdempotencyRecord> recorded = store.find(key);
+            if (recorded.isPresent()) {
+                if (!recorded.get().getRequestHash().equals(requestHash)) {
+                    response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                            HEADER + " was already used for a different request");
+                    return;
+                }
+                replay(recorded.get(), response);
+                return;
+            }
+
+            RecordingResponse recording = new RecordingResponse(response);
+            chain.doFilter(new CachedBodyRequest(request, body), recording);
+            if (!recording.errorSent && recording.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                store.save(record(key, requestHash, recording));
+            }
+            recording.copyBodyToResponse();
+        } finally {
+            store.release(key);
+        }
+    }
+
+    private String tooLarge() {
+        return "Requests with an " + HEADER + " must not exceed " + maxBodySize + " bytes";
+    }
+
+    // waits for a duplicate in flight to finish, then claims the key to replay what it recorded
+    private boolean claim(String key) {
+        long deadline = System.nanoTime() + lockTimeout.toNanos();
+        Optional<CompletableFuture<Void>> running;
+        while ((running = store.claim(key)).isPresent()) {
+            try {
+                running.get().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return true;
+    }
+
+    private static void replay(IdempotencyRecord record, HttpServletResponse response) throws IOException {
+        response.setStatus(record.getStatus());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (record.getContentType() != null) {
+            response.setContentType(record.getContentType());
+        }
+        if (record.getLocation() != null) {
+            response.setHeader(HttpHeaders.LOCATION, record.getLocation());
+        }
+        if (record.getEtag() != null) {
+            response.setHeader(HttpHeaders.ETAG, record.getEtag());
+        }
+        response.setContentLength(record.getBody().length);
+        response.getOutputStream().write(record.getBody());
+    }
+
+    private static IdempotencyRecord record(String key, String requestHash, ContentCachingResponseWrapper response) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setKey(key);
+        record.setRequestHash(requestHash);
+        record.setStatus(response.getStatus());
+        record.setContentType(response.getContentType());
+        record.setLocation(response.getHeader(HttpHeaders.LOCATION));
+        record.setEtag(response.getHeader(HttpHeaders.ETAG));
+        record.setBody(response.getContentAsByteArray());
+        return record;
+    }
+
+    private static String hash(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ' ');
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            if (request.getQueryString() != null) {
+                digest.update((byte) '?');
+                digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class RecordingResponse extends ContentCachingResponseWrapper {
+        private boolean errorSent;
+
+        private RecordingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            errorSent = true;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            errorSent = true;
+            super.sendError(sc, msg);
+        }
+    }
+
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
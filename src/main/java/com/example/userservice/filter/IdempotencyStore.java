@@ -0,0 +1,99 @@
+package com.example.userservice.filter;
+
+import com.example.userservice.cache.LruCache;
+import com.example.userservice.entity.IdempotencyRecord;
+import com.example.userservice.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recorded idempotent responses: a bounded in-memory LRU in front of the {@code idempotency_keys} table, which
+ * keeps them across restarts and instances for {@code ttl}. A key being processed has an in-flight entry that
+ * duplicates wait on; requests with other keys never wait for it.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+    private final IdempotencyRecordRepository repository;
+    private final LruCache<String, IdempotencyRecord> recent;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final Clock clock;
+
+    @Autowired
+    public IdempotencyStore(IdempotencyRecordRepository repository,
+                            @Value("${app.idempotency.max-size:10000}") int maxSize,
+                            @Value("${app.idempotency.ttl:PT24H}") Duration ttl) {
+        this(repository, maxSize, ttl, Clock.systemDefaultZone());
+    }
+
+    IdempotencyStore(IdempotencyRecordRepository repository, int maxSize, Duration ttl, Clock clock) {
+        this.repository = repository;
+        this.recent = new LruCache<>(maxSize);
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Claims {@code key} for a request about to run. Returns empty if the caller now holds it and must
+     * {@link #release} it, or the completion of the request that holds it already.
+     */
+    public Optional<CompletableFuture<Void>> claim(String key) {
+        return Optional.ofNullable(inFlight.putIfAbsent(key, new CompletableFuture<>()));
+    }
+
+    public void release(String key) {
+        CompletableFuture<Void> running = inFlight.remove(key);
+        if (running != null) {
+            running.complete(null);
+        }
+    }
+
+    public Optional<IdempotencyRecord> find(String key) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        IdempotencyRecord cached = recent.get(key);
+        if (cached != null) {
+            if (cached.getExpiresAt().isAfter(now)) {
+                return Optional.of(cached);
+            }
+            recent.remove(key);
+        }
+        Optional<IdempotencyRecord> stored = repository.findById(key)
+                .filter(record -> record.getExpiresAt().isAfter(now));
+        stored.ifPresent(record -> recent.put(key, record));
+        return stored;
+    }
+
+    public void save(IdempotencyRecord record) {
+        record.setExpiresAt(LocalDateTime.now(clock).plus(ttl));
+        recent.put(record.getKey(), record);
+        try {
+            repository.save(record);
+        } catch (DataIntegrityViolationException e) {
+            // another instance recorded the same key first; its response is the one replayed from now on
+            recent.remove(record.getKey());
+            log.debug("Idempotency key {} was recorded concurrently", record.getKey());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.idempotency.purge-interval:PT10M}",
+            fixedDelayString = "${app.idempotency.purge-interval:PT10M}")
+    public void purgeExpired() {
+        int purged = repository.deleteExpired(LocalDateTime.now(clock));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.userservice.grpc;
+
+import io.grpc.BindableService;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.protobuf.services.HealthStatusManager;
+import io.grpc.protobuf.services.ProtoReflectionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the gRPC services on their own port next to the servlet container.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class GrpcServer implements SmartLifecycle {
+    private final int port;
+    private final List<BindableService> services;
+    private final HealthStatusManager health = new HealthStatusManager();
+    private volatile Server server;
+
+    @Override
+    public void start() {
+        ServerBuilder<?> builder = ServerBuilder.forPort(port)
+                .addService(health.getHealthService())
+                .addService(ProtoReflectionService.newInstance());
+        services.forEach(builder::addService);
+        try {
+            server = builder.build().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start gRPC server on port " + port, e);
+        }
+        health.setStatus("", HealthCheckResponse.ServingStatus.SERVING);
+        log.info("gRPC server started on port {}", server.getPort());
+    }
+
+    @Override
+    public void stop() {
+        Server running = server;
+        if (running == null) {
+            return;
+        }
+        health.enterTerminalState();
+        running.shutdown();
+        try {
+            if (!running.awaitTermination(10, TimeUnit.SECONDS)) {
+                running.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            running.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    public int getPort() {
+        return server != null ? server.getPort() : port;
+    }
+}
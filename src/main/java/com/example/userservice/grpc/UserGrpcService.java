@@ -0,0 +1,203 @@
+package com.example.userservice.grpc;
+
+import com.example.userservice.dto.CreateUserDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.exception.EmailAlreadyExistsException;
+import com.example.userservice.exception.ServiceUnavailableException;
+import com.example.userservice.grpc.v1.BatchGetUsersRequest;
+import com.example.userservice.grpc.v1.BatchGetUsersResponse;
+import com.example.userservice.grpc.v1.CreateUserRequest;
+import com.example.userservice.grpc.v1.GetUserRequest;
+import com.example.userservice.grpc.v1.ListUsersRequest;
+import com.example.userservice.grpc.v1.User;
+import com.example.userservice.grpc.v1.UserServiceGrpc;
+import com.example.userservice.service.UserService;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class UserGrpcService extends UserServiceGrpc.UserServiceImplBase {
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final Duration LIST_STALL_TIMEOUT = Duration.ofSeconds(30);
+
+    private final UserService userService;
+    private final Validator validator;
+    private final ExecutorService listExecutor;
+
+    public UserGrpcService(UserService userService, Validator validator, int listThreads) {
+        this(userService, validator, Executors.newFixedThreadPool(listThreads));
+    }
+
+    UserGrpcService(UserService userService, Validator validator, ExecutorService listExecutor) {
+        this.userService = userService;
+        this.validator = validator;
+        this.listExecutor = listExecutor;
+    }
+
+    @Override
+    public void getUser(GetUserRequest request, StreamObserver<User> responseObserver) {
+        List<UserView> users;
+        try {
+            users = userService.getUserViews(List.of(request.getId()));
+        } catch (DataAccessException | ServiceUnavailableException | CallNotPermittedException e) {
+            responseObserver.onError(unavailable(e));
+            return;
+        }
+        if (users.isEmpty()) {
+            responseObserver.onError(Status.NOT_FOUND
+                    .withDescription("User not found with id: " + request.getId())
+                    .asRuntimeException());
+            return;
+        }
+        responseObserver.onNext(UserProtoMapper.toProto(users.get(0)));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void batchGetUsers(BatchGetUsersRequest request, StreamObserver<BatchGetUsersResponse> responseObserver) {
+        Set<Long> ids = new HashSet<>(request.getIdsList());
+        if (ids.size() > MAX_BATCH_SIZE) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("At most " + MAX_BATCH_SIZE + " ids per batch")
+                    .asRuntimeException());
+            return;
+        }
+
+        BatchGetUsersResponse.Builder response = BatchGetUsersResponse.newBuilder();
+        if (!ids.isEmpty()) {
+            List<UserView> users;
+            try {
+                users = userService.getUserViews(ids);
+            } catch (DataAccessException | ServiceUnavailableException | CallNotPermittedException e) {
+                responseObserver.onError(unavailable(e));
+                return;
+            }
+            for (UserView user : users) {
+                response.addUsers(UserProtoMapper.toProto(user));
+                ids.remove(user.id());
+            }
+        }
+        response.addAllMissingIds(ids);
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Streams every user from one cursor on a list thread, sending only while the client's flow-control window is
+     * open. A slow client holds the cursor back instead of piling messages up in the server; one that stops
+     * reading for {@link #LIST_STALL_TIMEOUT} gets DEADLINE_EXCEEDED, releasing the cursor's read transaction.
+     * The call's own thread returns at once, so the transport can deliver the on-ready and cancel callbacks.
+     */
+    @Override
+    public void listUsers(ListUsersRequest request, StreamObserver<User> responseObserver) {
+        ServerCallStreamObserver<User> serverObserver = (ServerCallStreamObserver<User>) responseObserver;
+        Object readiness = new Object();
+        Runnable signal = () -> {
+            synchronized (readiness) {
+                readiness.notifyAll();
+            }
+        };
+        serverObserver.setOnReadyHandler(signal);
+        serverObserver.setOnCancelHandler(signal);
+        listExecutor.execute(() -> streamUsers(serverObserver, readiness));
+    }
+
+    private void streamUsers(ServerCallStreamObserver<User> observer, Object readiness) {
+        try {
+            userService.forEachUser(user -> {
+                awaitReady(observer, readiness);
+                observer.onNext(UserProtoMapper.toProto(user));
+            });
+        } catch (StatusRuntimeException e) {
+            if (observer.isCancelled()) {
+                log.debug("ListUsers cancelled by client");
+            } else {
+                observer.onError(e);
+            }
+            return;
+        } catch (DataAccessException | ServiceUnavailableException | CallNotPermittedException e) {
+            observer.onError(unavailable(e));
+            return;
+        } catch (RuntimeException e) {
+            log.warn("ListUsers failed", e);
+            observer.onError(Status.INTERNAL.withDescription("Failed to list users").asRuntimeException());
+            return;
+        }
+        observer.onCompleted();
+    }
+
+    // throwing aborts the cursor and its read transaction
+    private static void awaitReady(ServerCallStreamObserver<User> observer, Object readiness) {
+        long deadline = System.nanoTime() + LIST_STALL_TIMEOUT.toNanos();
+        synchronized (readiness) {
+            while (!observer.isReady() && !observer.isCancelled()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw Status.DEADLINE_EXCEEDED
+                            .withDescription("Client read nothing for " + LIST_STALL_TIMEOUT.toSeconds() + " s")
+                            .asRuntimeException();
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(readiness, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw Status.UNAVAILABLE.withDescription("Server is shutting down").asRuntimeException();
+                }
+            }
+        }
+        if (observer.isCancelled()) {
+            throw Status.CANCELLED.asRuntimeException();
+        }
+    }
+
+    @Override
+    public void createUser(CreateUserRequest request, StreamObserver<User> responseObserver) {
+        CreateUserDto createUserDto = UserProtoMapper.toCreateUserDto(request);
+        Set<ConstraintViolation<CreateUserDto>> violations = validator.validate(createUserDto);
+        if (!violations.isEmpty()) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription(violations.stream()
+                            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining("; ")))
+                    .asRuntimeException());
+            return;
+        }
+
+        try {
+            responseObserver.onNext(UserProtoMapper.toProto(userService.createUser(createUserDto)));
+            responseObserver.onCompleted();
+        } catch (EmailAlreadyExistsException e) {
+            responseObserver.onError(Status.ALREADY_EXISTS.withDescription(e.getMessage()).asRuntimeException());
+        } catch (DataAccessException | ServiceUnavailableException | CallNotPermittedException e) {
+            responseObserver.onError(unavailable(e));
+        }
+    }
+
+    private static StatusRuntimeException unavailable(RuntimeException e) {
+        log.warn("User service unavailable: {}", e.toString());
+        return Status.UNAVAILABLE.withDescription(e.getMessage()).asRuntimeException();
+    }
+
+    @PreDestroy
+    public void stop() {
+        listExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.userservice.grpc;
+
+import com.example.userservice.dto.CreateUserDto;
+import com.example.userservice.dto.UserDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.grpc.v1.CreateUserRequest;
+import com.example.userservice.grpc.v1.User;
+import com.google.protobuf.Timestamp;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+final class UserProtoMapper {
+
+    private UserProtoMapper() {
+    }
+
+    static User toProto(UserView view) {
+        return toProto(view.id(), view.name(), view.email(), view.age(), view.createdAt(), view.version());
+    }
+
+    static User toProto(UserDto dto) {
+        return toProto(dto.getId(), dto.getName(), dto.getEmail(), dto.getAge(), dto.getCreatedAt(), dto.getVersion());
+    }
+
+    static CreateUserDto toCreateUserDto(CreateUserRequest request) {
+        CreateUserDto dto = new CreateUserDto();
+        dto.setName(request.getName());
+        dto.setEmail(request.getEmail());
+        dto.setAge(request.getAge());
+        return dto;
+    }
+
+    private static User toProto(Long id, String name, String email, Integer age, LocalDateTime createdAt,
+                                Long version) {
+        User.Builder builder = User.newBuilder()
+                .setId(id)
+                .setName(name)
+                .setEmail(email)
+                .setAge(age);
+        if (createdAt != null) {
+            builder.setCreatedAt(toTimestamp(createdAt));
+        }
+        if (version != null) {
+            builder.setVersion(version);
+        }
+        return builder.build();
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        Instant instant = dateTime.atZone(ZoneId.systemDefault()).toInstant();
+        return Timestamp.newBuilder()
+                .setSeconds(instant.getEpochSecond())
+                .setNanos(instant.getNano())
+                .build();
+    }
+}
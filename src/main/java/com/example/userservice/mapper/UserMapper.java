@@ -2,6 +2,7 @@ package com.example.userservice.mapper;
 
 import com.example.userservice.dto.UserDto;
 import com.example.userservice.dto.CreateUserDto;
+import com.example.userservice.dto.UserView;
 import com.example.userservice.entity.User;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -10,7 +11,14 @@ import org.mapstruct.Mapping;
 public interface UserMapper {
     UserDto toDto(User user);
 
+    UserDto toDto(UserView view);
+
+    UserView toView(User user);
+
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "changeSeq", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "createdAt", expression = "java(java.time.LocalDateTime.now())")
     User toEntity(CreateUserDto dto);
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserView;
+import com.example.userservice.entity.ArchivedUser;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface ArchivedUserRepository extends JpaRepository<ArchivedUser, Long> {
+    @Query("select count(a) > 0 from ArchivedUser a where lower(a.email) = lower(:email)")
+    boolean existsByEmail(@Param("email") String email);
+
+    boolean existsByIdAndEmail(Long id, String email);
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query("select new com.example.userservice.dto.UserView(a.id, a.name, a.email, a.age, a.createdAt, a.version) " +
+            "from ArchivedUser a where a.id = :id")
+    Optional<UserView> findViewById(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query("select new com.example.userservice.dto.UserView(a.id, a.name, a.email, a.age, a.createdAt, a.version) " +
+            "from ArchivedUser a where lower(a.email) = lower(:email)")
+    Optional<UserView> findViewByEmail(@Param("email") String email);
+
+    @Transactional(readOnly = true)
+    @Query("select a.version from ArchivedUser a where a.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Moves up to {@code limit} users without a write since {@code cutoff}, oldest first, in one statement.
+     * Rows locked by a concurrent write are skipped rather than waited for.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            with moved as (
+                delete from users where id in (
+                    select id from users where updated_at < :cutoff
+                    order by updated_at limit :limit for update skip locked)
+                returning id, name, email, age, created_at, updated_at, change_seq, version
+            )
+            insert into users_archive (id, name, email, age, created_at, updated_at, change_seq, version, archived_at)
+            select id, name, email, age, created_at, updated_at, change_seq, version, :archivedAt from moved
+            """, nativeQuery = true)
+    int archiveInactive(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit,
+                        @Param("archivedAt") LocalDateTime archivedAt);
+
+    /**
+     * Moves an archived user back into {@code users}. Runs in the caller's write transaction.
+     */
+    @Modifying
+    @Query(value = """
+            with restored as (
+                delete from users_archive where id = :id
+                returning id, name, email, age, created_at, updated_at, change_seq, version
+            )
+            insert into users (id, name, email, age, created_at, updated_at, change_seq, version)
+            select id, name, email, age, created_at, updated_at, change_seq, version from restored
+            """, nativeQuery = true)
+    int restore(@Param("id") Long id);
+}
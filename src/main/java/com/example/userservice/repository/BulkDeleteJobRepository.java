@@ -0,0 +1,54 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.BulkDeleteJob;
+import com.example.userservice.entity.BulkDeleteJob.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BulkDeleteJobRepository extends JpaRepository<BulkDeleteJob, Long> {
+
+    /**
+     * Takes the lease on an unfinished job unless another worker holds an unexpired one.
+     */
+    @Transactional
+    @Modifying
+    @Query("update BulkDeleteJob j set j.status = :running, j.leaseUntil = :until, j.error = null, " +
+            "j.updatedAt = :now where j.id = :id and j.status <> :completed " +
+            "and (j.leaseUntil is null or j.leaseUntil < :now)")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("until") LocalDateTime until,
+              @Param("running") Status running, @Param("completed") Status completed);
+
+    /**
+     * Records a committed chunk and extends the lease. Runs in the chunk's transaction.
+     */
+    @Modifying
+    @Query("update BulkDeleteJob j set j.lastId = :lastId, j.deletedCount = j.deletedCount + :deleted, " +
+            "j.leaseUntil = :until, j.updatedAt = :now where j.id = :id")
+    int recordProgress(@Param("id") Long id, @Param("lastId") long lastId, @Param("deleted") long deleted,
+                       @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("update BulkDeleteJob j set j.status = :status, j.error = :error, j.leaseUntil = null, " +
+            "j.updatedAt = :now, j.finishedAt = :now where j.id = :id")
+    int finish(@Param("id") Long id, @Param("status") Status status, @Param("error") String error,
+               @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update BulkDeleteJob j set j.leaseUntil = null, j.updatedAt = :now where j.id = :id")
+    int release(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Jobs that were started but whose worker stopped without finishing them.
+     */
+    @Query("select j.id from BulkDeleteJob j where j.status in :statuses " +
+            "and (j.leaseUntil is null or j.leaseUntil < :now) order by j.id")
+    List<Long> findAbandoned(@Param("statuses") List<Status> statuses, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,140 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Set-based deletes for bulk delete jobs. Each call is one statement that locks a chunk of users in id order,
+ * deletes them, writes their change feed tombstones and returns the deleted rows, so a chunk costs one round
+ * trip however many users it holds. Archived users matching the chunk are first moved back into {@code users}
+ * by a second statement so the delete covers them too. Must run inside the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserBulkDeleteRepository {
+    private static final String DELETE_CHUNK = """
+            with doomed as (
+                select id from users where %s order by id limit ? for update
+            ), deleted as (
+                delete from users u using doomed d where u.id = d.id
+                returning u.id, u.name, u.email, u.age, u.created_at, u.version
+            ), tombstones as (
+                insert into user_tombstones (change_seq, user_id, deleted_at)
+                select nextval('user_change_seq'), id, ? from deleted
+            )
+            select d.id as scanned_id, x.id, x.name, x.email, x.age, x.created_at, x.version
+            from doomed d left join deleted x on x.id = d.id
+            order by d.id
+            """;
+
+    private static final String RESTORE_CHUNK = """
+            with restored as (
+                delete from users_archive where id in (select id from users_archive where %s order by id limit ?)
+                returning id, name, email, age, created_at, updated_at, change_seq, version
+            )
+            insert into users (id, name, email, age, created_at, updated_at, change_seq, version)
+            select id, name, email, age, created_at, updated_at, change_seq, version from restored
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Deletes whichever of the given ids still exist.
+     */
+    public DeletedChunk deleteByIds(Long[] ids, LocalDateTime deletedAt) {
+        return execute("id = any(?)", Collections.singletonList(ids), ids.length, deletedAt);
+    }
+
+    /**
+     * Deletes up to {@code limit} users after {@code afterId} that match every non-null criterion.
+     */
+    public DeletedChunk deleteByFilter(long afterId, LocalDateTime createdBefore, String emailDomain,
+                                       Integer minAge, Integer maxAge, int limit, LocalDateTime deletedAt) {
+        StringBuilder where = new StringBuilder("id > ?");
+        List<Object> params = new ArrayList<>();
+        params.add(afterId);
+        if (createdBefore != null) {
+            where.append(" and created_at < ?");
+            params.add(Timestamp.valueOf(createdBefore));
+        }
+        if (emailDomain != null) {
+            where.append(" and lower(email) like ?");
+            params.add("%@" + emailDomain.toLowerCase(Locale.ROOT));
+        }
+        if (minAge != null) {
+            where.append(" and age >= ?");
+            params.add(minAge);
+        }
+        if (maxAge != null) {
+            where.append(" and age <= ?");
+            params.add(maxAge);
+        }
+        return execute(where.toString(), params, limit, deletedAt);
+    }
+
+    private DeletedChunk execute(String where, List<Object> params, int limit, LocalDateTime deletedAt) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(RESTORE_CHUNK.formatted(where));
+            statement.setInt(bind(connection, statement, params), limit);
+            return statement;
+        });
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_CHUNK.formatted(where));
+            int index = bind(connection, statement, params);
+            statement.setInt(index++, limit);
+            statement.setTimestamp(index, Timestamp.valueOf(deletedAt));
+            return statement;
+        }, UserBulkDeleteRepository::readChunk);
+    }
+
+    /**
+     * Binds the where clause parameters and returns the index of the next parameter.
+     */
+    private static int bind(Connection connection, PreparedStatement statement, List<Object> params)
+            throws SQLException {
+        int index = 1;
+        for (Object param : params) {
+            if (param instanceof Long[] ids) {
+                statement.setArray(index++, connection.createArrayOf("bigint", ids));
+            } else {
+                statement.setObject(index++, param);
+            }
+        }
+        return index;
+    }
+
+    private static DeletedChunk readChunk(ResultSet rs) throws SQLException {
+        List<UserView> deleted = new ArrayList<>();
+        long lastScannedId = 0;
+        while (rs.next()) {
+            lastScannedId = rs.getLong("scanned_id");
+            long id = rs.getLong("id");
+            if (!rs.wasNull()) {
+                deleted.add(new UserView(id, rs.getString("name"), rs.getString("email"),
+                        rs.getInt("age"), rs.getObject("created_at", LocalDateTime.class),
+                        rs.getLong("version")));
+            }
+        }
+        return new DeletedChunk(deleted, lastScannedId);
+    }
+
+    /**
+     * The users a chunk deleted and the highest id it locked, which is 0 when nothing was left to scan.
+     * Locked rows that another transaction deleted first are scanned but not returned.
+     */
+    public record DeletedChunk(List<UserView> deleted, long lastScannedId) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.UserEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface UserEmailRepository extends JpaRepository<UserEmail, String> {
+
+    @Modifying
+    @Query(value = "insert into user_emails (email, user_id, reserved_at) values (:email, :userId, :now) " +
+            "on conflict (email) do nothing", nativeQuery = true)
+    int reserve(@Param("email") String email, @Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Hands a stale reservation to another user, only if it still belongs to {@code staleUserId}.
+     */
+    @Modifying
+    @Query("update UserEmail e set e.userId = :userId, e.reservedAt = :now " +
+            "where e.email = :email and e.userId = :staleUserId")
+    int takeOver(@Param("email") String email, @Param("staleUserId") Long staleUserId,
+                 @Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from UserEmail e where e.email = :email and e.userId = :userId")
+    int release(@Param("email") String email, @Param("userId") Long userId);
+}
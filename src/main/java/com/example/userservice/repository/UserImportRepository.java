@@ -0,0 +1,71 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.UserImport;
+import com.example.userservice.entity.UserImport.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserImportRepository extends JpaRepository<UserImport, Long> {
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserImport i where i.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Takes the lease on a failed import that still owes CREATED events, or on a running one whose worker
+     * stopped, unless another worker got there first.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update UserImport i set i.status = :running, i.leaseUntil = :until, i.error = null where i.id = :id " +
+            "and ((i.status = :failed and i.published < i.imported) " +
+            "or (i.status = :running and (i.leaseUntil is null or i.leaseUntil < :now)))")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("until") LocalDateTime until,
+              @Param("failed") Status failed, @Param("running") Status running);
+
+    @Query("select i.id from UserImport i where (i.status = :failed and i.published < i.imported) " +
+            "or (i.status = :running and (i.leaseUntil is null or i.leaseUntil < :now)) order by i.id")
+    List<Long> findResumable(@Param("failed") Status failed, @Param("running") Status running,
+                             @Param("now") LocalDateTime now);
+
+    /**
+     * Extends the lease. Runs in the caller's transaction.
+     */
+    @Modifying
+    @Query("update UserImport i set i.leaseUntil = :until where i.id = :id")
+    int extendLease(@Param("id") Long id, @Param("until") LocalDateTime until);
+
+    /**
+     * Records the merge's outcome in the merge's transaction, unless the import was given up on in the meantime.
+     */
+    @Modifying
+    @Query("update UserImport i set i.rowsRead = :rowsRead, i.imported = :imported, i.rejected = :rejected, " +
+            "i.mergedAt = :now, i.leaseUntil = :until where i.id = :id and i.status = :running and i.mergedAt is null")
+    int recordMerged(@Param("id") Long id, @Param("rowsRead") long rowsRead, @Param("imported") long imported,
+                     @Param("rejected") long rejected, @Param("now") LocalDateTime now,
+                     @Param("until") LocalDateTime until, @Param("running") Status running);
+
+    /**
+     * Counts a batch of acknowledged CREATED events and extends the lease. Runs in the batch's transaction.
+     */
+    @Modifying
+    @Query("update UserImport i set i.published = i.published + :sent, i.leaseUntil = :until where i.id = :id")
+    int recordPublished(@Param("id") Long id, @Param("sent") long sent, @Param("until") LocalDateTime until);
+
+    /**
+     * Fails a running import whose rows were never merged, so none of its users exist.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update UserImport i set i.status = :failed, i.error = :error, i.leaseUntil = null, i.finishedAt = :now " +
+            "where i.id = :id and i.status = :running and i.mergedAt is null")
+    int failUnmerged(@Param("id") Long id, @Param("error") String error, @Param("now") LocalDateTime now,
+                     @Param("running") Status running, @Param("failed") Status failed);
+}
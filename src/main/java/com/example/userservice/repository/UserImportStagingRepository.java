@@ -0,0 +1,232 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserView;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The {@code user_import_rows} staging table behind CSV imports. Rows arrive in a few large
+ * {@code COPY FROM STDIN} streams and reach {@code users} in one set-based statement, so an import costs a
+ * handful of round trips however many rows it holds. Every method must run inside the caller's read-write transaction: the staging table is
+ * unlogged and so exists on the primary only.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserImportStagingRepository {
+    public static final String EMAIL_TAKEN = "Email already exists";
+    public static final String EMAIL_REPEATED = "Email repeats an earlier row";
+
+    private static final String COPY = "copy user_import_rows (import_id, line, name, email, age, error) " +
+            "from stdin with (format csv)";
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+    private static final int REPORT_FETCH_SIZE = 1000;
+
+    /**
+     * Inserts the first valid row per email whose email no user or archived user holds yet, in file order, and
+     * marks every other valid row rejected. Emails are staged lower-cased, so they compare directly against the
+     * {@code lower(email)} indexes.
+     */
+    private static final String MERGE = """
+            with candidates as (
+                select distinct on (email) line, name, email, age
+                from user_import_rows where import_id = ? and error is null
+                order by email, line
+            ), inserted as (
+                insert into users (name, email, age, created_at, updated_at, change_seq, version)
+                select c.name, c.email, c.age, ?, ?, nextval('user_change_seq'), 0
+                from candidates c cross join (select pg_current_xact_id() offset 0) as xact
+                where not exists (select 1 from users u where lower(u.email) = c.email)
+                  and not exists (select 1 from users_archive a where lower(a.email) = c.email)
+                order by c.line
+                on conflict do nothing
+                returning email
+            ), rejected as (
+                update user_import_rows r set error = x.error
+                from (
+                    select s.line, case when c.line is null then '%s' else '%s' end as error
+                    from user_import_rows s
+                    left join candidates c on c.line = s.line
+                    left join inserted i on i.email = c.email
+                    where s.import_id = ? and s.error is null and i.email is null
+                ) x
+                where r.import_id = ? and r.line = x.line
+                returning 1
+            )
+            select (select count(*) from inserted) as imported, (select count(*) from rejected) as rejected
+            """.formatted(EMAIL_REPEATED, EMAIL_TAKEN);
+
+    private static final String FIND_IMPORTED = """
+            select r.line, u.id, u.name, u.email, u.age, u.created_at, u.version
+            from user_import_rows r join users u on lower(u.email) = r.email
+            where r.import_id = ? and r.error is null and r.line > ?
+            order by r.line
+            limit ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Streams the rows into the staging table, pulling each one from the iterator only as the COPY stream has
+     * room for it, and returns the number of rows stored.
+     */
+    public long copy(long importId, Iterator<StagedRow> rows) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            PGCopyOutputStream copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY,
+                    COPY_BUFFER_SIZE);
+            try {
+                Writer out = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8),
+                        COPY_BUFFER_SIZE);
+                while (rows.hasNext()) {
+                    write(out, importId, rows.next());
+                }
+                out.flush();
+                return copy.endCopy();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        });
+    }
+
+    public MergeResult merge(long importId, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return jdbcTemplate.queryForObject(MERGE,
+                (rs, rowNum) -> new MergeResult(rs.getLong("imported"), rs.getLong("rejected")),
+                importId, timestamp, timestamp, importId, importId);
+    }
+
+    /**
+     * The next {@code limit} users after {@code afterLine}, in file order, created from accepted rows that are still
+     * staged. Each batch's rows are dropped with {@link #deleteAccepted(long, long)} once its events are sent.
+     */
+    public ImportedBatch findImported(long importId, long afterLine, int limit) {
+        List<UserView> users = new ArrayList<>(limit);
+        long[] lastLine = {0};
+        jdbcTemplate.query(FIND_IMPORTED, (RowCallbackHandler) rs -> {
+            users.add(new UserView(rs.getLong("id"), rs.getString("name"), rs.getString("email"), rs.getInt("age"),
+                    rs.getObject("created_at", LocalDateTime.class), rs.getLong("version")));
+            lastLine[0] = rs.getLong("line");
+        }, importId, afterLine, limit);
+        return new ImportedBatch(users, lastLine[0]);
+    }
+
+    /**
+     * Writes the rejected rows as CSV with a header row, in file order.
+     */
+    public void writeRejected(long importId, Writer out) throws IOException {
+        out.write("line,name,email,age,error\n");
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("select line, name, email, age, error " +
+                    "from user_import_rows where import_id = ? and error is not null order by line");
+            statement.setFetchSize(REPORT_FETCH_SIZE);
+            statement.setLong(1, importId);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            try {
+                write(out, new StagedRow(rs.getLong("line"), rs.getString("name"), rs.getString("email"),
+                        rs.getObject("age", Integer.class), rs.getString("error")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    /**
+     * Drops the rows that became users, keeping only the error report.
+     */
+    public int deleteAccepted(long importId) {
+        return jdbcTemplate.update("delete from user_import_rows where import_id = ? and error is null", importId);
+    }
+
+    /**
+     * Drops the rows up to {@code line} that became users, once their events have been sent.
+     */
+    public int deleteAccepted(long importId, long line) {
+        return jdbcTemplate.update("delete from user_import_rows where import_id = ? and error is null " +
+                "and line <= ?", importId, line);
+    }
+
+    public int deleteRowsOfImportsCreatedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("delete from user_import_rows where import_id in " +
+                "(select id from user_imports where created_at < ?)", Timestamp.valueOf(cutoff));
+    }
+
+    private static void write(Writer out, long importId, StagedRow row) throws IOException {
+        out.write(Long.toString(importId));
+        out.write(',');
+        write(out, row);
+    }
+
+    private static void write(Writer out, StagedRow row) throws IOException {
+        out.write(Long.toString(row.line()));
+        out.write(',');
+        writeText(out, row.name());
+        out.write(',');
+        writeText(out, row.email());
+        out.write(',');
+        if (row.age() != null) {
+            out.write(Integer.toString(row.age()));
+        }
+        out.write(',');
+        writeText(out, row.error());
+        out.write('\n');
+    }
+
+    /**
+     * Writes a CSV field that COPY reads back exactly: quoted, so an empty string stays distinct from NULL,
+     * which is written as nothing.
+     */
+    private static void writeText(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                out.write(value, start, i + 1 - start);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    /**
+     * A CSV row as staged: the values read, with the email lower-cased, and why it was rejected, or {@code null}.
+     */
+    public record StagedRow(long line, String name, String email, Integer age, String error) {
+    }
+
+    public record MergeResult(long imported, long rejected) {
+    }
+
+    /**
+     * Users created by an import, and the line of the last of them.
+     */
+    public record ImportedBatch(List<UserView> users, long lastLine) {
+    }
+}
@@ -1,8 +1,136 @@
 package com.example.userservice.repository;
 
+import com.example.userservice.dto.AgeCount;
+import com.example.userservice.dto.DayCount;
+import com.example.userservice.dto.UserCollectionVersion;
+import com.example.userservice.dto.UserView;
 import com.example.userservice.entity.User;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+/**
+ * Queries that list, count or version all users read {@link com.example.userservice.entity.StoredUser}, so they
+ * include archived users.
+ */
 public interface UserRepository extends JpaRepository<User, Long> {
-    boolean existsByEmail(String email);
-}
\ No newline at end of file
+    @Query("select count(u) > 0 from User u where lower(u.email) = lower(:email)")
+    boolean existsByEmail(@Param("email") String email);
+
+    boolean existsByIdAndEmail(Long id, String email);
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query("select new com.example.userservice.dto.UserView(u.id, u.name, u.email, u.age, u.createdAt, u.version) " +
+            "from User u where u.id = :id")
+    Optional<UserView> findViewById(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query("select new com.example.userservice.dto.UserView(u.id, u.name, u.email, u.age, u.createdAt, u.version) " +
+            "from User u where lower(u.email) = lower(:email)")
+    Optional<UserView> findViewByEmail(@Param("email") String email);
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query("select new com.example.userservice.dto.UserView(u.id, u.name, u.email, u.age, u.createdAt, u.version) " +
+            "from StoredUser u order by u.id")
+    List<UserView> findAllViews();
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query("select new com.example.userservice.dto.UserView(u.id, u.name, u.email, u.age, u.createdAt, u.version) " +
+            "from StoredUser u where u.id in :ids")
+    List<UserView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query("select new com.example.userservice.dto.UserView(u.id, u.name, u.email, u.age, u.createdAt, u.version) " +
+            "from StoredUser u where u.id > :after order by u.id")
+    List<UserView> findViewsAfter(@Param("after") long after, Pageable page);
+
+    @QueryHints({
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500")
+    })
+    @Query("select new com.example.userservice.dto.UserView(u.id, u.name, u.email, u.age, u.createdAt, u.version) " +
+            "from StoredUser u order by u.id")
+    Stream<UserView> streamAllViews();
+
+    @Query("select count(u) from StoredUser u")
+    long countWithArchived();
+
+    @Query("select new com.example.userservice.dto.AgeCount(u.age, count(u)) from StoredUser u group by u.age")
+    List<AgeCount> countByAge();
+
+    @Query("select new com.example.userservice.dto.DayCount(cast(u.createdAt as LocalDate), count(u)) " +
+            "from StoredUser u where u.createdAt >= :since group by cast(u.createdAt as LocalDate)")
+    List<DayCount> countCreatedPerDaySince(@Param("since") LocalDateTime since);
+
+    @Transactional(readOnly = true)
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.example.userservice.dto.UserCollectionVersion(" +
+            "count(u), coalesce(cast(mod(sum(mod(u.id, " + UserCollectionVersion.ID_MODULUS + "L)), " +
+            UserCollectionVersion.ID_MODULUS + "L) as Long), 0L), coalesce(sum(u.version), 0L)) from StoredUser u")
+    UserCollectionVersion findCollectionVersion();
+
+    /**
+     * Draws a change feed position. The calling transaction is given its xid first, see
+     * {@link #findTransactionHorizon()}.
+     */
+    @Query(value = "select nextval('user_change_seq') from (select pg_current_xact_id() offset 0) as xact",
+            nativeQuery = true)
+    long nextChangeSeq();
+
+    /**
+     * Last change feed position drawn, whether its transaction committed yet or not.
+     */
+    @Query(value = "select last_value from user_change_seq", nativeQuery = true)
+    long findLastChangeSeq();
+
+    /**
+     * The oldest transaction still running and the first xid not yet assigned. Every position is drawn after its
+     * transaction got an xid, so once {@code xmin} has passed the {@code xmax} read after
+     * {@link #findLastChangeSeq()}, every position up to that value is committed or rolled back.
+     */
+    @Query(value = "select cast(cast(pg_snapshot_xmin(s) as text) as bigint) as xmin, " +
+            "cast(cast(pg_snapshot_xmax(s) as text) as bigint) as xmax from pg_current_snapshot() as s",
+            nativeQuery = true)
+    TransactionHorizon findTransactionHorizon();
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query("select u from User u where u.changeSeq > :after and u.changeSeq <= :upTo order by u.changeSeq")
+    List<User> findChanges(@Param("after") long after, @Param("upTo") long upTo, Pageable page);
+
+    /**
+     * Gives rows written before the change feed existed a position in it.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update users set change_seq = nextval('user_change_seq'), updated_at = created_at " +
+            "from (select pg_current_xact_id() offset 0) as xact where change_seq is null", nativeQuery = true)
+    int assignMissingChangeSeqs();
+
+    @Query(value = "select pg_total_relation_size('users') > (select cast(setting as bigint) from pg_settings " +
+            "where name = 'shared_buffers') * cast(current_setting('block_size') as bigint)", nativeQuery = true)
+    boolean exceedsSharedBuffers();
+
+    interface TransactionHorizon {
+        long getXmin();
+
+        long getXmax();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.UserTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserTombstoneRepository extends JpaRepository<UserTombstone, Long> {
+
+    @Query("select t from UserTombstone t where t.changeSeq > :after and t.changeSeq <= :upTo order by t.changeSeq")
+    List<UserTombstone> findChanges(@Param("after") long after, @Param("upTo") long upTo, Pageable page);
+
+    /**
+     * Oldest tombstone that is past retention. Everything older than it has been purged.
+     */
+    @Query("select min(t.changeSeq) from UserTombstone t where t.deletedAt < :cutoff")
+    Optional<Long> findHorizon(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Purges tombstones past retention, keeping the newest of them as the horizon marker.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from UserTombstone t where t.deletedAt < :cutoff and t.changeSeq < " +
+            "(select max(e.changeSeq) from UserTombstone e where e.deletedAt < :cutoff)")
+    int purgeBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,248 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.LastKnownGoodUsers;
+import com.example.userservice.cache.OffHeapUserMirror;
+import com.example.userservice.cache.UserEmailCache;
+import com.example.userservice.cache.UserReadCache;
+import com.example.userservice.dto.BulkDeleteJobDto;
+import com.example.userservice.dto.BulkDeleteRequestDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.entity.BulkDeleteJob;
+import com.example.userservice.entity.BulkDeleteJob.Status;
+import com.example.userservice.exception.BulkDeleteJobNotFoundException;
+import com.example.userservice.exception.BulkDeleteNotSupportedException;
+import com.example.userservice.repository.BulkDeleteJobRepository;
+import com.example.userservice.repository.UserBulkDeleteRepository;
+import com.example.userservice.repository.UserBulkDeleteRepository.DeletedChunk;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs bulk delete jobs in the background. Each chunk is its own short transaction that deletes up to
+ * {@code chunk-size} users with one statement, waits for their DELETED events to be acknowledged and records
+ * the job's progress, so row locks are held for one chunk only and a crash loses at most the chunk in flight.
+ * Jobs left unfinished by a stopped instance are picked up again once their lease expires. Chunks are deleted
+ * with one statement against one database, so bulk delete is refused while users are sharded.
+ */
+@Slf4j
+@Service
+public class BulkDeleteService {
+    private static final List<Status> UNFINISHED = List.of(Status.PENDING, Status.RUNNING);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final BulkDeleteJobRepository jobRepository;
+    private final UserBulkDeleteRepository userBulkDeleteRepository;
+    private final UserEventPublisher userEventPublisher;
+    private final UserStatistics userStatistics;
+    private final UserReadCache userReadCache;
+    private final OffHeapUserMirror userMirror;
+    private final UserEmailCache userEmailCache;
+    private final LastKnownGoodUsers lastKnownGood;
+    private final UserShards userShards;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Duration lease;
+    private final Duration eventTimeout;
+    private final Clock clock;
+    private final ExecutorService workers;
+
+    @Autowired
+    public BulkDeleteService(BulkDeleteJobRepository jobRepository,
+                             UserBulkDeleteRepository userBulkDeleteRepository,
+                             UserEventPublisher userEventPublisher,
+                             UserStatistics userStatistics,
+                             UserReadCache userReadCache,
+                             OffHeapUserMirror userMirror,
+                             UserEmailCache userEmailCache,
+                             LastKnownGoodUsers lastKnownGood,
+                             UserShards userShards,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.bulk-delete.chunk-size:500}") int chunkSize,
+                             @Value("${app.bulk-delete.lease:PT1M}") Duration lease,
+                             @Value("${app.bulk-delete.event-timeout:PT30S}") Duration eventTimeout,
+                             @Value("${app.bulk-delete.threads:2}") int threads) {
+        this(jobRepository, userBulkDeleteRepository, userEventPublisher, userStatistics, userReadCache, userMirror,
+                userEmailCache, lastKnownGood, userShards, new TransactionTemplate(transactionManager), chunkSize, lease,
+                eventTimeout, Clock.systemDefaultZone(), Executors.newFixedThreadPool(threads));
+    }
+
+    BulkDeleteService(BulkDeleteJobRepository jobRepository, UserBulkDeleteRepository userBulkDeleteRepository,
+                      UserEventPublisher userEventPublisher, UserStatistics userStatistics,
+                      UserReadCache userReadCache, OffHeapUserMirror userMirror, UserEmailCache userEmailCache,
+                      LastKnownGoodUsers lastKnownGood, UserShards userShards, TransactionTemplate transactionTemplate, int chunkSize,
+                      Duration lease, Duration eventTimeout, Clock clock, ExecutorService workers) {
+        this.jobRepository = jobRepository;
+        this.userBulkDeleteRepository = userBulkDeleteRepository;
+        this.userEventPublisher = userEventPublisher;
+        this.userStatistics = userStatistics;
+        this.userReadCache = userReadCache;
+        this.userMirror = userMirror;
+        this.userEmailCache = userEmailCache;
+        this.lastKnownGood = lastKnownGood;
+        this.userShards = userShards;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.lease = lease;
+        this.eventTimeout = eventTimeout;
+        this.clock = clock;
+        this.workers = workers;
+    }
+
+    public BulkDeleteJobDto start(BulkDeleteRequestDto request) {
+        checkSupported();
+        BulkDeleteJob job = new BulkDeleteJob();
+        if (request.isByIds()) {
+            job.setUserIds(request.getIds().stream().distinct().sorted().toArray(Long[]::new));
+        } else {
+            job.setCreatedBefore(request.getCreatedBefore());
+            job.setEmailDomain(request.getEmailDomain());
+            job.setMinAge(request.getMinAge());
+            job.setMaxAge(request.getMaxAge());
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+
+        BulkDeleteJob saved = jobRepository.save(job);
+        workers.execute(() -> run(saved.getId()));
+        return BulkDeleteJobDto.of(saved);
+    }
+
+    public BulkDeleteJobDto getJob(Long id) {
+        return BulkDeleteJobDto.of(findJob(id));
+    }
+
+    /**
+     * Restarts a failed or stalled job from its last committed chunk. A job that is running elsewhere keeps
+     * running there.
+     */
+    public BulkDeleteJobDto resume(Long id) {
+        checkSupported();
+        BulkDeleteJob job = findJob(id);
+        if (job.getStatus() != Status.COMPLETED) {
+            workers.execute(() -> run(id));
+        }
+        return BulkDeleteJobDto.of(job);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.bulk-delete.lease:PT1M}", fixedDelayString = "${app.bulk-delete.lease:PT1M}")
+    public void resumeAbandoned() {
+        if (userShards.isSharded()) {
+            return;
+        }
+        for (Long id : jobRepository.findAbandoned(UNFINISHED, LocalDateTime.now(clock))) {
+            log.info("Resuming bulk delete job {}", id);
+            workers.execute(() -> run(id));
+        }
+    }
+
+    void run(Long id) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        if (jobRepository.claim(id, now, now.plus(lease), Status.RUNNING, Status.COMPLETED) == 0) {
+            return;
+        }
+        BulkDeleteJob job = jobRepository.findById(id).orElseThrow(() -> new BulkDeleteJobNotFoundException(id));
+        long lastId = job.getLastId();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Long next = deleteChunk(job, lastId);
+                if (next == null) {
+                    jobRepository.finish(id, Status.COMPLETED, null, LocalDateTime.now(clock));
+                    log.info("Bulk delete job {} completed", id);
+                    return;
+                }
+                lastId = next;
+            }
+            jobRepository.release(id, LocalDateTime.now(clock));
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                jobRepository.release(id, LocalDateTime.now(clock));
+                return;
+            }
+            log.error("Bulk delete job {} failed after user id {}", id, lastId, e);
+            String error = String.valueOf(e.getMessage());
+            jobRepository.finish(id, Status.FAILED, error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH)),
+                    LocalDateTime.now(clock));
+        }
+    }
+
+    /**
+     * Deletes the next chunk after {@code afterId} and returns the id to continue after, or {@code null} when
+     * nothing is left.
+     */
+    private Long deleteChunk(BulkDeleteJob job, long afterId) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now(clock);
+            DeletedChunk chunk;
+            long next;
+            if (job.isByIds()) {
+                Long[] ids = nextIds(job.getUserIds(), afterId, chunkSize);
+                if (ids.length == 0) {
+                    return null;
+                }
+                chunk = userBulkDeleteRepository.deleteByIds(ids, now);
+                next = ids[ids.length - 1];
+            } else {
+                chunk = userBulkDeleteRepository.deleteByFilter(afterId, job.getCreatedBefore(),
+                        job.getEmailDomain(), job.getMinAge(), job.getMaxAge(), chunkSize, now);
+                if (chunk.lastScannedId() == 0) {
+                    return null;
+                }
+                next = chunk.lastScannedId();
+            }
+
+            List<UserView> deleted = chunk.deleted();
+            if (!deleted.isEmpty()) {
+                // a failed send rolls the chunk back, so no user disappears without its event
+                userEventPublisher.publishUserDeletedEvents(deleted, eventTimeout);
+                deleted.forEach(user -> userStatistics.userDeleted(user.age(), user.createdAt()));
+                TransactionHooks.afterCommit(() -> deleted.forEach(user -> {
+                    userReadCache.evict(user.id());
+                    userMirror.remove(user.id());
+                    userEmailCache.evict(user.email());
+                    lastKnownGood.evict(user.id());
+                }));
+            }
+            jobRepository.recordProgress(job.getId(), next, deleted.size(), now, now.plus(lease));
+            return next;
+        });
+    }
+
+    static Long[] nextIds(Long[] sortedIds, long afterId, int limit) {
+        int from = Arrays.binarySearch(sortedIds, afterId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        return Arrays.copyOfRange(sortedIds, from, Math.min(from + limit, sortedIds.length));
+    }
+
+    private void checkSupported() {
+        if (userShards.isSharded()) {
+            throw new BulkDeleteNotSupportedException("Bulk delete is not supported while users are sharded");
+        }
+    }
+
+    private BulkDeleteJob findJob(Long id) {
+        return jobRepository.findById(id).orElseThrow(() -> new BulkDeleteJobNotFoundException(id));
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.userservice.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for RFC 4180 CSV: comma separated fields, optionally quoted with {@code ""} for a quote inside,
+ * records ended by LF or CRLF, quoted fields may span lines. Only the current record is held in memory, and
+ * fields beyond {@code maxFieldLength} characters or {@code maxFields} per record are dropped and reported as a
+ * problem, so no input can make it buffer more than one bounded record.
+ */
+final class CsvReader {
+    private static final int EOF = -1;
+    private static final int NONE = -2;
+
+    private final Reader in;
+    private final int maxFieldLength;
+    private final int maxFields;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder field = new StringBuilder();
+    private int position;
+    private int limit;
+    private int pushedBack = NONE;
+    private long lineBreaks;
+
+    CsvReader(Reader in, int maxFieldLength, int maxFields) {
+        this.in = in;
+        this.maxFieldLength = maxFieldLength;
+        this.maxFields = maxFields;
+    }
+
+    /**
+     * The next record, or {@code null} at the end of the input.
+     */
+    Record next() throws IOException {
+        long line = lineBreaks + 1;
+        int c = read();
+        if (c == EOF) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        String problem = null;
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == EOF) {
+                    problem = "Unterminated quoted field";
+                    addField(fields);
+                    return new Record(line, fields, problem);
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                problem = append(c, problem);
+            } else if (c == ',') {
+                problem = addField(fields) ? problem : tooManyFields(problem);
+            } else if (c == '\n' || c == '\r' || c == EOF) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        pushedBack = next;
+                    }
+                }
+                problem = addField(fields) ? problem : tooManyFields(problem);
+                return new Record(line, fields, problem);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                problem = append(c, problem);
+            }
+            c = read();
+        }
+    }
+
+    private String append(int c, String problem) {
+        if (field.length() < maxFieldLength) {
+            field.append((char) c);
+            return problem;
+        }
+        return problem != null ? problem : "Field longer than " + maxFieldLength + " characters";
+    }
+
+    private boolean addField(List<String> fields) {
+        boolean added = fields.size() < maxFields;
+        if (added) {
+            fields.add(field.toString());
+        }
+        field.setLength(0);
+        return added;
+    }
+
+    private String tooManyFields(String problem) {
+        return problem != null ? problem : "More than " + maxFields + " fields";
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        if (position == limit) {
+            limit = in.read(buffer);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            lineBreaks++;
+        }
+        return c;
+    }
+
+    /**
+     * A record and the line it starts on. {@code problem} describes input that was dropped while reading it.
+     */
+    record Record(long line, List<String> fields, String problem) {
+        boolean isBlank() {
+            return fields.size() == 1 && fields.get(0).isEmpty() && problem == null;
+        }
+    }
+}
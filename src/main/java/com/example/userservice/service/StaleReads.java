@@ -0,0 +1,28 @@
+package com.example.userservice.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Tells the web layer that the result the current thread just got from {@link UserService} was served from the
+ * last known good state instead of the database, and how old it is.
+ */
+public final class StaleReads {
+    private static final ThreadLocal<Duration> AGE = new ThreadLocal<>();
+
+    private StaleReads() {
+    }
+
+    public static void served(Duration age) {
+        AGE.set(age);
+    }
+
+    /**
+     * Returns and clears the age of the stale result, or empty if the last result was fresh.
+     */
+    public static Optional<Duration> take() {
+        Duration age = AGE.get();
+        AGE.remove();
+        return Optional.ofNullable(age);
+    }
+}
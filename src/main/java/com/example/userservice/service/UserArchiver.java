@@ -0,0 +1,97 @@
+package com.example.userservice.service;
+
+import com.example.userservice.repository.ArchivedUserRepository;
+import com.example.userservice.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Keeps {@code users} down to recently written users by moving the rest to {@code users_archive} in small
+ * batches, pausing between batches so the archiver never competes with request traffic for long. Archived
+ * users are still listed, counted and readable by id, and are moved back on their next write. When users are
+ * sharded, every shard is archived in turn.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class UserArchiver {
+    private final ArchivedUserRepository archivedUserRepository;
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration pause;
+    private final Clock clock;
+
+    @Autowired
+    public UserArchiver(ArchivedUserRepository archivedUserRepository,
+                        UserRepository userRepository,
+                        UserShards userShards,
+                        @Value("${app.archive.retention:P365D}") Duration retention,
+                        @Value("${app.archive.batch-size:500}") int batchSize,
+                        @Value("${app.archive.max-batches-per-run:200}") int maxBatches,
+                        @Value("${app.archive.pause:PT0.2S}") Duration pause) {
+        this(archivedUserRepository, userRepository, userShards, retention, batchSize, maxBatches, pause,
+                Clock.systemDefaultZone());
+    }
+
+    UserArchiver(ArchivedUserRepository archivedUserRepository, UserRepository userRepository, UserShards userShards,
+                 Duration retention, int batchSize, int maxBatches, Duration pause, Clock clock) {
+        this.archivedUserRepository = archivedUserRepository;
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.pause = pause;
+        this.clock = clock;
+    }
+
+    @Scheduled(initialDelayString = "${app.archive.interval:PT1H}", fixedDelayString = "${app.archive.interval:PT1H}")
+    public void archive() {
+        for (int shard = 0; shard < userShards.shardCount() && !Thread.currentThread().isInterrupted(); shard++) {
+            archive(shard);
+        }
+    }
+
+    private void archive(int shard) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime cutoff = now.minus(retention);
+        long archived = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int moved = userShards.onShard(shard,
+                    () -> archivedUserRepository.archiveInactive(cutoff, batchSize, now));
+            archived += moved;
+            if (moved < batchSize || !pause()) {
+                break;
+            }
+        }
+
+        if (archived > 0) {
+            log.info("Archived {} users without a write since {} on shard {}", archived, cutoff, shard);
+        }
+        if (userShards.onShard(shard, userRepository::exceedsSharedBuffers)) {
+            log.warn("The users table on shard {} is larger than shared_buffers, consider a shorter " +
+                    "app.archive.retention than {}", shard, retention);
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
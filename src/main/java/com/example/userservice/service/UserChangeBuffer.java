@@ -0,0 +1,61 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserChangeDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring of the most recent changes in feed order. Readers ask for changes after a cursor and get
+ * {@code null} when that cursor has already been overwritten, so they can fall back to the database.
+ */
+final class UserChangeBuffer {
+    private final UserChangeDto[] ring;
+    private long size;
+    private long head;
+    // highest seq that is no longer in the ring; cursors at or above it are fully covered
+    private long floor;
+
+    UserChangeBuffer(int capacity, long startSeq) {
+        this.ring = new UserChangeDto[capacity];
+        this.head = startSeq;
+        this.floor = startSeq;
+    }
+
+    synchronized void append(UserChangeDto change) {
+        int slot = (int) (size % ring.length);
+        if (size >= ring.length) {
+            floor = ring[slot].seq();
+        }
+        ring[slot] = change;
+        size++;
+        head = change.seq();
+    }
+
+    synchronized long head() {
+        return head;
+    }
+
+    synchronized List<UserChangeDto> after(long cursor, int limit) {
+        if (cursor < floor) {
+            return null;
+        }
+        int count = (int) Math.min(size, ring.length);
+        long first = size - count;
+        long lo = first;
+        long hi = size;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (ring[(int) (mid % ring.length)].seq() <= cursor) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        List<UserChangeDto> result = new ArrayList<>((int) Math.min(limit, size - lo));
+        for (long i = lo; i < size && result.size() < limit; i++) {
+            result.add(ring[(int) (i % ring.length)]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.OffHeapUserMirror;
+import com.example.userservice.cache.UserReadCache;
+import com.example.userservice.datasource.ReadYourWrites;
+import com.example.userservice.dto.UserChangeDto;
+import com.example.userservice.dto.UserChangesDto;
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserTombstone;
+import com.example.userservice.exception.ChangeCursorExpiredException;
+import com.example.userservice.exception.ChangeFeedNotSupportedException;
+import com.example.userservice.exception.ServiceUnavailableException;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.repository.UserTombstoneRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Change feed over {@code change_seq}. A single poller reads new changes into a shared ring buffer and fans
+ * them out to SSE subscribers and long-polling requests, so the database sees one query per poll interval
+ * no matter how many consumers are attached. Only cursors older than the ring fall back to a query.
+ * <p>
+ * The poller never waits for a subscriber: it offers new changes to each subscriber's bounded queue, which
+ * fan-out threads drain into the emitter. A subscriber whose queue overflows has fallen behind and is
+ * disconnected; its client reconnects with Last-Event-ID and catches up from the ring or the database. A client
+ * that stops reading still holds one fan-out thread until its send fails on the connection's write timeout.
+ * <p>
+ * Sequence values are drawn before commit, so commits can land out of sequence order. Each poll reads the last
+ * drawn value and then the database's transaction horizon; once every transaction that was running at that point
+ * has finished, every change up to that value is final and the feed advances to it. A long write transaction
+ * holds the feed back rather than being skipped.
+ * <p>
+ * Settled changes are also applied to the {@link OffHeapUserMirror} and evict outdated {@link UserReadCache}
+ * entries, which keeps both current with writes made through other instances. Positions and tombstones are kept per database, so there is no feed while users are
+ * sharded.
+ */
+@Slf4j
+@Component
+public class UserChangeFeed {
+    static final int MAX_BATCH = 1000;
+    private static final Duration STARTING_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final UserRepository userRepository;
+    private final UserTombstoneRepository tombstoneRepository;
+    private final UserMapper userMapper;
+    private final OffHeapUserMirror userMirror;
+    private final UserReadCache userReadCache;
+    private final int bufferSize;
+    private final int batchSize;
+    private final Duration retention;
+    private final Duration sseTimeout;
+    private final int subscriberQueueSize;
+    private final boolean sharded;
+    private final Clock clock;
+    private final ExecutorService fanOut;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final List<Waiter> waiters = new CopyOnWriteArrayList<>();
+    private volatile UserChangeBuffer buffer;
+    private volatile Watermark pending;
+
+    @Autowired
+    public UserChangeFeed(UserRepository userRepository,
+                          UserTombstoneRepository tombstoneRepository,
+                          UserMapper userMapper,
+                          OffHeapUserMirror userMirror,
+                          UserReadCache userReadCache,
+                          @Value("${app.changes.buffer-size:4096}") int bufferSize,
+                          @Value("${app.changes.batch-size:500}") int batchSize,
+                          @Value("${app.changes.tombstone-retention:P7D}") Duration retention,
+                          @Value("${app.changes.sse-timeout:PT30M}") Duration sseTimeout,
+                          @Value("${app.changes.subscriber-queue-size:1000}") int subscriberQueueSize,
+                          @Value("${app.changes.fan-out-threads:4}") int fanOutThreads,
+                          @Value("${app.datasource.sharding.enabled:false}") boolean sharded) {
+        this(userRepository, tombstoneRepository, userMapper, userMirror, userReadCache, bufferSize, batchSize,
+                retention, sseTimeout, subscriberQueueSize, sharded, Clock.systemDefaultZone(),
+                Executors.newFixedThreadPool(fanOutThreads));
+    }
+
+    UserChangeFeed(UserRepository userRepository, UserTombstoneRepository tombstoneRepository, UserMapper userMapper,
+                   OffHeapUserMirror userMirror, UserReadCache userReadCache, int bufferSize, int batchSize,
+                   Duration retention, Duration sseTimeout, int subscriberQueueSize, boolean sharded, Clock clock,
+                   ExecutorService fanOut) {
+        this.userRepository = userRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.userMapper = userMapper;
+        this.userMirror = userMirror;
+        this.userReadCache = userReadCache;
+        this.bufferSize = bufferSize;
+        this.batchSize = Math.min(batchSize, MAX_BATCH);
+        this.retention = retention;
+        this.sseTimeout = sseTimeout;
+        this.subscriberQueueSize = subscriberQueueSize;
+        this.sharded = sharded;
+        this.clock = clock;
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * Moves the user to the head of the feed. Called inside the writing transaction.
+     */
+    public void userWritten(User user) {
+        user.setChangeSeq(userRepository.nextChangeSeq());
+        user.setUpdatedAt(LocalDateTime.now(clock));
+    }
+
+    /**
+     * Records the delete at the head of the feed. Called inside the deleting transaction, after the user has been
+     * removed: flushing that delete gives the transaction its xid before the tombstone draws a position.
+     */
+    public void userDeleted(Long id) {
+        if (sharded) {
+            return;
+        }
+        userRepository.flush();
+        tombstoneRepository.save(new UserTombstone(id, LocalDateTime.now(clock)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (sharded) {
+            log.info("The user change feed is off while users are sharded");
+            return;
+        }
+        int assigned = userRepository.assignMissingChangeSeqs();
+        if (assigned > 0) {
+            log.info("Assigned change feed positions to {} existing users", assigned);
+        }
+        pending = readWatermark();
+        // settles at once unless other transactions are running
+        poll();
+    }
+
+    @Scheduled(initialDelayString = "${app.changes.poll-interval:PT1S}",
+            fixedDelayString = "${app.changes.poll-interval:PT1S}")
+    public synchronized void poll() {
+        Watermark settling = pending;
+        if (settling == null) {
+            return;
+        }
+        Watermark next = readWatermark();
+        if (next.oldestRunning() < settling.nextXid()) {
+            // a transaction that may hold a position up to settling.seq() is still open
+            return;
+        }
+        pending = next;
+
+        UserChangeBuffer current = buffer;
+        if (current == null) {
+            buffer = new UserChangeBuffer(bufferSize, settling.seq());
+            subscribers.forEach(Subscriber::schedule);
+            waiters.forEach(waiter -> fanOut.execute(waiter::complete));
+            return;
+        }
+        List<UserChangeDto> appended = new ArrayList<>();
+        List<UserChangeDto> batch;
+        do {
+            batch = load(current.head(), settling.seq(), batchSize);
+            batch.forEach(current::append);
+            appended.addAll(batch);
+        } while (batch.size() == batchSize);
+
+        if (!appended.isEmpty()) {
+            userMirror.applyChanges(appended);
+            userReadCache.applyChanges(appended);
+            subscribers.forEach(subscriber -> subscriber.offer(appended));
+            waiters.forEach(waiter -> fanOut.execute(waiter::complete));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.changes.purge-interval:PT1H}",
+            fixedDelayString = "${app.changes.purge-interval:PT1H}")
+    public void purgeTombstones() {
+        int purged = tombstoneRepository.purgeBefore(LocalDateTime.now(clock).minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} user tombstones older than {}", purged, retention);
+        }
+    }
+
+    /**
+     * Changes after {@code since}, or an empty batch positioned at the head of the feed when no cursor is given.
+     * Until the feed's head has settled after startup there is no head to position at, and no changes either.
+     */
+    public UserChangesDto changesSince(Long since, int limit) {
+        checkSupported();
+        UserChangeBuffer current = buffer;
+        if (current == null) {
+            if (since == null) {
+                throw new ServiceUnavailableException(STARTING_RETRY_AFTER, null);
+            }
+            return new UserChangesDto(List.of(), since);
+        }
+        if (since == null) {
+            return new UserChangesDto(List.of(), current.head());
+        }
+        int capped = Math.max(1, Math.min(limit, MAX_BATCH));
+        List<UserChangeDto> changes = current.after(since, capped);
+        if (changes == null) {
+            changes = loadHistory(since, current.head(), capped);
+        }
+        long cursor = changes.isEmpty() ? since : changes.get(changes.size() - 1).seq();
+        return new UserChangesDto(changes, cursor);
+    }
+
+    public DeferredResult<UserChangesDto> awaitChanges(Long since, int limit, Duration wait) {
+        DeferredResult<UserChangesDto> result = new DeferredResult<>(wait.toMillis(),
+                () -> new UserChangesDto(List.of(), since));
+        UserChangesDto available = changesSince(since, limit);
+        if (since == null || !available.changes().isEmpty() || wait.isZero()) {
+            result.setResult(available);
+            return result;
+        }
+
+        Waiter waiter = new Waiter(since, limit, result);
+        waiters.add(waiter);
+        result.onCompletion(() -> waiters.remove(waiter));
+        UserChangeBuffer current = buffer;
+        // a poll may have landed between the check above and the registration
+        if (current != null && current.head() > since) {
+            waiter.complete();
+        }
+        return result;
+    }
+
+    public SseEmitter subscribe(Long since) {
+        checkSupported();
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, since != null ? since : changesSince(null, 0).cursor());
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscriber.schedule();
+        return emitter;
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        fanOut.shutdownNow();
+    }
+
+    private void checkSupported() {
+        if (sharded) {
+            throw new ChangeFeedNotSupportedException("The change feed is not supported while users are sharded");
+        }
+    }
+
+    private List<UserChangeDto> loadHistory(long since, long upTo, int limit) {
+        tombstoneRepository.findHorizon(LocalDateTime.now(clock).minus(retention))
+                .filter(horizon -> since + 1 < horizon)
+                .ifPresent(horizon -> {
+                    throw new ChangeCursorExpiredException(since);
+                });
+        return load(since, upTo, limit);
+    }
+
+    private Watermark readWatermark() {
+        return onPrimary(() -> {
+            // the horizon must be read after the position, so it covers every transaction that drew one up to it
+            long seq = userRepository.findLastChangeSeq();
+            UserRepository.TransactionHorizon horizon = userRepository.findTransactionHorizon();
+            return new Watermark(seq, horizon.getXmin(), horizon.getXmax());
+        });
+    }
+
+    private List<UserChangeDto> load(long after, long upTo, int limit) {
+        PageRequest page = PageRequest.ofSize(limit);
+        List<User> users = onPrimary(() -> userRepository.findChanges(after, upTo, page));
+        List<UserTombstone> tombstones = onPrimary(() -> tombstoneRepository.findChanges(after, upTo, page));
+
+        // both lists are ordered and limited, so the first `limit` of the merge are complete up to their last seq
+        List<UserChangeDto> changes = new ArrayList<>(Math.min(limit, users.size() + tombstones.size()));
+        int u = 0;
+        int t = 0;
+        while (changes.size() < limit && (u < users.size() || t < tombstones.size())) {
+            if (t == tombstones.size()
+                    || u < users.size() && users.get(u).getChangeSeq() < tombstones.get(t).getChangeSeq()) {
+                User user = users.get(u++);
+                changes.add(new UserChangeDto(user.getChangeSeq(), UserChangeDto.Type.UPSERT, user.getId(),
+                        userMapper.toDto(user)));
+            } else {
+                UserTombstone tombstone = tombstones.get(t++);
+                changes.add(new UserChangeDto(tombstone.getChangeSeq(), UserChangeDto.Type.DELETE,
+                        tombstone.getUserId(), null));
+            }
+        }
+        return changes;
+    }
+
+    // a lagging replica would make settled rows look absent and the cursor would move past them
+    private static <T> T onPrimary(Supplier<T> query) {
+        boolean pinned = ReadYourWrites.isPinnedToPrimary();
+        ReadYourWrites.pinToPrimary();
+        try {
+            return query.get();
+        } finally {
+            if (!pinned) {
+                ReadYourWrites.unpin();
+            }
+        }
+    }
+
+    /**
+     * The last drawn position, and the oldest running transaction and next xid as seen after drawing it.
+     */
+    private record Watermark(long seq, long oldestRunning, long nextXid) {
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<UserChangeDto> queue = new ArrayBlockingQueue<>(subscriberQueueSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean behind;
+        private boolean caughtUp;
+        private long cursor;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        // called by the poller, so it must not block
+        private void offer(List<UserChangeDto> changes) {
+            for (UserChangeDto change : changes) {
+                if (!queue.offer(change)) {
+                    behind = true;
+                    subscribers.remove(this);
+                    break;
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                fanOut.execute(this::drain);
+            }
+        }
+
+        private synchronized void drain() {
+            scheduled.set(false);
+            try {
+                if (!caughtUp) {
+                    // changes appended from here on are queued as well, so the catch-up and the queue overlap
+                    List<UserChangeDto> changes;
+                    do {
+                        changes = changesSince(cursor, batchSize).changes();
+                        for (UserChangeDto change : changes) {
+                            send(change);
+                        }
+                    } while (!changes.isEmpty() && !behind);
+                    caughtUp = buffer != null;
+                }
+                UserChangeDto change;
+                while (!behind && (change = queue.poll()) != null) {
+                    if (change.seq() > cursor) {
+                        send(change);
+                    }
+                }
+                if (behind) {
+                    log.debug("Disconnecting change feed subscriber at {}, it fell {} changes behind", cursor,
+                            subscriberQueueSize);
+                    emitter.complete();
+                }
+            } catch (ChangeCursorExpiredException | IOException | IllegalStateException e) {
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void send(UserChangeDto change) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(change.seq()))
+                    .name("user-change")
+                    .data(change, MediaType.APPLICATION_JSON));
+            cursor = change.seq();
+        }
+    }
+
+    private final class Waiter {
+        private final long since;
+        private final int limit;
+        private final DeferredResult<UserChangesDto> result;
+
+        private Waiter(long since, int limit, DeferredResult<UserChangesDto> result) {
+            this.since = since;
+            this.limit = limit;
+            this.result = result;
+        }
+
+        private void complete() {
+            if (result.isSetOrExpired()) {
+                return;
+            }
+            try {
+                result.setResult(changesSince(since, limit));
+            } catch (ChangeCursorExpiredException e) {
+                result.setErrorResult(e);
+            }
+        }
+    }
+}
@@ -1,37 +1,256 @@
 package com.example.userservice.service;
 
 import com.example.shared.dto.UserEvent;
-import lombok.RequiredArgsConstructor;
+import com.example.userservice.cache.LruCache;
+import com.example.userservice.cache.UserStateCodec;
+import com.example.userservice.dto.UserView;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Publishes user events, and the latest state of each user to the compacted state topic: keyed by id, valued
+ * with {@link UserStateCodec}, a tombstone once the user is deleted. The state producer is configured like the
+ * event producer apart from its serializers. Users whose state failed to send are remembered until
+ * {@link UserStateSync} sends them again.
+ * <p>
+ * A delete's tombstone carries the deleted version, and the ids of recently deleted users are kept with it: a
+ * state of that version or older, such as an update whose commit hook runs after the delete's, is dropped
+ * instead of being sent after the tombstone and bringing the user back. Sends for one id are serialized, so
+ * such a state cannot slip in between the check and the tombstone.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserEventPublisher {
+    private static final int REMOVED_USERS = 10_000;
+    private static final int ID_LOCKS = 64;
+
     private final KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private final KafkaTemplate<Long, byte[]> stateTemplate;
+    private final String userEventsTopic;
+    private final String userStateTopic;
+    private final Set<Long> unsentStates = ConcurrentHashMap.newKeySet();
+    private final LruCache<Long, Long> removedVersions = new LruCache<>(REMOVED_USERS);
+    private final Object[] idLocks = new Object[ID_LOCKS];
+
+    @Autowired
+    public UserEventPublisher(KafkaTemplate<String, UserEvent> kafkaTemplate,
+                              @Value("${spring.kafka.topic.name}") String userEventsTopic,
+                              @Value("${app.read-model.state-topic:users-state}") String userStateTopic) {
+        this(kafkaTemplate, stateTemplate(kafkaTemplate.getProducerFactory()), userEventsTopic, userStateTopic);
+    }
 
-    @Value("${spring.kafka.topic.name}")
-    private String userEventsTopic;
+    UserEventPublisher(KafkaTemplate<String, UserEvent> kafkaTemplate, KafkaTemplate<Long, byte[]> stateTemplate,
+                       String userEventsTopic, String userStateTopic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.stateTemplate = stateTemplate;
+        this.userEventsTopic = userEventsTopic;
+        this.userStateTopic = userStateTopic;
+        for (int i = 0; i < idLocks.length; i++) {
+            idLocks[i] = new Object();
+        }
+    }
+
+    private static KafkaTemplate<Long, byte[]> stateTemplate(ProducerFactory<String, UserEvent> events) {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(events.getConfigurationProperties(),
+                new LongSerializer(), new ByteArraySerializer()));
+    }
 
     public void publishUserCreatedEvent(String email, String name) {
-        UserEvent event = new UserEvent(UserEvent.EventType.CREATED, email, name);
-        log.info("Sent event to Kafka: {}", event);
-        kafkaTemplate.send(userEventsTopic, event).whenComplete((result, ex) -> {
-            if (ex == null) {
-                log.info("🟢 Sent to Kafka successfully: {}", result.getProducerRecord());
+        publish(new UserEvent(UserEvent.EventType.CREATED, email, name));
+    }
+
+    public void publishUserDeletedEvent(String email, String name) {
+        publish(new UserEvent(UserEvent.EventType.DELETED, email, name));
+    }
+
+    /**
+     * Sends the committed state of a created or updated user without waiting for the broker. Sends for the same
+     * user keep their order, and readers keep the highest version in case commits on different threads send out
+     * of order.
+     */
+    public void publishUserState(UserView user) {
+        synchronized (lockFor(user.id())) {
+            if (!isRemoved(user)) {
+                publishState(user.id(), UserStateCodec.encode(user), null);
+            }
+        }
+    }
+
+    /**
+     * Sends the tombstone of a user deleted at {@code version}; older states sent after it are dropped.
+     */
+    public void publishUserRemoved(Long id, Long version) {
+        synchronized (lockFor(id)) {
+            rememberRemoved(id, version);
+            publishState(id, null, version);
+        }
+    }
+
+    /**
+     * Sends the state of each user and a tombstone per removed id, and waits until the broker has acknowledged
+     * all of them. States older than a delete already sent are skipped.
+     */
+    public void publishUserStates(List<UserView> users, Collection<Long> removedIds, Duration timeout) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(users.size() + removedIds.size());
+        for (UserView user : users) {
+            synchronized (lockFor(user.id())) {
+                if (!isRemoved(user)) {
+                    sends.add(sendState(user.id(), UserStateCodec.encode(user), null));
+                }
+            }
+        }
+        for (Long id : removedIds) {
+            sends.add(sendState(id, null, null));
+        }
+        stateTemplate.flush();
+        await(sends, timeout, (users.size() + removedIds.size()) + " user states");
+    }
+
+    /**
+     * Remembers users whose state has to be sent again.
+     */
+    public void markUnsent(Collection<Long> ids) {
+        unsentStates.addAll(ids);
+    }
+
+    /**
+     * Returns and forgets the users whose latest state failed to send.
+     */
+    public Set<Long> drainUnsentStates() {
+        Set<Long> ids = new HashSet<>(unsentStates);
+        unsentStates.removeAll(ids);
+        return ids;
+    }
+
+    /**
+     * Sends a CREATED event and the state of each user in one producer batch and waits until the broker has
+     * acknowledged all of them.
+     */
+    public void publishUserCreatedEvents(List<UserView> users, Duration timeout) {
+        publishAll(UserEvent.EventType.CREATED, users, timeout);
+    }
+
+    /**
+     * Sends a DELETED event and a state tombstone per user in one producer batch and waits until the broker has
+     * acknowledged all of them, so a caller can commit the deletes only once their events are durable.
+     */
+    public void publishUserDeletedEvents(List<UserView> users, Duration timeout) {
+        publishAll(UserEvent.EventType.DELETED, users, timeout);
+    }
+
+    private void publishAll(UserEvent.EventType eventType, List<UserView> users, Duration timeout) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(2 * users.size());
+        for (UserView user : users) {
+            sends.add(kafkaTemplate.send(userEventsTopic, new UserEvent(eventType, user.email(), user.name())));
+            // sent before the deletes commit, so these ids are not remembered as removed: a rollback keeps them
+            if (eventType == UserEvent.EventType.DELETED) {
+                sends.add(sendState(user.id(), null, user.version()));
             } else {
-                log.error("🔴 Failed to send event to Kafka", ex);
+                sends.add(sendState(user.id(), UserStateCodec.encode(user), null));
+            }
+        }
+        kafkaTemplate.flush();
+        stateTemplate.flush();
+        await(sends, timeout, users.size() + " " + eventType + " events");
+    }
+
+    private static void await(List<CompletableFuture<?>> sends, Duration timeout, String what) {
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while sending " + what, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new KafkaException("Failed to send " + what, e);
+        }
+    }
+
+    private void publish(UserEvent event) {
+        kafkaTemplate.send(userEventsTopic, event).whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.error("Failed to send {} event to Kafka", event.getEventType(), ex);
+            } else if (log.isDebugEnabled()) {
+                // guarded so a disabled level costs no boxing or varargs array on the producer thread
+                RecordMetadata metadata = result.getRecordMetadata();
+                log.debug("Sent {} event to {}-{}@{}", event.getEventType(),
+                        metadata.topic(), metadata.partition(), metadata.offset());
             }
         });
+    }
 
+    private Object lockFor(Long id) {
+        return idLocks[Math.floorMod(id.hashCode(), idLocks.length)];
     }
 
-    public void publishUserDeletedEvent(String email, String name) {
-        UserEvent event = new UserEvent(UserEvent.EventType.DELETED, email, name);
-        kafkaTemplate.send(userEventsTopic, event);
+    private boolean isRemoved(UserView user) {
+        Long removed = removedVersions.get(user.id());
+        return removed != null && (user.version() == null || user.version() <= removed);
+    }
+
+    private void rememberRemoved(Long id, Long version) {
+        if (version != null) {
+            removedVersions.compute(id, (key, known) -> known != null && known > version ? known : version);
+        }
+    }
+
+    private void publishState(Long id, byte[] state, Long version) {
+        sendState(id, state, version).whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.error("Failed to send state of user {} to Kafka, sending it again later", id, ex);
+            }
+        });
+    }
+
+    /**
+     * Remembers the user if the send fails, also when the producer throws instead of failing the future. A
+     * tombstone's {@code version} goes into a header, as it has no value to carry it.
+     */
+    private CompletableFuture<?> sendState(Long id, byte[] state, Long version) {
+        ProducerRecord<Long, byte[]> record = new ProducerRecord<>(userStateTopic, id, state);
+        if (version != null) {
+            record.headers().add(UserStateCodec.VERSION_HEADER, UserStateCodec.encodeVersion(version));
+        }
+        CompletableFuture<?> send;
+        try {
+            send = stateTemplate.send(record);
+        } catch (RuntimeException e) {
+            send = CompletableFuture.failedFuture(e);
+        }
+        return send.whenComplete((result, ex) -> {
+            if (ex != null) {
+                unsentStates.add(id);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stateTemplate.getProducerFactory() instanceof DefaultKafkaProducerFactory<Long, byte[]> factory) {
+            factory.destroy();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,468 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.OffHeapUserMirror;
+import com.example.userservice.dto.CreateUserDto;
+import com.example.userservice.dto.UserImportDto;
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserImport;
+import com.example.userservice.entity.UserImport.Status;
+import com.example.userservice.exception.ImportNotSupportedException;
+import com.example.userservice.exception.InvalidImportException;
+import com.example.userservice.exception.UserImportNotFoundException;
+import com.example.userservice.repository.UserImportRepository;
+import com.example.userservice.repository.UserImportStagingRepository;
+import com.example.userservice.repository.UserImportStagingRepository.ImportedBatch;
+import com.example.userservice.repository.UserImportStagingRepository.MergeResult;
+import com.example.userservice.repository.UserImportStagingRepository.StagedRow;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.KafkaException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * Loads users from CSV ({@code name,email,age} in any column order, with a header row) without going through
+ * {@link UserService#createUser} per row. The upload is parsed and validated against the {@link CreateUserDto}
+ * constraints as it streams into the staging table over COPY, then merged into {@code users} in one statement;
+ * CREATED events are published in batches once that has committed. Memory use does not grow with the file.
+ * Rows that fail validation or whose email is taken are kept as the import's error report.
+ * <p>
+ * The change feed cannot move past a write transaction that is still open, so none of these spans the upload:
+ * rows are staged in transactions of {@code copy-batch-size} rows each, and the merge runs in a transaction of
+ * its own once the whole file is staged.
+ * <p>
+ * Each batch of events is sent in a transaction that also drops the batch's staged rows and counts them as
+ * published, so an import that failed to publish keeps exactly the rows whose events it still owes. Those are
+ * sent by {@link #resume} or on the next {@code republish-interval}. A running import holds a lease that each
+ * step extends; once it expires, because the instance stopped, the import is taken over the same way. Its counts
+ * are saved by the merge itself, so a take-over knows what it owes. One stopped before the merge committed
+ * created no users and is marked failed.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+    static final int MAX_FIELD_LENGTH = 1000;
+    static final int MAX_FIELDS = 32;
+    static final int MAX_EMAIL_LENGTH = 255;
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final List<String> COLUMNS = List.of("name", "email", "age");
+    private static final String INTERRUPTED = "Import was interrupted before its rows were merged, upload it again";
+
+    private final UserImportRepository importRepository;
+    private final UserImportStagingRepository stagingRepository;
+    private final UserShards userShards;
+    private final UserEventPublisher userEventPublisher;
+    private final UserStatistics userStatistics;
+    private final OffHeapUserMirror userMirror;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int copyBatchSize;
+    private final int eventBatchSize;
+    private final Duration eventTimeout;
+    private final Duration lease;
+    private final Duration retention;
+    private final Clock clock;
+
+    @Autowired
+    public UserImportService(UserImportRepository importRepository,
+                             UserImportStagingRepository stagingRepository,
+                             UserShards userShards,
+                             UserEventPublisher userEventPublisher,
+                             UserStatistics userStatistics,
+                             OffHeapUserMirror userMirror,
+                             Validator validator,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.import.copy-batch-size:10000}") int copyBatchSize,
+                             @Value("${app.import.event-batch-size:500}") int eventBatchSize,
+                             @Value("${app.import.event-timeout:PT30S}") Duration eventTimeout,
+                             @Value("${app.import.lease:PT5M}") Duration lease,
+                             @Value("${app.import.retention:P7D}") Duration retention) {
+        this(importRepository, stagingRepository, userShards, userEventPublisher, userStatistics, userMirror,
+                validator, new TransactionTemplate(transactionManager), copyBatchSize, eventBatchSize, eventTimeout,
+                lease, retention, Clock.systemDefaultZone());
+    }
+
+    UserImportService(UserImportRepository importRepository, UserImportStagingRepository stagingRepository,
+                      UserShards userShards, UserEventPublisher userEventPublisher, UserStatistics userStatistics,
+                      OffHeapUserMirror userMirror, Validator validator, TransactionTemplate transactionTemplate,
+                      int copyBatchSize, int eventBatchSize, Duration eventTimeout, Duration lease, Duration retention,
+                      Clock clock) {
+        this.importRepository = importRepository;
+        this.stagingRepository = stagingRepository;
+        this.userShards = userShards;
+        this.userEventPublisher = userEventPublisher;
+        this.userStatistics = userStatistics;
+        this.userMirror = userMirror;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.copyBatchSize = copyBatchSize;
+        this.eventBatchSize = eventBatchSize;
+        this.eventTimeout = eventTimeout;
+        this.lease = lease;
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    public UserImportDto importCsv(InputStream csv) {
+        if (userShards.isSharded()) {
+            throw new ImportNotSupportedException("CSV import is not supported while users are sharded");
+        }
+        CsvReader reader = new CsvReader(new InputStreamReader(csv, StandardCharsets.UTF_8), MAX_FIELD_LENGTH,
+                MAX_FIELDS);
+        int[] columns = readHeader(reader);
+
+        UserImport userImport = new UserImport();
+        userImport.setCreatedAt(LocalDateTime.now(clock));
+        userImport.setLeaseUntil(leaseUntil());
+        userImport = importRepository.save(userImport);
+        long id = userImport.getId();
+
+        StagedRows rows = new StagedRows(reader, columns);
+        MergeResult merged;
+        try {
+            while (rows.hasNext()) {
+                Iterator<StagedRow> batch = rows.limit(copyBatchSize);
+                transactionTemplate.executeWithoutResult(status -> {
+                    stagingRepository.copy(id, batch);
+                    importRepository.extendLease(id, leaseUntil());
+                });
+            }
+            merged = merge(userImport, rows);
+        } catch (RuntimeException e) {
+            log.error("User import {} failed at line {}", id, rows.line, e);
+            return finish(userImport, rows, null, Status.FAILED, e);
+        }
+        log.info("User import {} read {} rows and created {} users", id, rows.read, merged.imported());
+        userStatistics.reconcile();
+        userMirror.reload();
+
+        try {
+            publishImported(userImport);
+        } catch (KafkaException e) {
+            log.error("User import {} published {} of {} CREATED events", id, userImport.getPublished(),
+                    merged.imported(), e);
+            return finish(userImport, rows, merged, Status.FAILED, e);
+        }
+        return finish(userImport, rows, merged, Status.COMPLETED, null);
+    }
+
+    /**
+     * Sends the CREATED events a failed or abandoned import still owes. An import that owes none, or is running
+     * elsewhere, is returned as it is.
+     */
+    public UserImportDto resume(Long id) {
+        findImport(id);
+        if (claim(id)) {
+            republish(id);
+        }
+        return getImport(id);
+    }
+
+    @Scheduled(initialDelayString = "${app.import.republish-interval:PT1M}",
+            fixedDelayString = "${app.import.republish-interval:PT1M}")
+    public void resumeUnfinished() {
+        for (Long id : importRepository.findResumable(Status.FAILED, Status.RUNNING, LocalDateTime.now(clock))) {
+            if (claim(id)) {
+                log.info("Resuming user import {}", id);
+                republish(id);
+            }
+        }
+    }
+
+    public UserImportDto getImport(Long id) {
+        return UserImportDto.of(findImport(id));
+    }
+
+    /**
+     * Writes the rejected rows of an import as CSV, in file order, with the reason for each.
+     */
+    public void writeErrorReport(Long id, Writer out) {
+        findImport(id);
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                stagingRepository.writeRejected(id, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Scheduled(initialDelayString = "${app.import.purge-interval:PT1H}",
+            fixedDelayString = "${app.import.purge-interval:PT1H}")
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(retention);
+        Integer purged = transactionTemplate.execute(status -> {
+            stagingRepository.deleteRowsOfImportsCreatedBefore(cutoff);
+            return importRepository.deleteCreatedBefore(cutoff);
+        });
+        if (purged != null && purged > 0) {
+            log.info("Purged {} user imports created before {}", purged, cutoff);
+        }
+    }
+
+    private UserImport findImport(Long id) {
+        return importRepository.findById(id).orElseThrow(() -> new UserImportNotFoundException(id));
+    }
+
+    private boolean claim(Long id) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return importRepository.claim(id, now, now.plus(lease), Status.FAILED, Status.RUNNING) == 1;
+    }
+
+    private LocalDateTime leaseUntil() {
+        return LocalDateTime.now(clock).plus(lease);
+    }
+
+    /**
+     * Merges the staged rows and saves the counts in the same transaction, so they survive the instance.
+     */
+    private MergeResult merge(UserImport userImport, StagedRows rows) {
+        long id = userImport.getId();
+        LocalDateTime now = LocalDateTime.now(clock);
+        MergeResult merged = transactionTemplate.execute(status -> {
+            MergeResult result = stagingRepository.merge(id, now);
+            if (importRepository.recordMerged(id, rows.read, result.imported(), rows.rejected + result.rejected(),
+                    now, now.plus(lease), Status.RUNNING) == 0) {
+                // rolls the merge back
+                throw new IllegalStateException("User import " + id + " was given up on while it was merged");
+            }
+            return result;
+        });
+        userImport.setMergedAt(now);
+        return merged;
+    }
+
+    private void republish(Long id) {
+        UserImport userImport = findImport(id);
+        if (userImport.getMergedAt() == null && userImport.getImported() == 0) {
+            // its instance stopped before the merge committed; if that merge is still running, it wins
+            if (importRepository.failUnmerged(id, INTERRUPTED, LocalDateTime.now(clock), Status.RUNNING,
+                    Status.FAILED) == 1) {
+                log.warn("User import {} was interrupted before its rows were merged", id);
+            }
+            return;
+        }
+        try {
+            publishImported(userImport);
+        } catch (KafkaException e) {
+            log.warn("User import {} still owes {} CREATED events, retrying later", id,
+                    userImport.getImported() - userImport.getPublished(), e);
+            finish(userImport, Status.FAILED, e);
+            return;
+        }
+        finish(userImport, Status.COMPLETED, null);
+    }
+
+    /**
+     * Publishes the users of the import's accepted rows that are still staged, counting them as published.
+     */
+    private void publishImported(UserImport userImport) {
+        long id = userImport.getId();
+        long[] lastLine = {0};
+        int sent;
+        do {
+            sent = transactionTemplate.execute(status -> {
+                ImportedBatch batch = stagingRepository.findImported(id, lastLine[0], eventBatchSize);
+                if (!batch.users().isEmpty()) {
+                    // a failed send rolls the batch back, so its rows stay staged for the next attempt
+                    userEventPublisher.publishUserCreatedEvents(batch.users(), eventTimeout);
+                    importRepository.recordPublished(id, batch.users().size(), leaseUntil());
+                }
+                if (batch.users().size() < eventBatchSize) {
+                    stagingRepository.deleteAccepted(id);
+                } else {
+                    stagingRepository.deleteAccepted(id, batch.lastLine());
+                    lastLine[0] = batch.lastLine();
+                }
+                return batch.users().size();
+            });
+            userImport.setPublished(userImport.getPublished() + sent);
+        } while (sent == eventBatchSize);
+    }
+
+    private UserImportDto finish(UserImport userImport, StagedRows rows, MergeResult merged, Status status,
+                                 RuntimeException error) {
+        userImport.setRowsRead(rows.read);
+        userImport.setImported(merged != null ? merged.imported() : 0);
+        userImport.setRejected(merged != null ? rows.rejected + merged.rejected() : 0);
+        return finish(userImport, status, error);
+    }
+
+    private UserImportDto finish(UserImport userImport, Status status, RuntimeException error) {
+        userImport.setStatus(status);
+        userImport.setLeaseUntil(null);
+        userImport.setFinishedAt(LocalDateTime.now(clock));
+        String message = error != null ? String.valueOf(error.getMessage()) : null;
+        userImport.setError(message != null ? message.substring(0, Math.min(message.length(), MAX_ERROR_LENGTH))
+                : null);
+        return UserImportDto.of(importRepository.save(userImport));
+    }
+
+    /**
+     * Index of each of {@link #COLUMNS} in the header row.
+     */
+    private static int[] readHeader(CsvReader reader) {
+        CsvReader.Record header = nextRecord(reader);
+        if (header == null) {
+            throw new InvalidImportException("CSV is empty, expected a header row naming " + COLUMNS);
+        }
+        List<String> names = header.fields().stream()
+                .map(name -> name.replace("\uFEFF", "").strip().toLowerCase(Locale.ROOT))
+                .toList();
+        int[] columns = new int[COLUMNS.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = names.indexOf(COLUMNS.get(i));
+            if (columns[i] < 0) {
+                throw new InvalidImportException("CSV header must name the columns " + COLUMNS + ", found " + names);
+            }
+        }
+        return columns;
+    }
+
+    private static CsvReader.Record nextRecord(CsvReader reader) {
+        try {
+            CsvReader.Record record;
+            do {
+                record = reader.next();
+            } while (record != null && record.isBlank());
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    StagedRow stage(CsvReader.Record record, int[] columns) {
+        String name = field(record, columns[0]);
+        String email = field(record, columns[1]);
+        String age = field(record, columns[2]);
+        TreeSet<String> errors = new TreeSet<>();
+        if (record.problem() != null) {
+            errors.add(record.problem());
+        }
+        if (hasNul(name) || hasNul(email) || hasNul(age)) {
+            errors.add("Row contains a NUL character");
+            name = withoutNul(name);
+            email = withoutNul(email);
+            age = withoutNul(age);
+        }
+
+        CreateUserDto user = new CreateUserDto();
+        user.setName(name);
+        user.setEmail(email);
+        boolean ageIsNumber = true;
+        if (age != null && !age.isBlank()) {
+            try {
+                user.setAge(Integer.valueOf(age.strip()));
+            } catch (NumberFormatException e) {
+                ageIsNumber = false;
+                errors.add("Age must be a whole number");
+            }
+        }
+        for (ConstraintViolation<CreateUserDto> violation : validator.validate(user)) {
+            if (ageIsNumber || !"age".equals(violation.getPropertyPath().toString())) {
+                errors.add(violation.getMessage());
+            }
+        }
+        if (email != null && email.length() > MAX_EMAIL_LENGTH) {
+            errors.add("Email must be at most " + MAX_EMAIL_LENGTH + " characters");
+        }
+        return new StagedRow(record.line(), name, User.normalizeEmail(email), user.getAge(),
+                errors.isEmpty() ? null : String.join("; ", errors));
+    }
+
+    private static String field(CsvReader.Record record, int column) {
+        return column < record.fields().size() ? record.fields().get(column) : null;
+    }
+
+    private static boolean hasNul(String value) {
+        return value != null && value.indexOf('\0') >= 0;
+    }
+
+    private static String withoutNul(String value) {
+        return value != null ? value.replace("\0", "") : null;
+    }
+
+    /**
+     * The data rows of the upload, each parsed and validated only when the COPY stream asks for it.
+     */
+    private class StagedRows implements Iterator<StagedRow> {
+        private final CsvReader reader;
+        private final int[] columns;
+        private CsvReader.Record next;
+        private long line;
+        private long read;
+        private long rejected;
+
+        StagedRows(CsvReader reader, int[] columns) {
+            this.reader = reader;
+            this.columns = columns;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = nextRecord(reader);
+            }
+            return next != null;
+        }
+
+        @Override
+        public StagedRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            CsvReader.Record record = next;
+            next = null;
+            line = record.line();
+            read++;
+            StagedRow row = stage(record, columns);
+            if (row.error() != null) {
+                rejected++;
+            }
+            return row;
+        }
+
+        /**
+         * The next {@code max} rows at most, for one COPY.
+         */
+        Iterator<StagedRow> limit(int max) {
+            return new Iterator<>() {
+                private int left = max;
+
+                @Override
+                public boolean hasNext() {
+                    return left > 0 && StagedRows.this.hasNext();
+                }
+
+                @Override
+                public StagedRow next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    left--;
+                    return StagedRows.this.next();
+                }
+            };
+        }
+    }
+}
@@ -1,130 +1,502 @@
 package com.example.userservice.service;
 
+import com.example.userservice.cache.LastKnownGoodUsers;
+import com.example.userservice.cache.LastKnownGoodUsers.Stale;
+import com.example.userservice.cache.OffHeapUserMirror;
+import com.example.userservice.cache.UserEmailCache;
+import com.example.userservice.cache.UserReadCache;
+import com.example.userservice.cache.UserReadModel;
+import com.example.userservice.dto.UserChangesDto;
+import com.example.userservice.dto.UserCollectionVersion;
 import com.example.userservice.dto.UserDto;
+import com.example.userservice.dto.UserStatsDto;
+import com.example.userservice.dto.UserView;
 import com.example.userservice.dto.CreateUserDto;
+import com.example.userservice.dto.PatchUserDto;
 import com.example.userservice.entity.User;
 import com.example.userservice.exception.EmailAlreadyExistsException;
+import com.example.userservice.exception.PreconditionFailedException;
+import com.example.userservice.exception.ServiceUnavailableException;
 import com.example.userservice.exception.UserNotFoundException;
 import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.repository.ArchivedUserRepository;
 import com.example.userservice.repository.UserRepository;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.Collections;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private final UserRepository userRepository;
     private final UserMapper userMapper;
     private final UserEventPublisher userEventPublisher;
     private final CircuitBreakerFactory circuitBreakerFactory;
+    private final UserStatistics userStatistics;
+    private final UserReadCache userReadCache;
+    private final UserChangeFeed userChangeFeed;
+    private final ArchivedUserRepository archivedUserRepository;
+    private final UserShards userShards;
+    private final OffHeapUserMirror userMirror;
+    private final UserEmailCache userEmailCache;
+    private final LastKnownGoodUsers lastKnownGood;
+    private final UserReadModel readModel;
 
+    // not transactional, so reads from the read model or the mirror never check out a connection; the repository
+    // reads behind them run in read-only transactions of their own and go to a replica
     @CircuitBreaker(name = "userService", fallbackMethod = "getAllUsersFallback")
-    @Transactional(readOnly = true)
     public List<UserDto> getAllUsers() {
-        return userRepository.findAll().stream()
+        List<UserDto> users = readAllUsers();
+        lastKnownGood.putAll(users);
+        return users;
+    }
+
+    private List<UserDto> readAllUsers() {
+        Optional<List<UserView>> replicated = readModel.all();
+        List<UserView> users;
+        if (replicated.isPresent()) {
+            users = replicated.get();
+        } else if (userShards.isSharded()) {
+            users = userShards.findAllViews();
+        } else {
+            users = userMirror.all().orElseGet(userRepository::findAllViews);
+        }
+        return users.stream()
                 .map(userMapper::toDto)
                 .collect(Collectors.toList());
     }
 
-    private List<UserDto> getAllUsersFallback(Exception e) {
-        return Collections.emptyList();
+    /**
+     * Serves the last list read successfully, marked stale, while a background read through the breaker waits
+     * for the database to come back. Without one the client gets 503 and a Retry-After.
+     * <p>
+     * Fallbacks that use fields are package-private: resilience4j invokes them on the proxy, and only methods the
+     * proxy overrides reach the target's state.
+     */
+    List<UserDto> getAllUsersFallback(Exception e) {
+        Stale<List<UserDto>> stale = lastKnownGood.all().orElseThrow(() -> unavailable(e));
+        lastKnownGood.refreshAll(() -> lastKnownGood.putAll(throughBreaker(this::readAllUsers)));
+        StaleReads.served(lastKnownGood.age(stale));
+        return stale.value();
     }
 
+    // not transactional: cache hits must not check out a connection, misses read in UserReadCache's read-only
+    // transaction
     @CircuitBreaker(name = "userService", fallbackMethod = "getUserByIdFallback")
-    @Transactional(readOnly = true)
     public UserDto getUserById(Long id) {
-        return userMapper.toDto(getUserEntity(id));
+        UserDto user = findView(id)
+                .map(userMapper::toDto)
+                .orElseThrow(() -> new UserNotFoundException(id));
+        lastKnownGood.put(user);
+        return user;
+    }
+
+    UserDto getUserByIdFallback(Long id, UserNotFoundException e) {
+        lastKnownGood.evict(id);
+        throw e;
+    }
+
+    /**
+     * Like {@link #getAllUsersFallback}, for the last state read of this user.
+     */
+    UserDto getUserByIdFallback(Long id, Exception e) {
+        Stale<UserDto> stale = lastKnownGood.get(id).orElseThrow(() -> unavailable(e));
+        lastKnownGood.refresh(id, () -> throughBreaker(() -> findView(id)).ifPresentOrElse(
+                view -> lastKnownGood.put(userMapper.toDto(view)), () -> lastKnownGood.evict(id)));
+        StaleReads.served(lastKnownGood.age(stale));
+        return stale.value();
+    }
+
+    private <T> T throughBreaker(Supplier<T> read) {
+        return circuitBreakerFactory.create("userService").run(read);
+    }
+
+    private ServiceUnavailableException unavailable(Exception e) {
+        log.warn("User service unavailable: {}", e.toString());
+        return new ServiceUnavailableException(lastKnownGood.retryAfter(), e);
+    }
+
+    /**
+     * Two writes claiming the same email can both pass the uniqueness check; the later commit then fails on
+     * {@code uk_users_email_lower} and is reported like the check would have. The email indexes are the only
+     * unique ones on {@code users} that a write can break, ids being generated.
+     */
+    private RuntimeException emailTakenOrUnavailable(String email, DataIntegrityViolationException e) {
+        if (email != null && e.getMostSpecificCause() instanceof SQLException sqlException
+                && UNIQUE_VIOLATION.equals(sqlException.getSQLState())) {
+            return new EmailAlreadyExistsException(User.normalizeEmail(email));
+        }
+        return unavailable(e);
+    }
+
+    /**
+     * Looks the user up by email ignoring case. An email seen before resolves to its id through
+     * {@link UserEmailCache} and is then read like {@link #getUserById}, without a query while both caches are
+     * fresh. Not transactional, like getUserById. Has no stand-in user to fall back to: auth flows must see
+     * the failure.
+     */
+    @CircuitBreaker(name = "userService")
+    public UserDto getUserByEmail(String email) {
+        String normalized = User.normalizeEmail(email);
+        Optional<UserView> user = userEmailCache.get(normalized)
+                .flatMap(this::findView)
+                .filter(view -> hasEmail(view, normalized))
+                .or(() -> findViewByEmail(normalized));
+        user.ifPresentOrElse(view -> userEmailCache.put(normalized, view.id()),
+                () -> userEmailCache.evict(normalized));
+        return user
+                .map(userMapper::toDto)
+                .orElseThrow(() -> new UserNotFoundException(email));
+    }
+
+    private Optional<UserView> findView(Long id) {
+        if (readModel.isReady()) {
+            return readModel.get(id);
+        }
+        return userShards.isSharded()
+                ? userShards.onShardOf(id, () -> userReadCache.get(id))
+                : userMirror.get(id).or(() -> userReadCache.get(id));
+    }
+
+    private Optional<UserView> findViewByEmail(String email) {
+        if (readModel.isReady()) {
+            return readModel.findByEmail(email);
+        }
+        if (userShards.isSharded()) {
+            return userShards.findIdByEmail(email)
+                    .flatMap(this::findView)
+                    .filter(view -> hasEmail(view, email));
+        }
+        return userMirror.findByEmail(email).or(() -> userReadCache.loadByEmail(email));
+    }
+
+    private static boolean hasEmail(UserView user, String email) {
+        return email.equals(User.normalizeEmail(user.email()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserView> getUserViews(Collection<Long> ids) {
+        if (userShards.isSharded()) {
+            return userShards.findViewsByIdIn(ids);
+        }
+        return userRepository.findViewsByIdIn(ids);
+    }
+
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<UserView> consumer) {
+        if (userShards.isSharded()) {
+            userShards.forEachView(consumer);
+            return;
+        }
+        try (Stream<UserView> users = userRepository.streamAllViews()) {
+            users.forEach(consumer);
+        }
+    }
+
+    public UserStatsDto getStatistics() {
+        return userStatistics.snapshot();
+    }
+
+    // not transactional, like getAllUsers
+    @CircuitBreaker(name = "userService", fallbackMethod = "getUserVersionFallback")
+    public Long getUserVersion(Long id) {
+        if (readModel.isReady()) {
+            return readModel.get(id)
+                    .map(UserView::version)
+                    .orElseThrow(() -> new UserNotFoundException(id));
+        }
+        if (userShards.isSharded()) {
+            return userShards.onShardOf(id, () -> findVersion(id));
+        }
+        return findVersion(id);
+    }
+
+    private Long findVersion(Long id) {
+        return userRepository.findVersionById(id)
+                .or(() -> archivedUserRepository.findVersionById(id))
+                .orElseThrow(() -> new UserNotFoundException(id));
+    }
+
+    private Long getUserVersionFallback(Long id, UserNotFoundException e) {
+        throw e;
+    }
+
+    /**
+     * Unknown version: the caller skips its conditional check and reads the user, stale if need be.
+     */
+    private Long getUserVersionFallback(Long id, Exception e) {
+        return null;
+    }
+
+    // not transactional, like getAllUsers
+    @CircuitBreaker(name = "userService", fallbackMethod = "getUsersVersionFallback")
+    public UserCollectionVersion getUsersVersion() {
+        Optional<List<UserView>> replicated = readModel.all();
+        if (replicated.isPresent()) {
+            return UserCollectionVersion.ofViews(replicated.get());
+        }
+        if (userShards.isSharded()) {
+            return userShards.findCollectionVersion();
+        }
+        return userRepository.findCollectionVersion();
+    }
+
+    private UserCollectionVersion getUsersVersionFallback(Exception e) {
+        return null;
+    }
+
+    public DeferredResult<UserChangesDto> getChanges(Long since, int limit, Duration wait) {
+        return userChangeFeed.awaitChanges(since, limit, wait);
     }
 
-    private UserDto getUserByIdFallback(Long id, Exception e) {
-        UserDto fallback = new UserDto();
-        fallback.setId(id);
-        fallback.setName("Service unavailable");
-        fallback.setEmail("Service unavailable");
-        fallback.setAge(0);
-        return fallback;
+    public SseEmitter streamChanges(Long since) {
+        return userChangeFeed.subscribe(since);
     }
 
     @CircuitBreaker(name = "userService", fallbackMethod = "createUserFallback")
     @Transactional
     public UserDto createUser(CreateUserDto createUserDto) {
-        if (userRepository.existsByEmail(createUserDto.getEmail())) {
-            throw new EmailAlreadyExistsException(createUserDto.getEmail());
-        }
-
         User user = userMapper.toEntity(createUserDto);
+        userShards.place(user);
+        claimEmail(user, User.normalizeEmail(createUserDto.getEmail()));
+
+        userChangeFeed.userWritten(user);
         User savedUser = userRepository.save(user);
 
         userEventPublisher.publishUserCreatedEvent(savedUser.getEmail(), savedUser.getName());
+        userStatistics.userCreated(savedUser.getAge(), savedUser.getCreatedAt());
+        UserDto created = userMapper.toDto(savedUser);
+        cacheAfterCommit(savedUser, created);
+
+        return created;
+    }
 
-        return userMapper.toDto(savedUser);
+    private UserDto createUserFallback(CreateUserDto createUserDto, EmailAlreadyExistsException e) {
+        throw e;
     }
 
-    private UserDto createUserFallback(CreateUserDto createUserDto, Exception e) {
-        UserDto fallback = new UserDto();
-        fallback.setName("User creation failed");
-        fallback.setEmail("Service unavailable");
-        fallback.setAge(0);
-        return fallback;
+    UserDto createUserFallback(CreateUserDto createUserDto, DataIntegrityViolationException e) {
+        throw emailTakenOrUnavailable(createUserDto.getEmail(), e);
+    }
+
+    UserDto createUserFallback(CreateUserDto createUserDto, Exception e) {
+        throw unavailable(e);
     }
 
     @CircuitBreaker(name = "userService", fallbackMethod = "updateUserFallback")
     @Transactional
-    public UserDto updateUser(Long id, CreateUserDto updateUserDto) {
+    public UserDto updateUser(Long id, CreateUserDto updateUserDto, Long expectedVersion) {
+        userShards.bind(id);
         User user = getUserEntity(id);
+        checkVersion(user, expectedVersion);
+        return applyChanges(user, updateUserDto.getName(), updateUserDto.getEmail(), updateUserDto.getAge());
+    }
 
-        if (!user.getEmail().equals(updateUserDto.getEmail())) {
-            if (userRepository.existsByEmail(updateUserDto.getEmail())) {
-                throw new EmailAlreadyExistsException(updateUserDto.getEmail());
-            }
-        }
+    private UserDto updateUserFallback(Long id, CreateUserDto updateUserDto, Long expectedVersion,
+                                       PreconditionFailedException e) {
+        throw e;
+    }
+
+    private UserDto updateUserFallback(Long id, CreateUserDto updateUserDto, Long expectedVersion,
+                                       EmailAlreadyExistsException e) {
+        throw e;
+    }
+
+    UserDto updateUserFallback(Long id, CreateUserDto updateUserDto, Long expectedVersion,
+                               DataIntegrityViolationException e) {
+        throw emailTakenOrUnavailable(updateUserDto.getEmail(), e);
+    }
+
+    private UserDto updateUserFallback(Long id, CreateUserDto updateUserDto, Long expectedVersion,
+                                       UserNotFoundException e) {
+        throw e;
+    }
+
+    UserDto updateUserFallback(Long id, CreateUserDto updateUserDto, Long expectedVersion, Exception e) {
+        throw unavailable(e);
+    }
+
+    @CircuitBreaker(name = "userService", fallbackMethod = "patchUserFallback")
+    @Transactional
+    public UserDto patchUser(Long id, PatchUserDto patch, Long expectedVersion) {
+        userShards.bind(id);
+        User user = getUserEntity(id);
+        checkVersion(user, expectedVersion);
+        return applyChanges(user, patch.getName(), patch.getEmail(), patch.getAge());
+    }
+
+    private UserDto patchUserFallback(Long id, PatchUserDto patch, Long expectedVersion,
+                                      PreconditionFailedException e) {
+        throw e;
+    }
+
+    private UserDto patchUserFallback(Long id, PatchUserDto patch, Long expectedVersion,
+                                      EmailAlreadyExistsException e) {
+        throw e;
+    }
 
-        user.setName(updateUserDto.getName());
-        user.setEmail(updateUserDto.getEmail());
-        user.setAge(updateUserDto.getAge());
+    UserDto patchUserFallback(Long id, PatchUserDto patch, Long expectedVersion, DataIntegrityViolationException e) {
+        throw emailTakenOrUnavailable(patch.getEmail(), e);
+    }
 
-        return userMapper.toDto(userRepository.save(user));
+    private UserDto patchUserFallback(Long id, PatchUserDto patch, Long expectedVersion, UserNotFoundException e) {
+        throw e;
     }
 
-    private UserDto updateUserFallback(Long id, CreateUserDto updateUserDto, Exception e) {
-        UserDto fallback = new UserDto();
-        fallback.setId(id);
-        fallback.setName("Update failed");
-        fallback.setEmail("Service unavailable");
-        fallback.setAge(0);
-        return fallback;
+    UserDto patchUserFallback(Long id, PatchUserDto patch, Long expectedVersion, Exception e) {
+        throw unavailable(e);
     }
 
     @CircuitBreaker(name = "userService", fallbackMethod = "deleteUserFallback")
     @Transactional
-    public void deleteUser(Long id) {
-        User user = userRepository.findById(id)
+    public void deleteUser(Long id, Long expectedVersion) {
+        userShards.bind(id);
+        User user = findForWrite(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
+        checkVersion(user, expectedVersion);
 
         userEventPublisher.publishUserDeletedEvent(user.getEmail(), user.getName());
+        userStatistics.userDeleted(user.getAge(), user.getCreatedAt());
+        String email = user.getEmail();
+        Long version = user.getVersion();
+        TransactionHooks.afterCommit(() -> {
+            userReadCache.evict(id);
+            userMirror.remove(id);
+            userEmailCache.evict(email);
+            lastKnownGood.evict(id);
+            userEventPublisher.publishUserRemoved(id, version);
+        });
+        userShards.releaseEmailAfterCommit(user.getEmail(), id);
 
         userRepository.delete(user);
+        userChangeFeed.userDeleted(id);
+    }
+
+    private void deleteUserFallback(Long id, Long expectedVersion, PreconditionFailedException e) {
+        throw e;
+    }
+
+    private void deleteUserFallback(Long id, Long expectedVersion, UserNotFoundException e) {
+        throw e;
     }
 
-    private void deleteUserFallback(Long id, Exception e) {
-        log.error("Failed to delete user with id: {}", id, e);
+    void deleteUserFallback(Long id, Long expectedVersion, Exception e) {
+        throw unavailable(e);
+    }
+
+    /**
+     * Writes only the fields whose value differs (null means unchanged). A request that changes nothing returns
+     * the current state without a uniqueness check, a write or a new change feed entry.
+     */
+    private UserDto applyChanges(User user, String name, String newEmail, Integer age) {
+        String email = User.normalizeEmail(newEmail);
+        boolean nameChanged = name != null && !name.equals(user.getName());
+        boolean emailChanged = email != null && !email.equals(User.normalizeEmail(user.getEmail()));
+        boolean ageChanged = age != null && !age.equals(user.getAge());
+        if (!nameChanged && !emailChanged && !ageChanged) {
+            return userMapper.toDto(user);
+        }
+        if (emailChanged) {
+            claimEmail(user, email);
+            String oldEmail = user.getEmail();
+            TransactionHooks.afterCommit(() -> userEmailCache.evict(oldEmail));
+            userShards.releaseEmailAfterCommit(oldEmail, user.getId());
+        }
+
+        if (ageChanged) {
+            userStatistics.ageChanged(user.getAge(), age);
+        }
+        // draws the sequence before the entity is dirty, so the native query's auto-flush has nothing to write
+        userChangeFeed.userWritten(user);
+        if (nameChanged) {
+            user.setName(name);
+        }
+        if (emailChanged) {
+            user.setEmail(email);
+        }
+        if (ageChanged) {
+            user.setAge(age);
+        }
+
+        try {
+            User savedUser = userRepository.saveAndFlush(user);
+            UserDto saved = userMapper.toDto(savedUser);
+            cacheAfterCommit(savedUser, saved);
+            return saved;
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new PreconditionFailedException(user.getId());
+        }
+    }
+
+    private void cacheAfterCommit(User user, UserDto dto) {
+        UserView view = userMapper.toView(user);
+        String email = user.getEmail();
+        Long id = user.getId();
+        TransactionHooks.afterCommit(() -> {
+            userReadCache.put(view);
+            userMirror.put(view);
+            userEmailCache.put(email, id);
+            lastKnownGood.put(dto);
+            userEventPublisher.publishUserState(view);
+        });
+    }
+
+    private void checkVersion(User user, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new PreconditionFailedException(user.getId());
+        }
     }
 
     @CircuitBreaker(name = "userService", fallbackMethod = "getUserEntityFallback")
     private User getUserEntity(Long id) {
-        return userRepository.findById(id)
+        return findForWrite(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
     }
 
+    /**
+     * Loads a user for a write, first moving it back from the archive if the archiver had moved it out.
+     */
+    private Optional<User> findForWrite(Long id) {
+        Optional<User> user = userRepository.findById(id);
+        if (user.isEmpty() && archivedUserRepository.restore(id) > 0) {
+            user = userRepository.findById(id);
+        }
+        return user;
+    }
+
+    private void claimEmail(User user, String email) {
+        boolean available = userShards.isSharded()
+                ? userShards.reserveEmail(email, user.getId())
+                : !isEmailTaken(email);
+        if (!available) {
+            throw new EmailAlreadyExistsException(email);
+        }
+    }
+
+    private boolean isEmailTaken(String email) {
+        return userRepository.existsByEmail(email) || archivedUserRepository.existsByEmail(email);
+    }
+
     private User getUserEntityFallback(Long id, Exception e) {
         throw new UserNotFoundException(id);
     }
@@ -0,0 +1,227 @@
+package com.example.userservice.service;
+
+import com.example.userservice.datasource.ShardRouter;
+import com.example.userservice.datasource.Shards;
+import com.example.userservice.dto.UserCollectionVersion;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserEmail;
+import com.example.userservice.repository.ArchivedUserRepository;
+import com.example.userservice.repository.UserEmailRepository;
+import com.example.userservice.repository.UserRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Sends user reads and writes to the user's shard when {@code app.datasource.sharding.enabled} is set. Emails
+ * stay unique across shards through the directory on the home shard: a write reserves the new email there in a
+ * transaction of its own before writing the user, and the reservation is undone if the user's transaction rolls
+ * back. A reservation left behind by a crashed instance is taken over once it is older than
+ * {@code reservation-timeout} and its user does not have that email.
+ */
+@Component
+public class UserShards {
+    private static final int RESERVE_ATTEMPTS = 3;
+
+    private final ShardRouter router;
+    private final UserRepository userRepository;
+    private final ArchivedUserRepository archivedUserRepository;
+    private final UserEmailRepository userEmailRepository;
+    private final Duration reservationTimeout;
+    private final Clock clock;
+
+    @Autowired
+    public UserShards(ObjectProvider<ShardRouter> router,
+                      UserRepository userRepository,
+                      ArchivedUserRepository archivedUserRepository,
+                      UserEmailRepository userEmailRepository,
+                      @Value("${app.datasource.sharding.reservation-timeout:PT1M}") Duration reservationTimeout) {
+        this(router.getIfAvailable(), userRepository, archivedUserRepository, userEmailRepository,
+                reservationTimeout, Clock.systemDefaultZone());
+    }
+
+    UserShards(ShardRouter router, UserRepository userRepository, ArchivedUserRepository archivedUserRepository,
+               UserEmailRepository userEmailRepository, Duration reservationTimeout, Clock clock) {
+        this.router = router;
+        this.userRepository = userRepository;
+        this.archivedUserRepository = archivedUserRepository;
+        this.userEmailRepository = userEmailRepository;
+        this.reservationTimeout = reservationTimeout;
+        this.clock = clock;
+    }
+
+    public boolean isSharded() {
+        return router != null;
+    }
+
+    public int shardCount() {
+        return router != null ? router.shardCount() : 1;
+    }
+
+    /**
+     * Runs the work on the given shard in a transaction of its own, or as it is when users are not sharded.
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        return router != null ? router.onShard(shard, work) : work.get();
+    }
+
+    /**
+     * Runs the work on every shard, each in a transaction of its own, and returns the results in shard order; or
+     * runs it once as it is when users are not sharded.
+     */
+    public <T> List<T> onEachShard(Supplier<T> work) {
+        return router != null ? router.onEachShard(shard -> work.get()) : List.of(work.get());
+    }
+
+    /**
+     * Gives a new user its id and binds the current transaction to the user's shard. Must be called before the
+     * transaction's first query.
+     */
+    public void place(User user) {
+        if (router == null) {
+            return;
+        }
+        user.setId(router.nextId());
+        bind(user.getId());
+    }
+
+    /**
+     * Binds the current transaction to the shard of the given user until it completes. Must be called before
+     * the transaction's first query, which fixes the connection.
+     */
+    public void bind(Long id) {
+        if (router == null) {
+            return;
+        }
+        Shards.bind(router.shardOf(id));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                Shards.clear();
+            }
+        });
+    }
+
+    /**
+     * Runs the work on the user's shard in a transaction of its own.
+     */
+    public <T> T onShardOf(Long id, Supplier<T> work) {
+        return router.onShardOf(id, work);
+    }
+
+    public List<UserView> findAllViews() {
+        return router.merge((afterId, limit) -> userRepository.findViewsAfter(afterId, PageRequest.ofSize(limit)),
+                UserView::id).toList();
+    }
+
+    public void forEachView(Consumer<UserView> consumer) {
+        router.merge((afterId, limit) -> userRepository.findViewsAfter(afterId, PageRequest.ofSize(limit)),
+                UserView::id).forEachRemaining(consumer);
+    }
+
+    public List<UserView> findViewsByIdIn(Collection<Long> ids) {
+        Map<Integer, List<Long>> idsByShard = ids.stream().collect(Collectors.groupingBy(router::shardOf));
+        List<UserView> views = new ArrayList<>(ids.size());
+        for (Map.Entry<Integer, List<Long>> shardIds : idsByShard.entrySet()) {
+            views.addAll(router.onShard(shardIds.getKey(),
+                    () -> userRepository.findViewsByIdIn(shardIds.getValue())));
+        }
+        return views;
+    }
+
+    public UserCollectionVersion findCollectionVersion() {
+        return router.onEachShard(shard -> userRepository.findCollectionVersion()).stream()
+                .reduce(new UserCollectionVersion(0L, 0L, 0L), UserCollectionVersion::plus);
+    }
+
+    /**
+     * Reserves the email for the user, returning false when another user holds it. The reservation is undone
+     * if the current transaction rolls back.
+     */
+    public boolean reserveEmail(String email, Long userId) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (int attempt = 0; attempt < RESERVE_ATTEMPTS; attempt++) {
+            if (onHome(() -> userEmailRepository.reserve(email, userId, now)) == 1) {
+                releaseOnRollback(email, userId);
+                return true;
+            }
+            Optional<UserEmail> holder = onHome(() -> userEmailRepository.findById(email));
+            if (holder.isEmpty()) {
+                // released in between, try again
+                continue;
+            }
+            Long holderId = holder.get().getUserId();
+            if (holderId.equals(userId)) {
+                return true;
+            }
+            if (!isAbandoned(holder.get(), now)) {
+                return false;
+            }
+            if (onHome(() -> userEmailRepository.takeOver(email, holderId, userId, now)) == 1) {
+                releaseOnRollback(email, userId);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The id of the user holding the email in the directory. The holder may not have written the user yet, or
+     * may have been abandoned, so callers check the user's email.
+     */
+    public Optional<Long> findIdByEmail(String email) {
+        return onHome(() -> userEmailRepository.findById(email)).map(UserEmail::getUserId);
+    }
+
+    /**
+     * Gives up the user's email once the current transaction commits, after a delete or an email change.
+     */
+    public void releaseEmailAfterCommit(String email, Long userId) {
+        if (router == null) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> onHome(() -> userEmailRepository.release(email, userId)));
+    }
+
+    private boolean isAbandoned(UserEmail reservation, LocalDateTime now) {
+        if (reservation.getReservedAt().isAfter(now.minus(reservationTimeout))) {
+            return false;
+        }
+        Long holderId = reservation.getUserId();
+        String email = reservation.getEmail();
+        return !router.onShardOf(holderId, () -> userRepository.existsByIdAndEmail(holderId, email)
+                || archivedUserRepository.existsByIdAndEmail(holderId, email));
+    }
+
+    private void releaseOnRollback(String email, Long userId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    onHome(() -> userEmailRepository.release(email, userId));
+                }
+            }
+        });
+    }
+
+    private <T> T onHome(Supplier<T> work) {
+        return router.onShard(Shards.HOME, work);
+    }
+}
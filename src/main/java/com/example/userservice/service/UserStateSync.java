@@ -0,0 +1,209 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.UserReadModel;
+import com.example.userservice.datasource.ReadYourWrites;
+import com.example.userservice.dto.UserView;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the compacted user state topic in line with the database. Once the read model has replayed the topic,
+ * every user in the database is compared with it: users the topic lacks, or holds an older version of, are
+ * published again and users the database no longer has get a tombstone, each batch acknowledged before the next.
+ * Only then is the model marked ready. This seeds the topic on first use and repairs it on every start; a failed
+ * backfill is retried every {@code republish-interval}. In between, the states of users whose send failed are
+ * read from the database and sent again on the same schedule.
+ * <p>
+ * Both read the primary: a user a lagging replica does not have yet would otherwise get a tombstone. A user
+ * absent there is gone, so only those ids are tombstoned. A state read from the database can still reach the
+ * topic after a newer one sent by a concurrent write; readers keep the newest version, and states older than a
+ * delete already sent are dropped by {@link UserEventPublisher}. The next start's backfill repairs the rest.
+ */
+@Slf4j
+@Component
+public class UserStateSync {
+    private final UserReadModel readModel;
+    private final UserService userService;
+    private final UserEventPublisher userEventPublisher;
+    private final Duration publishTimeout;
+    private final int batchSize;
+    private final Executor executor;
+    private volatile boolean backfillFailed;
+
+    @Autowired
+    public UserStateSync(UserReadModel readModel,
+                         UserService userService,
+                         UserEventPublisher userEventPublisher,
+                         @Value("${app.read-model.publish-timeout:PT30S}") Duration publishTimeout,
+                         @Value("${app.read-model.backfill-batch-size:500}") int batchSize) {
+        this(readModel, userService, userEventPublisher, publishTimeout, batchSize,
+                Executors.newSingleThreadExecutor());
+    }
+
+    UserStateSync(UserReadModel readModel, UserService userService, UserEventPublisher userEventPublisher,
+                  Duration publishTimeout, int batchSize, Executor executor) {
+        this.readModel = readModel;
+        this.userService = userService;
+        this.userEventPublisher = userEventPublisher;
+        this.publishTimeout = publishTimeout;
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (readModel.isEnabled()) {
+            readModel.start().thenRunAsync(this::backfill, executor);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.read-model.republish-interval:PT30S}",
+            fixedDelayString = "${app.read-model.republish-interval:PT30S}")
+    public void repair() {
+        if (backfillFailed) {
+            backfill();
+        }
+        republishUnsent();
+    }
+
+    synchronized void backfill() {
+        backfillFailed = false;
+        long start = System.nanoTime();
+        Backfill backfill = new Backfill(readModel.snapshot().iterator());
+        try {
+            onPrimary(() -> {
+                userService.forEachUser(backfill);
+                return null;
+            });
+            backfill.finish();
+        } catch (RuntimeException e) {
+            backfillFailed = true;
+            log.warn("Failed to backfill the user state topic, reads stay on the database until a retry succeeds",
+                    e);
+            return;
+        }
+        log.info("Backfilled the user state topic with {} states and {} tombstones in {} ms", backfill.published,
+                backfill.removed, (System.nanoTime() - start) / 1_000_000);
+        readModel.markReady();
+    }
+
+    synchronized void republishUnsent() {
+        List<Long> ids = new ArrayList<>(userEventPublisher.drainUnsentStates());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            try {
+                List<UserView> users = onPrimary(() -> userService.getUserViews(batch));
+                Set<Long> removed = new HashSet<>(batch);
+                users.forEach(user -> removed.remove(user.id()));
+                userEventPublisher.publishUserStates(users, removed, publishTimeout);
+                log.info("Sent the states of {} users again after a failed send", batch.size());
+            } catch (RuntimeException e) {
+                userEventPublisher.markUnsent(ids.subList(from, ids.size()));
+                log.warn("Failed to send the states of {} users again, retrying later", ids.size() - from, e);
+                return;
+            }
+        }
+    }
+
+    private static <T> T onPrimary(Supplier<T> query) {
+        boolean pinned = ReadYourWrites.isPinnedToPrimary();
+        ReadYourWrites.pinToPrimary();
+        try {
+            return query.get();
+        } finally {
+            if (!pinned) {
+                ReadYourWrites.unpin();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges the database's users with the model's, both in id order, and publishes the differences in batches.
+     */
+    private final class Backfill implements Consumer<UserView> {
+        private final Iterator<UserView> replayed;
+        private final List<UserView> states = new ArrayList<>();
+        private final List<Long> tombstones = new ArrayList<>();
+        private UserView next;
+        private long published;
+        private long removed;
+
+        private Backfill(Iterator<UserView> replayed) {
+            this.replayed = replayed;
+            this.next = replayed.hasNext() ? replayed.next() : null;
+        }
+
+        @Override
+        public void accept(UserView user) {
+            while (next != null && next.id() < user.id()) {
+                tombstones.add(next.id());
+                advance();
+            }
+            if (next != null && next.id().equals(user.id())) {
+                if (versionOf(next) < versionOf(user)) {
+                    states.add(user);
+                }
+                advance();
+            } else {
+                states.add(user);
+            }
+            if (states.size() + tombstones.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void finish() {
+            while (next != null) {
+                tombstones.add(next.id());
+                advance();
+            }
+            flush();
+        }
+
+        private void advance() {
+            next = replayed.hasNext() ? replayed.next() : null;
+        }
+
+        private void flush() {
+            if (states.isEmpty() && tombstones.isEmpty()) {
+                return;
+            }
+            userEventPublisher.publishUserStates(states, tombstones, publishTimeout);
+            states.forEach(readModel::put);
+            tombstones.forEach(readModel::remove);
+            published += states.size();
+            removed += tombstones.size();
+            states.clear();
+            tombstones.clear();
+        }
+    }
+
+    private static long versionOf(UserView user) {
+        return user.version() != null ? user.version() : 0L;
+    }
+}
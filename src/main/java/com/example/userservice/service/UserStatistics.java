@@ -0,0 +1,212 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.AgeCount;
+import com.example.userservice.dto.DayCount;
+import com.example.userservice.dto.UserStatsDto;
+import com.example.userservice.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory user counters, seeded from an aggregate query at startup, updated by {@link UserService} on every
+ * committed write and periodically reconciled against the database to correct drift. Archived users are counted,
+ * and while users are sharded the aggregates of every shard are summed.
+ * <p>
+ * Updates that arrive while a reconcile rebuilds the counters are applied to the old counters and replayed onto
+ * the rebuilt ones before they replace them, so none is lost. The aggregates read one snapshot per shard, taken
+ * at the first query after the rebuild starts; a write that commits in that short gap is both counted and
+ * replayed, and stays counted twice until the next reconcile.
+ */
+@Slf4j
+@Component
+public class UserStatistics {
+    static final int MIN_AGE = 1;
+    static final int MAX_AGE = 120;
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final int days;
+    private final Clock clock;
+    // updates hold the read lock, so a reconcile can swap the counters between them
+    private final ReadWriteLock swap = new ReentrantReadWriteLock();
+    private volatile Counters counters = new Counters();
+    private Queue<Consumer<Counters>> pendingUpdates;
+    private volatile Instant reconciledAt;
+
+    @Autowired
+    public UserStatistics(UserRepository userRepository, UserShards userShards,
+                          @Value("${app.stats.days:30}") int days) {
+        this(userRepository, userShards, days, Clock.systemDefaultZone());
+    }
+
+    UserStatistics(UserRepository userRepository, UserShards userShards, int days, Clock clock) {
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.days = days;
+        this.clock = clock;
+    }
+
+    public void userCreated(Integer age, LocalDateTime createdAt) {
+        updateAfterCommit(current -> current.add(age, createdAt, 1));
+    }
+
+    public void userDeleted(Integer age, LocalDateTime createdAt) {
+        updateAfterCommit(current -> current.add(age, createdAt, -1));
+    }
+
+    public void ageChanged(Integer oldAge, Integer newAge) {
+        if (oldAge.equals(newAge)) {
+            return;
+        }
+        updateAfterCommit(current -> {
+            current.age(oldAge).decrement();
+            current.age(newAge).increment();
+        });
+    }
+
+    private void updateAfterCommit(Consumer<Counters> update) {
+        TransactionHooks.afterCommit(() -> {
+            swap.readLock().lock();
+            try {
+                update.accept(counters);
+                Queue<Consumer<Counters>> pending = pendingUpdates;
+                if (pending != null) {
+                    pending.add(update);
+                }
+            } finally {
+                swap.readLock().unlock();
+            }
+        });
+    }
+
+    public UserStatsDto snapshot() {
+        Counters current = counters;
+        Map<Integer, Long> ages = new LinkedHashMap<>();
+        for (int age = MIN_AGE; age <= MAX_AGE; age++) {
+            ages.put(age, current.ages[age - MIN_AGE].sum());
+        }
+        Map<LocalDate, Long> perDay = new LinkedHashMap<>();
+        LocalDate today = LocalDate.now(clock);
+        for (LocalDate day = firstDay(); !day.isAfter(today); day = day.plusDays(1)) {
+            LongAdder count = current.perDay.get(day);
+            perDay.put(day, count != null ? count.sum() : 0L);
+        }
+
+        UserStatsDto stats = new UserStatsDto();
+        stats.setTotal(current.total.sum());
+        stats.setAgeHistogram(ages);
+        stats.setCreatedPerDay(perDay);
+        stats.setReconciledAt(reconciledAt);
+        return stats;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.stats.reconcile-interval:PT5M}",
+            fixedDelayString = "${app.stats.reconcile-interval:PT5M}")
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void reconcile() {
+        Queue<Consumer<Counters>> pending = new ConcurrentLinkedQueue<>();
+        withSwapLock(() -> pendingUpdates = pending);
+        try {
+            Counters fresh = new Counters();
+            userShards.onEachShard(this::count).forEach(fresh::addAll);
+
+            withSwapLock(() -> {
+                pending.forEach(update -> update.accept(fresh));
+                long drift = fresh.total.sum() - counters.total.sum();
+                if (drift != 0 && reconciledAt != null) {
+                    log.info("Reconciled user statistics, total drifted by {}", drift);
+                }
+                counters = fresh;
+            });
+            reconciledAt = clock.instant();
+        } finally {
+            withSwapLock(() -> pendingUpdates = null);
+        }
+    }
+
+    private void withSwapLock(Runnable action) {
+        swap.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            swap.writeLock().unlock();
+        }
+    }
+
+    private Counters count() {
+        Counters counted = new Counters();
+        counted.total.add(userRepository.countWithArchived());
+        for (AgeCount ageCount : userRepository.countByAge()) {
+            counted.age(ageCount.age()).add(ageCount.count());
+        }
+        for (DayCount dayCount : userRepository.countCreatedPerDaySince(firstDay().atStartOfDay())) {
+            counted.day(dayCount.day()).add(dayCount.count());
+        }
+        return counted;
+    }
+
+    private LocalDate firstDay() {
+        return LocalDate.now(clock).minusDays(days - 1L);
+    }
+
+    private static final class Counters {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder[] ages = new LongAdder[MAX_AGE - MIN_AGE + 1];
+        private final Map<LocalDate, LongAdder> perDay = new ConcurrentHashMap<>();
+        // absorbs ages outside the validated range so they never index out of bounds
+        private final LongAdder outOfRange = new LongAdder();
+
+        private Counters() {
+            for (int i = 0; i < ages.length; i++) {
+                ages[i] = new LongAdder();
+            }
+        }
+
+        private LongAdder age(Integer age) {
+            return age != null && age >= MIN_AGE && age <= MAX_AGE ? ages[age - MIN_AGE] : outOfRange;
+        }
+
+        private LongAdder day(LocalDate day) {
+            return perDay.computeIfAbsent(day, d -> new LongAdder());
+        }
+
+        private void addAll(Counters other) {
+            total.add(other.total.sum());
+            for (int i = 0; i < ages.length; i++) {
+                ages[i].add(other.ages[i].sum());
+            }
+            other.perDay.forEach((day, count) -> day(day).add(count.sum()));
+            outOfRange.add(other.outOfRange.sum());
+        }
+
+        private void add(Integer age, LocalDateTime createdAt, int delta) {
+            total.add(delta);
+            age(age).add(delta);
+            if (createdAt != null) {
+                day(createdAt.toLocalDate()).add(delta);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.userservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caller-side latency of the event publisher's log statements with synchronous and asynchronous loggers.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="EventLoggingBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class EventLoggingBenchmark {
+    private static final String CONFIG = "-Dlog4j2.configurationFile=log4j2-benchmark.xml";
+    private static final String SYNC = "-Dlog4j2.contextSelector=org.apache.logging.log4j.core.selector.ClassLoaderContextSelector";
+    private static final String ASYNC = "-Dlog4j2.contextSelector=org.apache.logging.log4j.core.async.AsyncLoggerContextSelector";
+
+    private static final Logger log = LoggerFactory.getLogger(EventLoggingBenchmark.class);
+
+    private final String eventType = "CREATED";
+    private final String topic = "user-events";
+    private int partition = 1;
+    private long offset = 42L;
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG, SYNC})
+    public void infoSync() {
+        log.info("Sent {} event to {}-{}@{}", eventType, topic, partition, offset);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG, ASYNC})
+    public void infoAsync() {
+        log.info("Sent {} event to {}-{}@{}", eventType, topic, partition, offset);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG, ASYNC})
+    public void disabledDebugGuarded() {
+        if (log.isDebugEnabled()) {
+            log.debug("Sent {} event to {}-{}@{}", eventType, topic, partition, offset);
+        }
+    }
+}
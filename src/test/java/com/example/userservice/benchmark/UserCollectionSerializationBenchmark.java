@@ -0,0 +1,99 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.config.BinaryFormatsConfig;
+import com.example.userservice.controller.HalUserCollection;
+import com.example.userservice.controller.HalUserCollectionConverter;
+import com.example.userservice.dto.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the HAL user list the way {@code GET /api/users} did before (models and links per user, then Jackson
+ * bean serialization) against {@link HalUserCollectionConverter}, which streams the same bytes.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="UserCollectionSerializationBenchmark -prof gc"
+ * </pre>
+ * Compare {@code gc.alloc.rate.norm} for the bytes allocated per response. The Jackson side builds its links with
+ * {@code Link.of}, leaving out the request-based link building the controller did on top.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserCollectionSerializationBenchmark {
+    private static final String USERS_HREF = "http://localhost:8080/api/users";
+
+    @Param({"100", "10000"})
+    private int users;
+
+    private ObjectMapper halMapper;
+    private HalUserCollectionConverter converter;
+    private List<UserDto> userDtos;
+
+    @State(Scope.Thread)
+    public static class Output {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            bytes.reset();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        halMapper = BinaryFormatsConfig.withHal(objectMapper.copy(), new DefaultLinkRelationProvider(),
+                MessageResolver.DEFAULTS_ONLY);
+        converter = new HalUserCollectionConverter(objectMapper);
+
+        userDtos = new ArrayList<>(users);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 10, 0);
+        for (long id = 1; id <= users; id++) {
+            UserDto user = new UserDto();
+            user.setId(id);
+            user.setName("User " + id);
+            user.setEmail("user" + id + "@example.com");
+            user.setAge(20 + (int) (id % 80));
+            user.setCreatedAt(createdAt.plusSeconds(id * 61).plusNanos(id * 1000));
+            user.setVersion(0L);
+            userDtos.add(user);
+        }
+    }
+
+    @Benchmark
+    public int jacksonHal(Output output) throws Exception {
+        List<EntityModel<UserDto>> content = new ArrayList<>(userDtos.size());
+        for (UserDto user : userDtos) {
+            content.add(EntityModel.of(user,
+                    Link.of(USERS_HREF + "/" + user.getId()).withSelfRel(),
+                    Link.of(USERS_HREF + "/" + user.getId()).withRel("user-details")));
+        }
+        halMapper.writeValue(output.bytes, CollectionModel.of(content,
+                Link.of(USERS_HREF).withSelfRel(), Link.of(USERS_HREF).withRel("create-user")));
+        return output.bytes.size();
+    }
+
+    @Benchmark
+    public int streaming(Output output) throws Exception {
+        converter.write(new HalUserCollection(userDtos, USERS_HREF), output.bytes);
+        return output.bytes.size();
+    }
+}
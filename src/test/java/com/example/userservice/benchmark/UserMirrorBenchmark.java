@@ -0,0 +1,86 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.cache.OffHeapUserStore;
+import com.example.userservice.dto.UserDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.mapper.UserMapperImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.Link;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares keeping every user on the heap as a linked {@link UserDto}, as a heap cache of the entity path would,
+ * with keeping them in an {@link OffHeapUserStore}. Setup prints the heap each variant retains and how long a full
+ * collection takes with it resident; the benchmark itself serves random lookups.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="UserMirrorBenchmark -prof gc"
+ * </pre>
+ * Compare the printed retained heap and full GC time, and {@code gc.time} / {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=1g"})
+public class UserMirrorBenchmark {
+
+    @Param("1000000")
+    private int users;
+
+    @Param({"heap", "offHeap"})
+    private String store;
+
+    private final UserMapper userMapper = new UserMapperImpl();
+    private Map<Long, UserDto> heap;
+    private OffHeapUserStore offHeap;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long before = usedHeap();
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        if (store.equals("heap")) {
+            heap = new HashMap<>(users * 2);
+        } else {
+            offHeap = new OffHeapUserStore(users);
+        }
+        for (long id = 1; id <= users; id++) {
+            UserView user = new UserView(id, "User " + id, "user" + id + "@bench.com", 20 + (int) (id % 80),
+                    createdAt, 0L);
+            if (heap != null) {
+                UserDto dto = userMapper.toDto(user);
+                dto.add(Link.of("/api/users/" + id));
+                heap.put(id, dto);
+            } else {
+                offHeap.put(user);
+            }
+        }
+
+        long retained = usedHeap() - before;
+        long start = System.nanoTime();
+        System.gc();
+        System.out.printf("%n%s: %d users retain %d MB of heap, full GC took %d ms%n", store, users,
+                retained >> 20, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Benchmark
+    public UserDto getUserById() {
+        long id = ThreadLocalRandom.current().nextLong(1, users + 1);
+        if (heap != null) {
+            return heap.get(id);
+        }
+        return userMapper.toDto(offHeap.get(id).orElseThrow());
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.config.BinaryFormatsConfig;
+import com.example.userservice.dto.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost and payload size of a 1k-user page in each format the API can produce.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="UserPayloadFormatBenchmark -prof gc"
+ * </pre>
+ * {@code payloadBytes} in the secondary results is the encoded size per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserPayloadFormatBenchmark {
+
+    public enum Format {
+        JSON, HAL_JSON, CBOR, SMILE
+    }
+
+    @Param({"JSON", "HAL_JSON", "CBOR", "SMILE"})
+    private Format format;
+
+    @Param("1000")
+    private int users;
+
+    private ObjectMapper mapper;
+    private CollectionModel<EntityModel<UserDto>> page;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadSize {
+        public long payloadBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapper = switch (format) {
+            case JSON -> newMapper(new ObjectMapper());
+            case HAL_JSON -> hal(newMapper(new ObjectMapper()));
+            case CBOR -> hal(newMapper(new ObjectMapper(new CBORFactory())));
+            case SMILE -> hal(newMapper(new ObjectMapper(new SmileFactory())));
+        };
+
+        List<EntityModel<UserDto>> content = new ArrayList<>(users);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 10, 0);
+        for (long id = 1; id <= users; id++) {
+            UserDto user = new UserDto();
+            user.setId(id);
+            user.setName("User " + id);
+            user.setEmail("user" + id + "@example.com");
+            user.setAge(20 + (int) (id % 80));
+            user.setCreatedAt(createdAt.plusMinutes(id));
+            user.setVersion(0L);
+            content.add(EntityModel.of(user,
+                    Link.of("http://localhost:8080/api/users/" + id).withSelfRel(),
+                    Link.of("http://localhost:8080/api/users/" + id).withRel("user-details")));
+        }
+        page = CollectionModel.of(content,
+                Link.of("http://localhost:8080/api/users").withRel(IanaLinkRelations.SELF),
+                Link.of("http://localhost:8080/api/users").withRel("create-user"));
+    }
+
+    @Benchmark
+    public byte[] serializePage(PayloadSize size) throws Exception {
+        byte[] payload = mapper.writeValueAsBytes(page);
+        size.payloadBytes = payload.length;
+        return payload;
+    }
+
+    private static ObjectMapper newMapper(ObjectMapper mapper) {
+        return mapper.registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static ObjectMapper hal(ObjectMapper mapper) {
+        return BinaryFormatsConfig.withHal(mapper, new DefaultLinkRelationProvider(), MessageResolver.DEFAULTS_ONLY);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.dto.UserDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.entity.User;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.mapper.UserMapperImpl;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compares the managed-entity read path with the constructor-projection read path.
+ * Run against a throwaway database (the schema is created and dropped):
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Djmh.args="UserReadPathBenchmark -prof gc -jvmArgsAppend -Dbench.db.url=jdbc:postgresql://localhost:5432/user_bench"
+ * </pre>
+ * Compare {@code gc.alloc.rate.norm} (bytes/op) between the entity and projection variants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserReadPathBenchmark {
+
+    private static final String VIEW_BY_ID = "select new com.example.userservice.dto.UserView(" +
+            "u.id, u.name, u.email, u.age, u.createdAt, u.version) from User u where u.id = :id";
+    private static final String ALL_VIEWS = "select new com.example.userservice.dto.UserView(" +
+            "u.id, u.name, u.email, u.age, u.createdAt, u.version) from User u order by u.id";
+
+    @Param("1000")
+    private int users;
+
+    private final UserMapper userMapper = new UserMapperImpl();
+    private SessionFactory sessionFactory;
+    private Long sampleId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(User.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL,
+                        System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5432/user_bench"))
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, System.getProperty("bench.db.user", "postgres"))
+                .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, System.getProperty("bench.db.password", "1111"))
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "100")
+                .buildSessionFactory();
+
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < users; i++) {
+                session.persist(new User("User " + i, "user" + i + "@bench.com", 20 + i % 80));
+            }
+        });
+        sampleId = sessionFactory.fromSession(session ->
+                session.createQuery("select min(u.id) from User u", Long.class).getSingleResult()) + users / 2;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public UserDto getUserById_entity() {
+        return readOnly(session -> userMapper.toDto(session.find(User.class, sampleId)));
+    }
+
+    @Benchmark
+    public UserDto getUserById_projection() {
+        return readOnly(session -> userMapper.toDto(session.createQuery(VIEW_BY_ID, UserView.class)
+                .setParameter("id", sampleId)
+                .getSingleResult()));
+    }
+
+    @Benchmark
+    public List<UserDto> getAllUsers_entity() {
+        return readOnly(session -> session.createQuery("from User u order by u.id", User.class)
+                .getResultStream()
+                .map(userMapper::toDto)
+                .toList());
+    }
+
+    @Benchmark
+    public List<UserDto> getAllUsers_projection() {
+        return readOnly(session -> session.createQuery(ALL_VIEWS, UserView.class)
+                .getResultStream()
+                .map(userMapper::toDto)
+                .toList());
+    }
+
+    private <T> T readOnly(Function<Session, T> work) {
+        try (Session session = sessionFactory.openSession()) {
+            // mirrors what HibernateJpaDialect does for @Transactional(readOnly = true)
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            session.beginTransaction();
+            T result = work.apply(session);
+            session.getTransaction().commit();
+            return result;
+        }
+    }
+}
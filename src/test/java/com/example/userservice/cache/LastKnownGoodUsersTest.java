@@ -0,0 +1,118 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LastKnownGoodUsersTest {
+    private static final Instant NOW = Instant.parse("2024-01-10T12:00:00Z");
+
+    private ExecutorService refresher;
+    private LastKnownGoodUsers users;
+
+    @BeforeEach
+    void setUp() {
+        refresher = Executors.newSingleThreadExecutor();
+        users = new LastKnownGoodUsers(2, Duration.ofSeconds(30), Clock.fixed(NOW, ZoneOffset.UTC), refresher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        users.stop();
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyReadUser() {
+        users.put(user(1L));
+        users.put(user(2L));
+        users.get(1L);
+        users.put(user(3L));
+
+        assertThat(users.get(1L)).isPresent();
+        assertThat(users.get(2L)).isEmpty();
+        assertThat(users.get(3L)).isPresent();
+    }
+
+    @Test
+    void putAll_ShouldOnlyKeepListsWithinMaxSize() {
+        users.putAll(List.of(user(1L), user(2L)));
+        assertThat(users.all()).map(LastKnownGoodUsers.Stale::value).contains(List.of(user(1L), user(2L)));
+
+        users.putAll(List.of(user(1L), user(2L), user(3L)));
+        assertThat(users.all()).isEmpty();
+    }
+
+    @Test
+    void age_ShouldMeasureFromWhenStored() {
+        LastKnownGoodUsers.Stale<UserDto> stale = new LastKnownGoodUsers.Stale<>(user(1L),
+                NOW.minusSeconds(42).toEpochMilli());
+
+        assertThat(users.age(stale)).isEqualTo(Duration.ofSeconds(42));
+    }
+
+    @Test
+    void refresh_ShouldRunOneProbePerUserAtATime() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicInteger probes = new AtomicInteger();
+        Runnable blockingProbe = () -> {
+            probes.incrementAndGet();
+            await(release);
+            done.countDown();
+        };
+
+        users.refresh(1L, blockingProbe);
+        users.refresh(1L, blockingProbe);
+        users.refresh(2L, () -> {
+            probes.incrementAndGet();
+            done.countDown();
+        });
+        release.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(probes).hasValue(2);
+    }
+
+    @Test
+    void refresh_ShouldAllowNextProbe_AfterOneFails() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        users.refresh(1L, () -> {
+            throw new IllegalStateException("Database still down");
+        });
+        refresher.submit(() -> {
+        }).get(5, TimeUnit.SECONDS);
+
+        users.refresh(1L, done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static UserDto user(Long id) {
+        UserDto user = new UserDto();
+        user.setId(id);
+        user.setName("User " + id);
+        return user;
+    }
+}
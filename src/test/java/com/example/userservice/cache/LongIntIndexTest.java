@@ -0,0 +1,28 @@
+package com.example.userservice.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntIndexTest {
+
+    @Test
+    void find_ShouldStopAfterOneLap_WhenValuesAreNotYetFilled() {
+        LongIntIndex index = new LongIntIndex(16);
+        index.put(7L, 1);
+        // what an optimistic reader can see while a rehash allocates its arrays
+        ReflectionTestUtils.setField(index, "values", new int[32]);
+
+        assertThat(index.get(8L)).isEqualTo(LongIntIndex.ABSENT);
+    }
+
+    @Test
+    void find_ShouldReturnAbsent_WhenArraysAreFromDifferentTables() {
+        LongIntIndex index = new LongIntIndex(16);
+        index.put(7L, 1);
+        ReflectionTestUtils.setField(index, "keys", new long[64]);
+
+        assertThat(index.get(7L)).isEqualTo(LongIntIndex.ABSENT);
+    }
+}
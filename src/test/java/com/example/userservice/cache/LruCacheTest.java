@@ -0,0 +1,43 @@
+package com.example.userservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LruCacheTest {
+
+    @Test
+    void put_ShouldStayBounded_UnderConcurrentWriters() throws InterruptedException {
+        LruCache<Integer, Integer> cache = new LruCache<>(160);
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        for (int w = 0; w < 4; w++) {
+            int offset = w * 10_000;
+            writers.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    cache.put(offset + i, i);
+                    cache.get(offset + i / 2);
+                }
+            });
+        }
+        writers.shutdown();
+        assertThat(writers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // a writer that finds eviction in progress leaves it to the other, so the last few puts can overshoot
+        assertThat(cache.size()).isBetween(160, 160 + 160 / 16 + 4);
+    }
+
+    @Test
+    void compute_ShouldKeepRecencyOfUnchangedValue() {
+        LruCache<Integer, String> cache = new LruCache<>(2);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.compute(1, (key, value) -> value);
+        cache.put(3, "c");
+
+        assertThat(cache.valuesMostRecentFirst(10)).containsExactly("c", "a");
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserView;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapUserStoreTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 1, 1, 12, 30, 15, 123_000_000);
+
+    private final OffHeapUserStore store = new OffHeapUserStore(16);
+
+    @Test
+    void put_ShouldMakeUserFindableByIdAndEmail() {
+        UserView user = user(7L, "ana@example.com", 3L);
+
+        assertThat(store.put(user)).isTrue();
+
+        assertThat(store.get(7L)).contains(user);
+        assertThat(store.findByEmail("ana@example.com")).contains(user);
+        assertThat(store.get(8L)).isEmpty();
+    }
+
+    @Test
+    void put_ShouldReplaceOlderVersionAndMoveEmailIndex() {
+        store.put(user(7L, "old@example.com", 1L));
+
+        store.put(user(7L, "new@example.com", 2L));
+
+        assertThat(store.get(7L)).contains(user(7L, "new@example.com", 2L));
+        assertThat(store.findByEmail("old@example.com")).isEmpty();
+        assertThat(store.findByEmail("new@example.com")).isPresent();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void put_ShouldKeepNewerVersion() {
+        store.put(user(7L, "new@example.com", 5L));
+
+        store.put(user(7L, "old@example.com", 4L));
+
+        assertThat(store.get(7L).orElseThrow().version()).isEqualTo(5L);
+    }
+
+    @Test
+    void put_ShouldRejectUserThatDoesNotFitTheLayout() {
+        store.put(user(7L, "ana@example.com", 1L));
+
+        assertThat(store.put(user(7L, "x".repeat(300) + "@example.com", 2L))).isFalse();
+
+        assertThat(store.get(7L)).isEmpty();
+        assertThat(store.findByEmail("ana@example.com")).isEmpty();
+    }
+
+    @Test
+    void remove_ShouldDropUserAndKeepOthersReachable() {
+        for (long id = 1; id <= 1000; id++) {
+            store.put(user(id, "user" + id + "@example.com", 0L));
+        }
+
+        for (long id = 1; id <= 1000; id += 2) {
+            store.remove(id);
+        }
+
+        assertThat(store.size()).isEqualTo(500);
+        for (long id = 1; id <= 1000; id++) {
+            assertThat(store.get(id).isPresent()).isEqualTo(id % 2 == 0);
+            assertThat(store.findByEmail("user" + id + "@example.com").isPresent()).isEqualTo(id % 2 == 0);
+        }
+    }
+
+    @Test
+    void all_ShouldReturnUsersInIdOrderAcrossSlabs() {
+        int users = OffHeapUserStore.SLAB_RECORDS + 10;
+        for (long id = users; id >= 1; id--) {
+            store.put(user(id, "user" + id + "@example.com", 0L));
+        }
+
+        assertThat(store.all()).extracting(UserView::id).isSorted().hasSize(users);
+        assertThat(store.offHeapBytes()).isEqualTo(2L * OffHeapUserStore.SLAB_RECORDS * UserRecordLayout.RECORD_SIZE);
+    }
+
+    @Test
+    void get_ShouldNeverReturnTornRecord_WhileUserIsRewritten() throws Exception {
+        store.put(user(1L, "v0@example.com", 0L));
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Future<?> writes = writer.submit(() -> {
+            for (long version = 1; version <= 20_000; version++) {
+                store.put(user(1L, "v" + version + "@example.com", version));
+            }
+            done.set(true);
+        });
+
+        while (!done.get()) {
+            UserView read = store.get(1L).orElseThrow();
+            assertThat(read.email()).isEqualTo("v" + read.version() + "@example.com");
+        }
+        writes.get();
+        writer.shutdown();
+        assertThat(writer.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static UserView user(long id, String email, long version) {
+        return new UserView(id, "User " + id, email, 30, CREATED, version);
+    }
+}
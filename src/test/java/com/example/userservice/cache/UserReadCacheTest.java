@@ -0,0 +1,189 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserChangeDto;
+import com.example.userservice.dto.UserDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.repository.ArchivedUserRepository;
+import com.example.userservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserReadCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ArchivedUserRepository archivedUserRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MutableClock clock;
+    private UserReadCache cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        cache = new UserReadCache(userRepository, archivedUserRepository,
+                new TransactionTemplate(transactionManager), 2, Duration.ofSeconds(5), clock);
+    }
+
+    @Test
+    void get_ShouldLoadOnMissAndServeFreshEntryWithoutQueries() {
+        when(userRepository.findViewById(1L)).thenReturn(Optional.of(view(1L, 0L)));
+
+        assertThat(cache.get(1L)).contains(view(1L, 0L));
+        assertThat(cache.get(1L)).contains(view(1L, 0L));
+
+        verify(userRepository, times(1)).findViewById(1L);
+        verify(userRepository, never()).findVersionById(any());
+        verify(transactionManager, times(1)).getTransaction(argThat(definition -> definition.isReadOnly()));
+    }
+
+    @Test
+    void get_ShouldRevalidateByVersion_AfterEntryAges() {
+        cache.put(view(1L, 0L));
+        clock.advance(Duration.ofSeconds(6));
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(0L));
+
+        assertThat(cache.get(1L)).contains(view(1L, 0L));
+
+        verify(userRepository, never()).findViewById(any());
+    }
+
+    @Test
+    void get_ShouldReloadSnapshotEntry_WhenVersionChanged() {
+        cache.putUnverified(view(1L, 0L));
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(1L));
+        when(userRepository.findViewById(1L)).thenReturn(Optional.of(view(1L, 1L)));
+
+        assertThat(cache.get(1L)).contains(view(1L, 1L));
+    }
+
+    @Test
+    void get_ShouldDropSnapshotEntry_WhenUserWasDeleted() {
+        cache.putUnverified(view(1L, 0L));
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThat(cache.get(1L)).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void get_ShouldFallBackToArchive_WhenUserWasArchived() {
+        when(userRepository.findViewById(1L)).thenReturn(Optional.empty());
+        when(archivedUserRepository.findViewById(1L)).thenReturn(Optional.of(view(1L, 3L)));
+
+        assertThat(cache.get(1L)).contains(view(1L, 3L));
+
+        clock.advance(Duration.ofSeconds(6));
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.empty());
+        when(archivedUserRepository.findVersionById(1L)).thenReturn(Optional.of(3L));
+
+        assertThat(cache.get(1L)).contains(view(1L, 3L));
+        verify(archivedUserRepository, times(1)).findViewById(1L);
+    }
+
+    @Test
+    void loadByEmail_ShouldFallBackToArchiveAndCacheResult() {
+        when(userRepository.findViewByEmail("user1@example.com")).thenReturn(Optional.empty());
+        when(archivedUserRepository.findViewByEmail("user1@example.com")).thenReturn(Optional.of(view(1L, 3L)));
+
+        assertThat(cache.loadByEmail("user1@example.com")).contains(view(1L, 3L));
+        assertThat(cache.get(1L)).contains(view(1L, 3L));
+
+        verify(transactionManager, times(1)).getTransaction(argThat(definition -> definition.isReadOnly()));
+        verify(archivedUserRepository, never()).findViewById(any());
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsed() {
+        cache.put(view(1L, 0L));
+        cache.put(view(2L, 0L));
+        cache.get(1L);
+        cache.put(view(3L, 0L));
+
+        assertThat(cache.hottest(10)).extracting(UserView::id).containsExactly(3L, 1L);
+    }
+
+    @Test
+    void put_ShouldKeepNewerVersion_WhenSlowerLoadFinishesLast() {
+        cache.put(view(1L, 2L));
+        cache.put(view(1L, 1L));
+
+        assertThat(cache.get(1L)).contains(view(1L, 2L));
+    }
+
+    @Test
+    void applyChanges_ShouldEvictEntriesOlderThanTheChange() {
+        cache.put(view(1L, 0L));
+        cache.put(view(2L, 3L));
+
+        cache.applyChanges(List.of(upsert(1L, 1L), upsert(2L, 3L)));
+
+        assertThat(cache.hottest(10)).extracting(UserView::id).containsExactly(2L);
+    }
+
+    @Test
+    void applyChanges_ShouldEvictDeletedUsers() {
+        cache.put(view(1L, 0L));
+
+        cache.applyChanges(List.of(new UserChangeDto(2L, UserChangeDto.Type.DELETE, 1L, null)));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    private static UserChangeDto upsert(Long id, Long version) {
+        UserDto user = new UserDto();
+        user.setId(id);
+        user.setVersion(version);
+        return new UserChangeDto(1L, UserChangeDto.Type.UPSERT, id, user);
+    }
+
+    private static UserView view(Long id, Long version) {
+        return new UserView(id, "User " + id, "user" + id + "@test.com", 30,
+                LocalDateTime.of(2024, 1, 1, 10, 0), version);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
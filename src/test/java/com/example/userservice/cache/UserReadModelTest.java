@@ -0,0 +1,155 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserReadModelTest {
+    private static final String TOPIC = "users-state";
+    private static final TopicPartition P0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition P1 = new TopicPartition(TOPIC, 1);
+
+    private final Queue<MockConsumer<Long, byte[]>> consumers = new ConcurrentLinkedQueue<>();
+    private MockConsumer<Long, byte[]> first;
+    private MockConsumer<Long, byte[]> second;
+    private SimpleMeterRegistry meterRegistry;
+    private UserReadModel readModel;
+
+    @BeforeEach
+    void setUp() {
+        first = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        second = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumers.add(first);
+        consumers.add(second);
+        first.updatePartitions(TOPIC, List.of(
+                new PartitionInfo(TOPIC, 0, null, null, null),
+                new PartitionInfo(TOPIC, 1, null, null, null)));
+        for (MockConsumer<Long, byte[]> consumer : consumers) {
+            consumer.updateBeginningOffsets(Map.of(P0, 0L, P1, 0L));
+        }
+        meterRegistry = new SimpleMeterRegistry();
+        readModel = new UserReadModel(consumers::poll, meterRegistry, true, TOPIC, 2, 16, Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        readModel.stop();
+    }
+
+    @Test
+    void start_ShouldReplayEveryPartitionAndWaitToBeMarkedReady() throws Exception {
+        first.updateEndOffsets(Map.of(P0, 3L, P1, 1L));
+        first.schedulePollTask(() -> {
+            first.addRecord(state(P0, 0, user(1L, 0L)));
+            first.addRecord(state(P0, 1, user(2L, 0L)));
+            first.addRecord(new ConsumerRecord<>(TOPIC, 0, 2, 1L, null));
+        });
+        second.schedulePollTask(() -> second.addRecord(state(P1, 0, user(3L, 0L))));
+
+        assertThat(readModel.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(readModel.all()).isEmpty();
+        readModel.start().get(5, TimeUnit.SECONDS);
+
+        assertThat(readModel.snapshot()).extracting(UserView::id).containsExactly(2L, 3L);
+        assertThat(readModel.all()).isEmpty();
+        assertThat(readModel.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        readModel.markReady();
+
+        assertThat(readModel.all()).hasValueSatisfying(users ->
+                assertThat(users).extracting(UserView::id).containsExactly(2L, 3L));
+        assertThat(readModel.get(1L)).isEmpty();
+        assertThat(readModel.findByEmail("user3@example.com")).map(UserView::id).contains(3L);
+        assertThat(readModel.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(meterRegistry.get("users.read_model.users").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("users.read_model.replay.remaining").gauge().value()).isZero();
+        assertThat(meterRegistry.get("users.read_model.ready").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("users.read_model.records").tag("outcome", "applied").functionCounter().count())
+                .isEqualTo(4);
+    }
+
+    @Test
+    void apply_ShouldKeepNewestVersionAndSkipUnreadableStates() throws Exception {
+        first.updateEndOffsets(Map.of(P0, 0L, P1, 0L));
+        readModel.start().get(5, TimeUnit.SECONDS);
+
+        readModel.apply(state(P0, 0, user(1L, 2L)));
+        readModel.apply(state(P1, 0, user(1L, 1L)));
+        readModel.apply(new ConsumerRecord<>(TOPIC, 0, 1, 2L, new byte[]{(byte) 0xff}));
+
+        assertThat(readModel.get(1L)).map(UserView::version).contains(2L);
+        assertThat(readModel.get(2L)).isEmpty();
+        assertThat(meterRegistry.get("users.read_model.records").tag("outcome", "skipped").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void health_ShouldBeDown_WhenTopicCannotBeRead() throws InterruptedException {
+        first.setPollException(new KafkaException("Broker gone"));
+        first.updateEndOffsets(Map.of(P0, 1L, P1, 0L));
+        CompletableFuture<Void> replayed = readModel.start();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (readModel.health().getStatus() != Status.DOWN && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(readModel.health().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(replayed).isCompletedExceptionally();
+        readModel.markReady();
+        assertThat(readModel.isReady()).isFalse();
+    }
+
+    @Test
+    void stop_ShouldCloseConsumers() throws Exception {
+        first.updateEndOffsets(Map.of(P0, 0L, P1, 0L));
+        readModel.start().get(5, TimeUnit.SECONDS);
+
+        readModel.stop();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!(first.closed() && second.closed()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(first.closed()).isTrue();
+        assertThat(second.closed()).isTrue();
+    }
+
+    @Test
+    void health_ShouldBeUp_WhenDisabled() {
+        UserReadModel disabled = new UserReadModel(consumers::poll, meterRegistry, false, TOPIC, 2, 16,
+                Duration.ofMillis(10));
+        disabled.start();
+
+        assertThat(disabled.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(disabled.isReady()).isFalse();
+        assertThat(consumers).hasSize(2);
+    }
+
+    private static ConsumerRecord<Long, byte[]> state(TopicPartition partition, long offset, UserView user) {
+        return new ConsumerRecord<>(TOPIC, partition.partition(), offset, user.id(), UserStateCodec.encode(user));
+    }
+
+    private static UserView user(Long id, Long version) {
+        return new UserView(id, "User " + id, "user" + id + "@example.com", 30,
+                LocalDateTime.of(2024, 1, 10, 12, 0), version);
+    }
+}
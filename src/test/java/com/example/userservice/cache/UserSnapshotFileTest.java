@@ -0,0 +1,89 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.dto.UserView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserSnapshotFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeAndRead_ShouldRoundTripUsersInOrder() throws IOException {
+        Path snapshot = tempDir.resolve("hot-users.snapshot");
+        List<UserView> users = List.of(
+                new UserView(1L, "Zoë Ångström", "zoe@test.com", 33, LocalDateTime.of(2024, 1, 2, 3, 4, 5, 600), 2L),
+                new UserView(2L, "John Doe", "john@test.com", 41, LocalDateTime.of(2023, 5, 6, 7, 8, 9), 0L));
+
+        int written = UserSnapshotFile.write(snapshot, users);
+        List<UserView> read = new ArrayList<>();
+        int count = UserSnapshotFile.read(snapshot, read::add);
+
+        assertThat(written).isEqualTo(2);
+        assertThat(count).isEqualTo(2);
+        assertThat(read).containsExactlyElementsOf(users);
+        assertThat(Files.size(snapshot))
+                .isEqualTo(UserSnapshotFile.HEADER_SIZE + 2L * UserRecordLayout.RECORD_SIZE);
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void write_ShouldCreateOwnerOnlyFileAndDirectory() throws IOException {
+        Path snapshot = tempDir.resolve("user-service").resolve("hot-users.snapshot");
+
+        UserSnapshotFile.write(snapshot, List.of(
+                new UserView(1L, "John Doe", "john@test.com", 41, LocalDateTime.of(2023, 5, 6, 7, 8, 9), 0L)));
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(snapshot))).isEqualTo("rw-------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(snapshot.getParent())))
+                .isEqualTo("rwx------");
+    }
+
+    @Test
+    void write_ShouldSkipUsersThatDoNotFitTheLayout() throws IOException {
+        Path snapshot = tempDir.resolve("hot-users.snapshot");
+        String longEmail = "a".repeat(300) + "@test.com";
+
+        int written = UserSnapshotFile.write(snapshot, List.of(
+                new UserView(1L, "Long Email", longEmail, 30, LocalDateTime.of(2024, 1, 1, 0, 0), 0L)));
+
+        assertThat(written).isZero();
+    }
+
+    @Test
+    void read_ShouldRejectForeignFile() throws IOException {
+        Path snapshot = tempDir.resolve("hot-users.snapshot");
+        Files.write(snapshot, new byte[64]);
+
+        assertThatThrownBy(() -> UserSnapshotFile.read(snapshot, user -> { }))
+                .isInstanceOf(IOException.class);
+    }
+    @Test
+    void read_ShouldRejectRecordWhoseLengthsOverrunTheLayout() throws IOException {
+        Path snapshot = tempDir.resolve("hot-users.snapshot");
+        UserSnapshotFile.write(snapshot, List.of(
+                new UserView(1L, "John Doe", "john@test.com", 41, LocalDateTime.of(2023, 5, 6, 7, 8, 9), 0L)));
+        byte[] bytes = Files.readAllBytes(snapshot);
+        ByteBuffer.wrap(bytes).putShort(UserSnapshotFile.HEADER_SIZE + 32, (short) 4000);
+        Files.write(snapshot, bytes);
+
+        assertThatThrownBy(() -> UserSnapshotFile.read(snapshot, user -> { }))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("corrupt record 0");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.userservice.config;
+
+import com.example.userservice.controller.HalUserCollectionConverter;
+import com.example.userservice.controller.UserController;
+import com.example.userservice.dto.UserDto;
+import com.example.userservice.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class BinaryFormatsConfigTest {
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Mock
+    private UserService userService;
+
+    private final BinaryFormatsConfig config = new BinaryFormatsConfig();
+    private final DefaultLinkRelationProvider relProvider = new DefaultLinkRelationProvider();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new UserController(userService))
+                .setMessageConverters(
+                        new HalUserCollectionConverter(bootBuilder().build()),
+                        config.cborHttpMessageConverter(bootBuilder(), relProvider, MessageResolver.DEFAULTS_ONLY),
+                        config.smileHttpMessageConverter(bootBuilder(), relProvider, MessageResolver.DEFAULTS_ONLY))
+                .build();
+        when(userService.getAllUsers()).thenReturn(List.of(
+                user(1L, "User 1", LocalDateTime.of(2024, 1, 1, 10, 0)),
+                user(370568359802081281L, "Zoë", LocalDateTime.of(2024, 2, 29, 23, 59, 59, 975_390_000))));
+    }
+
+    @Test
+    void cbor_ShouldDecodeToSameTreeAsHalJson() throws Exception {
+        JsonNode cbor = new ObjectMapper(new CBORFactory()).readTree(body(MediaType.APPLICATION_CBOR));
+
+        assertThat(cbor).isEqualTo(halJson());
+    }
+
+    @Test
+    void smile_ShouldDecodeToSameTreeAsHalJson() throws Exception {
+        JsonNode smile = new ObjectMapper(new SmileFactory()).readTree(body(SMILE));
+
+        assertThat(smile).isEqualTo(halJson());
+    }
+
+    private JsonNode halJson() throws Exception {
+        JsonNode halJson = new ObjectMapper().readTree(body(MediaTypes.HAL_JSON));
+        assertThat(halJson.at("/_embedded/userDtoList/1/createdAt").asText()).isEqualTo("2024-02-29T23:59:59.97539");
+        assertThat(halJson.at("/_embedded/userDtoList/1/_links/self/href").asText())
+                .isEqualTo("http://localhost/api/users/370568359802081281");
+        assertThat(halJson.at("/_links/create-user/href").asText()).isEqualTo("http://localhost/api/users");
+        return halJson;
+    }
+
+    private byte[] body(MediaType mediaType) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/users").accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn();
+        return result.getResponse().getContentAsByteArray();
+    }
+
+    // Boot hands every converter its own builder, with dates written as ISO strings
+    private static Jackson2ObjectMapperBuilder bootBuilder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static UserDto user(Long id, String name, LocalDateTime createdAt) {
+        UserDto user = new UserDto();
+        user.setId(id);
+        user.setName(name);
+        user.setEmail("user" + id + "@example.com");
+        user.setAge(30);
+        user.setCreatedAt(createdAt);
+        user.setVersion(4L);
+        return user;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.userservice.config;
+
+import com.example.userservice.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.AnnotatedBeanDefinitionReader;
+import org.springframework.context.annotation.ConfigurationClassPostProcessor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastStartupConfigTest {
+
+    @Test
+    void lazyDocumentationBeans_ShouldDeferOnlyDocumentationBeans() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        new AnnotatedBeanDefinitionReader(beanFactory).register(OpenApiConfig.class);
+        new ConfigurationClassPostProcessor().postProcessBeanDefinitionRegistry(beanFactory);
+        beanFactory.registerBeanDefinition("springdocResource",
+                new RootBeanDefinition("org.springdoc.webmvc.api.OpenApiWebMvcResource"));
+        beanFactory.registerBeanDefinition("userService", new RootBeanDefinition(UserService.class));
+
+        FastStartupConfig.lazyDocumentationBeans().postProcessBeanFactory(beanFactory);
+
+        assertThat(beanFactory.getBeanDefinition("usersMicroserviceOpenAPI").isLazyInit()).isTrue();
+        assertThat(beanFactory.getBeanDefinition("springdocResource").isLazyInit()).isTrue();
+        assertThat(beanFactory.getBeanDefinition("userService").isLazyInit()).isFalse();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.config.BinaryFormatsConfig;
+import com.example.userservice.dto.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HalUserCollectionConverterTest {
+    private static final String USERS_HREF = "http://localhost:8080/api/users";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final ObjectMapper halMapper = BinaryFormatsConfig.withHal(objectMapper.copy(),
+            new DefaultLinkRelationProvider(), MessageResolver.DEFAULTS_ONLY);
+    private final HalUserCollectionConverter converter = new HalUserCollectionConverter(objectMapper);
+
+    @Test
+    void write_ShouldMatchJacksonHalOutput() throws Exception {
+        List<UserDto> users = List.of(
+                user(1L, "User 1", "user1@example.com", 25, LocalDateTime.of(2024, 1, 1, 10, 0)),
+                user(370568359802081281L, "Zoë \"Q\" \\ <b> ", "zoe@example.com", 120,
+                        LocalDateTime.of(2024, 2, 29, 23, 59, 59, 975_390_000)),
+                user(3L, null, null, null, null));
+
+        assertEquals(jacksonHal(users), streamed(users));
+    }
+
+    @Test
+    void write_ShouldOmitEmbeddedUsersWhenThereAreNone() throws Exception {
+        assertEquals(jacksonHal(List.of()), streamed(List.of()));
+    }
+
+    @Test
+    void write_ShouldAdvertiseHalJsonFirst() {
+        assertEquals(MediaTypes.HAL_JSON, converter.getSupportedMediaTypes().get(0));
+    }
+
+    private String streamed(List<UserDto> users) throws Exception {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(new HalUserCollection(users, USERS_HREF), MediaTypes.HAL_JSON, message);
+        return message.getBodyAsString();
+    }
+
+    private String jacksonHal(List<UserDto> users) throws Exception {
+        List<EntityModel<UserDto>> models = users.stream()
+                .map(user -> EntityModel.of(user,
+                        Link.of(USERS_HREF + "/" + user.getId()).withSelfRel(),
+                        Link.of(USERS_HREF + "/" + user.getId()).withRel("user-details")))
+                .toList();
+        return halMapper.writeValueAsString(CollectionModel.of(models,
+                Link.of(USERS_HREF).withSelfRel(), Link.of(USERS_HREF).withRel("create-user")));
+    }
+
+    private static UserDto user(Long id, String name, String email, Integer age, LocalDateTime createdAt) {
+        UserDto user = new UserDto();
+        user.setId(id);
+        user.setName(name);
+        user.setEmail(email);
+        user.setAge(age);
+        user.setCreatedAt(createdAt);
+        user.setVersion(4L);
+        return user;
+    }
+}
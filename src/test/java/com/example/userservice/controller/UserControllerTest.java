@@ -1,7 +1,10 @@
 package com.example.userservice.controller;
 
 import com.example.userservice.dto.CreateUserDto;
+import com.example.userservice.dto.UserCollectionVersion;
 import com.example.userservice.dto.UserDto;
+import com.example.userservice.exception.PreconditionFailedException;
+import com.example.userservice.service.StaleReads;
 import com.example.userservice.service.UserService;
 import com.example.userservice.assertions.UserDtoAssert;
 import org.junit.jupiter.api.Test;
@@ -17,9 +20,11 @@ import org.springframework.hateoas.EntityModel;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,7 +47,7 @@ class UserControllerTest {
         when(userService.getAllUsers()).thenReturn(List.of(user1, user2));
 
         // Act
-        CollectionModel<EntityModel<UserDto>> result = userController.getAllUsers();
+        CollectionModel<EntityModel<UserDto>> result = userController.getAllUsers(null).getBody();
 
         // Assert
         assertNotNull(result);
@@ -62,7 +67,8 @@ class UserControllerTest {
         when(userService.getUserById(1L)).thenReturn(userDto);
 
         // Act
-        EntityModel<UserDto> result = userController.getUserById(1L);
+        ResponseEntity<EntityModel<UserDto>> response = userController.getUserById(1L, null);
+        EntityModel<UserDto> result = response.getBody();
 
         // Assert
         UserDtoAssert.assertThat(result)
@@ -76,10 +82,100 @@ class UserControllerTest {
         assertTrue(result.getLink("all-users").get().getHref().endsWith("/api/users"));
         assertTrue(result.getLink("update-user").get().getHref().endsWith("/api/users/1"));
         assertTrue(result.getLink("delete-user").get().getHref().endsWith("/api/users/1"));
+        assertEquals("\"3\"", response.getHeaders().getETag());
 
         verify(userService).getUserById(1L);
     }
 
+    @Test
+    void getUserById_ShouldReturnNotModified_WhenETagMatches() {
+        when(userService.getUserVersion(1L)).thenReturn(3L);
+
+        ResponseEntity<EntityModel<UserDto>> response = userController.getUserById(1L, "\"3\"");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals("\"3\"", response.getHeaders().getETag());
+        verify(userService, never()).getUserById(any());
+    }
+
+    @Test
+    void getUserById_ShouldReturnUser_WhenETagIsStale() {
+        UserDto userDto = createUserDto(1L, "Test User", "test@example.com", 30);
+        when(userService.getUserVersion(1L)).thenReturn(3L);
+        when(userService.getUserById(1L)).thenReturn(userDto);
+
+        ResponseEntity<EntityModel<UserDto>> response = userController.getUserById(1L, "\"2\"");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"3\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void getUserById_ShouldMarkStaleResponse() {
+        UserDto userDto = createUserDto(1L, "Test User", "test@example.com", 30);
+        when(userService.getUserById(1L)).thenAnswer(invocation -> {
+            StaleReads.served(Duration.ofSeconds(42));
+            return userDto;
+        });
+
+        ResponseEntity<EntityModel<UserDto>> response = userController.getUserById(1L, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("42", response.getHeaders().getFirst("Age"));
+        assertEquals("110 - \"Response is Stale\"", response.getHeaders().getFirst("Warning"));
+    }
+
+    @Test
+    void getUserById_ShouldSkipConditionalCheck_WhenVersionUnknown() {
+        UserDto userDto = createUserDto(1L, "Test User", "test@example.com", 30);
+        when(userService.getUserVersion(1L)).thenReturn(null);
+        when(userService.getUserById(1L)).thenReturn(userDto);
+
+        ResponseEntity<EntityModel<UserDto>> response = userController.getUserById(1L, "\"3\"");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst("Warning"));
+    }
+
+    @Test
+    void getUserByEmail_ShouldReturnUserLinkedById() {
+        UserDto userDto = createUserDto(1L, "Test User", "test@example.com", 30);
+        when(userService.getUserByEmail("Test@Example.com")).thenReturn(userDto);
+
+        ResponseEntity<EntityModel<UserDto>> response = userController.getUserByEmail("Test@Example.com", null);
+        EntityModel<UserDto> result = response.getBody();
+
+        UserDtoAssert.assertThat(result)
+                .hasId(1L)
+                .hasEmail("test@example.com");
+        assertTrue(result.getLink("self").get().getHref().endsWith("/api/users/1"));
+        assertTrue(result.getLink("update-user").get().getHref().endsWith("/api/users/1"));
+        assertEquals("\"3\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void getUserByEmail_ShouldReturnNotModified_WhenETagMatches() {
+        UserDto userDto = createUserDto(1L, "Test User", "test@example.com", 30);
+        when(userService.getUserByEmail("test@example.com")).thenReturn(userDto);
+
+        ResponseEntity<EntityModel<UserDto>> response = userController.getUserByEmail("test@example.com", "\"3\"");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(userService, never()).getUserVersion(any());
+    }
+
+    @Test
+    void getAllUsers_ShouldReturnNotModified_WhenCollectionETagMatches() {
+        when(userService.getUsersVersion()).thenReturn(new UserCollectionVersion(2L, 3L, 6L));
+
+        ResponseEntity<CollectionModel<EntityModel<UserDto>>> response = userController.getAllUsers("\"2-3-6\"");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(userService, never()).getAllUsers();
+    }
+
     @Test
     void createUser_ShouldReturnCreatedUserWithLinks() {
         // Arrange
@@ -123,10 +219,10 @@ class UserControllerTest {
         updateDto.setAge(30);
 
         UserDto updatedUser = createUserDto(1L, "Updated User", "updated@example.com", 30);
-        when(userService.updateUser(1L, updateDto)).thenReturn(updatedUser);
+        when(userService.updateUser(1L, updateDto, null)).thenReturn(updatedUser);
 
         // Act
-        EntityModel<UserDto> result = userController.updateUser(1L, updateDto);
+        EntityModel<UserDto> result = userController.updateUser(1L, updateDto, null).getBody();
 
         // Assert
         UserDtoAssert.assertThat(result)
@@ -140,17 +236,35 @@ class UserControllerTest {
         assertTrue(result.getLink("all-users").get().getHref().endsWith("/api/users"));
         assertTrue(result.getLink("delete-user").get().getHref().endsWith("/api/users/1"));
 
-        verify(userService).updateUser(1L, updateDto);
+        verify(userService).updateUser(1L, updateDto, null);
+    }
+
+    @Test
+    void updateUser_ShouldPassIfMatchVersionToService() {
+        CreateUserDto updateDto = new CreateUserDto();
+        UserDto updatedUser = createUserDto(1L, "Updated User", "updated@example.com", 30);
+        when(userService.updateUser(1L, updateDto, 3L)).thenReturn(updatedUser);
+
+        userController.updateUser(1L, updateDto, "\"3\"");
+
+        verify(userService).updateUser(1L, updateDto, 3L);
+    }
+
+    @Test
+    void deleteUser_ShouldRejectMalformedIfMatch() {
+        assertThrows(PreconditionFailedException.class, () -> userController.deleteUser(1L, "W/\"3\""));
+
+        verify(userService, never()).deleteUser(any(), any());
     }
 
     @Test
     void deleteUser_ShouldReturnNoContent() {
         // Act
-        ResponseEntity<Void> response = userController.deleteUser(1L);
+        ResponseEntity<Void> response = userController.deleteUser(1L, null);
 
         // Assert
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
-        verify(userService).deleteUser(1L);
+        verify(userService).deleteUser(1L, null);
     }
 
     private UserDto createUserDto(Long id, String name, String email, Integer age) {
@@ -160,6 +274,7 @@ class UserControllerTest {
         dto.setEmail(email);
         dto.setAge(age);
         dto.setCreatedAt(java.time.LocalDateTime.now());
+        dto.setVersion(3L);
         return dto;
     }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.example.userservice.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeysetMergeTest {
+
+    @Test
+    void merge_ShouldReturnRowsOfAllSourcesInKeyOrder() {
+        KeysetMerge<Long> merge = new KeysetMerge<>(
+                List.of(source(List.of(1L, 4L, 5L, 9L)), source(List.of(2L, 3L, 8L)), source(List.of())),
+                Long::longValue, 2, Runnable::run);
+
+        assertThat(merge.toList()).containsExactly(1L, 2L, 3L, 4L, 5L, 8L, 9L);
+    }
+
+    @Test
+    void merge_ShouldFetchPagesAfterTheLastKeySeen() {
+        List<Long> afterKeys = new ArrayList<>();
+        List<Long> rows = List.of(10L, 20L, 30L, 40L, 50L);
+        KeysetMerge.PageSource<Long> source = (afterKey, limit) -> {
+            afterKeys.add(afterKey);
+            return rows.stream().filter(row -> row > afterKey).limit(limit).toList();
+        };
+
+        List<Long> merged = new KeysetMerge<>(List.of(source), Long::longValue, 2, Runnable::run).toList();
+
+        assertThat(merged).containsExactly(10L, 20L, 30L, 40L, 50L);
+        assertThat(afterKeys).containsExactly(Long.MIN_VALUE, 20L, 40L);
+    }
+
+    private static KeysetMerge.PageSource<Long> source(List<Long> rows) {
+        return (afterKey, limit) -> rows.stream().filter(row -> row > afterKey).limit(limit).toList();
+    }
+}
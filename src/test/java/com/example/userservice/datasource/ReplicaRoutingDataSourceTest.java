@@ -0,0 +1,103 @@
+package com.example.userservice.datasource;
+
+import com.example.userservice.datasource.DataSourceRoutingProperties.Balancing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final ReplicaPool replica0 = new ReplicaPool("replica-0", mock(DataSource.class));
+    private final ReplicaPool replica1 = new ReplicaPool("replica-1", mock(DataSource.class));
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        routingDataSource = new ReplicaRoutingDataSource(mock(DataSource.class), List.of(replica0, replica1),
+                Balancing.ROUND_ROBIN);
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReadYourWrites.clear();
+    }
+
+    @Test
+    void writeTransaction_ShouldUsePrimary() {
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+    }
+
+    @Test
+    void writeTransaction_ShouldRecordClientWriteOnCommit() {
+        ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofSeconds(5), Clock.systemUTC());
+        ReadYourWrites.onWrite(() -> readYourWrites.recordWrite("client-1"));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            routingDataSource.determineCurrentLookupKey();
+            assertThat(readYourWrites.wroteRecently("client-1")).isFalse();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(readYourWrites.wroteRecently("client-1")).isTrue();
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldNotRecordClientWrite() {
+        ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofSeconds(5), Clock.systemUTC());
+        ReadYourWrites.onWrite(() -> readYourWrites.recordWrite("client-1"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        routingDataSource.determineCurrentLookupKey();
+
+        assertThat(readYourWrites.wroteRecently("client-1")).isFalse();
+    }
+
+    @Test
+    void readOnlyTransactions_ShouldRoundRobinAcrossReplicas() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo("replica-0");
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo("replica-1");
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo("replica-0");
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldSkipLaggingReplica() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        replica0.markLag(Duration.ofSeconds(30), Duration.ofSeconds(5));
+
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo("replica-1");
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo("replica-1");
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldFallBackToPrimary_WhenNoReplicaIsAvailable() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        replica0.markUnavailable();
+        replica1.markLag(Duration.ofSeconds(30), Duration.ofSeconds(5));
+
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUsePrimary_WhenClientIsPinnedAfterWrite() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReadYourWrites.pinToPrimary();
+
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.userservice.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardRingTest {
+
+    @Test
+    void shardOf_ShouldSpreadSequentialIdsEvenly() {
+        ShardRing ring = new ShardRing(4, 128);
+        int[] counts = new int[4];
+
+        for (long id = 1; id <= 100_000; id++) {
+            counts[ring.shardOf(id)]++;
+        }
+
+        for (int count : counts) {
+            assertThat(count).isBetween(20_000, 30_000);
+        }
+    }
+
+    @Test
+    void addingShard_ShouldOnlyMoveIdsToTheNewShard() {
+        ShardRing three = new ShardRing(3, 128);
+        ShardRing four = new ShardRing(4, 128);
+        int moved = 0;
+
+        for (long id = 1; id <= 100_000; id++) {
+            int before = three.shardOf(id);
+            int after = four.shardOf(id);
+            if (before != after) {
+                assertThat(after).isEqualTo(3);
+                moved++;
+            }
+        }
+
+        assertThat(moved).isBetween(20_000, 30_000);
+    }
+}
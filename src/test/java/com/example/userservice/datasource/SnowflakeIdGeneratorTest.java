@@ -0,0 +1,75 @@
+package com.example.userservice.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+    private final AtomicLong millis = new AtomicLong(Instant.parse("2024-06-01T00:00:00Z").toEpochMilli());
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    };
+
+    @Test
+    void nextId_ShouldIncreaseWithinAndAcrossMilliseconds() {
+        SnowflakeIdGenerator ids = new SnowflakeIdGenerator(5, clock);
+
+        long first = ids.nextId();
+        long second = ids.nextId();
+        millis.incrementAndGet();
+        long third = ids.nextId();
+
+        assertThat(second).isEqualTo(first + 1);
+        assertThat(third).isGreaterThan(second);
+        assertThat((first >> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_WORKER).isEqualTo(5);
+    }
+
+    @Test
+    void nextId_ShouldDifferBetweenWorkers() {
+        assertThat(new SnowflakeIdGenerator(1, clock).nextId()).isNotEqualTo(new SnowflakeIdGenerator(2, clock).nextId());
+    }
+
+    @Test
+    void nextId_ShouldKeepIncreasing_WhenClockStepsBackSlightly() {
+        SnowflakeIdGenerator ids = new SnowflakeIdGenerator(0, clock);
+        long before = ids.nextId();
+
+        millis.addAndGet(-10);
+
+        assertThat(ids.nextId()).isGreaterThan(before);
+    }
+
+    @Test
+    void nextId_ShouldFail_WhenClockStepsBackTooFar() {
+        SnowflakeIdGenerator ids = new SnowflakeIdGenerator(0, clock);
+        ids.nextId();
+
+        millis.addAndGet(-5_000);
+
+        assertThatThrownBy(ids::nextId).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void constructor_ShouldRejectOutOfRangeWorkerId() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(1024, clock)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
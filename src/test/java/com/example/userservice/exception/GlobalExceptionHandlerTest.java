@@ -1,12 +1,14 @@
 package com.example.userservice.exception;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
 
@@ -33,4 +35,14 @@ class GlobalExceptionHandlerTest {
         assertNotNull(response.getBody());
         assertEquals("error message", response.getBody().get("field"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void handleServiceUnavailable_ShouldAskClientToRetryLater() {
+        ResponseEntity<Map<String, String>> response = handler.handleServiceUnavailable(
+                new ServiceUnavailableException(Duration.ofSeconds(30), new IllegalStateException("down")));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("30", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertNotNull(response.getBody().get("error"));
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.userservice.filter;
+
+import com.example.userservice.repository.IdempotencyRecordRepository;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyFilterTest {
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    private IdempotencyFilter filter;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyStore store = new IdempotencyStore(repository, 100, Duration.ofHours(1), Clock.systemUTC());
+        filter = new IdempotencyFilter(store, Duration.ofSeconds(5), 64);
+    }
+
+    @Test
+    void replay_ShouldReturnRecordedResponseWithoutRunningRequestAgain() throws Exception {
+        when(repository.findById("key-1")).thenReturn(Optional.empty());
+
+        MockHttpServletResponse first = execute(post("key-1", "{\"name\":\"John\"}"), createdChain());
+        MockHttpServletResponse retry = execute(post("key-1", "{\"name\":\"John\"}"), createdChain());
+
+        assertThat(executions).hasValue(1);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(retry.getHeader(HttpHeaders.LOCATION)).isEqualTo("/api/users/1");
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(first.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    void reuse_ShouldBeRejected_WhenRequestDiffers() throws Exception {
+        when(repository.findById("key-1")).thenReturn(Optional.empty());
+
+        execute(post("key-1", "{\"name\":\"John\"}"), createdChain());
+        MockHttpServletResponse other = execute(post("key-1", "{\"name\":\"Jane\"}"), createdChain());
+
+        assertThat(executions).hasValue(1);
+        assertThat(other.getStatus()).isEqualTo(422);
+    }
+
+    @Test
+    void concurrentDuplicates_ShouldWaitForFirstExecution() throws Exception {
+        when(repository.findById("key-1")).thenReturn(Optional.empty());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slowChain = (request, response) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            createdChain().doFilter(request, response);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<MockHttpServletResponse> first = executor.submit(() -> execute(post("key-1", "{}"), slowChain));
+            started.await(5, TimeUnit.SECONDS);
+            Future<MockHttpServletResponse> duplicate = executor.submit(() -> execute(post("key-1", "{}"), slowChain));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(201);
+            assertThat(duplicate.get(5, TimeUnit.SECONDS).getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+            assertThat(executions).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void otherKeys_ShouldNotWaitForRequestInFlight() throws Exception {
+        when(repository.findById("key-1")).thenReturn(Optional.empty());
+        when(repository.findById("key-2")).thenReturn(Optional.empty());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slowChain = (request, response) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            createdChain().doFilter(request, response);
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<MockHttpServletResponse> first = executor.submit(() -> execute(post("key-1", "{}"), slowChain));
+            started.await(5, TimeUnit.SECONDS);
+
+            MockHttpServletResponse other = execute(post("key-2", "{}"), createdChain());
+
+            assertThat(other.getStatus()).isEqualTo(201);
+            assertThat(first).isNotDone();
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(201);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void sentErrors_ShouldNotBeRecorded() throws Exception {
+        when(repository.findById("key-1")).thenReturn(Optional.empty());
+        FilterChain conflictChain = (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).sendError(409, "Email already exists");
+        };
+
+        MockHttpServletResponse first = execute(post("key-1", "{}"), conflictChain);
+        MockHttpServletResponse retry = execute(post("key-1", "{}"), conflictChain);
+
+        assertThat(first.getStatus()).isEqualTo(409);
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(executions).hasValue(2);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void largeBodies_ShouldBeRejectedWithoutRunningRequest() throws Exception {
+        MockHttpServletResponse response = execute(post("key-1", "{\"name\":\"" + "x".repeat(64) + "\"}"),
+                createdChain());
+
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void streamedUploads_ShouldPassThroughWithoutBuffering() throws Exception {
+        MockHttpServletRequest request = post("key-1", "name,email,age\n" + "x".repeat(64));
+        request.setRequestURI("/api/users/import");
+
+        execute(request, createdChain());
+        execute(request, createdChain());
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void requestsWithoutKey_ShouldPassThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users");
+
+        execute(request, createdChain());
+        execute(request, createdChain());
+
+        assertThat(executions).hasValue(2);
+    }
+
+    private FilterChain createdChain() {
+        return (request, response) -> {
+            request.getInputStream().readAllBytes();
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.setStatus(201);
+            http.setHeader(HttpHeaders.LOCATION, "/api/users/1");
+            http.setContentType("application/hal+json");
+            http.getOutputStream().write(("{\"id\":1,\"n\":" + executions.incrementAndGet() + "}")
+                    .getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private MockHttpServletResponse execute(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest post(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.userservice.grpc;
+
+import com.example.userservice.dto.CreateUserDto;
+import com.example.userservice.dto.UserDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.exception.EmailAlreadyExistsException;
+import com.example.userservice.exception.ServiceUnavailableException;
+import com.example.userservice.grpc.v1.BatchGetUsersRequest;
+import com.example.userservice.grpc.v1.BatchGetUsersResponse;
+import com.example.userservice.grpc.v1.CreateUserRequest;
+import com.example.userservice.grpc.v1.GetUserRequest;
+import com.example.userservice.grpc.v1.ListUsersRequest;
+import com.example.userservice.grpc.v1.User;
+import com.example.userservice.grpc.v1.UserServiceGrpc;
+import com.example.userservice.service.UserService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserGrpcServiceTest {
+
+    @Mock
+    private UserService userService;
+
+    private UserGrpcService service;
+    private Server server;
+    private ManagedChannel channel;
+    private UserServiceGrpc.UserServiceBlockingStub stub;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        service = new UserGrpcService(userService, Validation.buildDefaultValidatorFactory().getValidator(), 1);
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(service)
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        stub = UserServiceGrpc.newBlockingStub(channel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+        service.stop();
+    }
+
+    @Test
+    void getUser_ShouldReturnUser() {
+        when(userService.getUserViews(List.of(1L))).thenReturn(List.of(view(1L)));
+
+        User user = stub.getUser(GetUserRequest.newBuilder().setId(1L).build());
+
+        assertThat(user.getId()).isEqualTo(1L);
+        assertThat(user.getEmail()).isEqualTo("user1@test.com");
+        assertThat(user.getAge()).isEqualTo(31);
+        assertThat(user.hasCreatedAt()).isTrue();
+    }
+
+    @Test
+    void getUser_ShouldReturnNotFound_WhenUserDoesNotExist() {
+        when(userService.getUserViews(List.of(1L))).thenReturn(List.of());
+
+        assertThatThrownBy(() -> stub.getUser(GetUserRequest.newBuilder().setId(1L).build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND));
+    }
+
+    @Test
+    void getUser_ShouldReturnUnavailable_WhenDatabaseIsDown() {
+        when(userService.getUserViews(List.of(1L)))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        assertThatThrownBy(() -> stub.getUser(GetUserRequest.newBuilder().setId(1L).build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAVAILABLE));
+    }
+
+    @Test
+    void batchGetUsers_ShouldReturnFoundAndMissingIds() {
+        when(userService.getUserViews(Set.of(1L, 2L))).thenReturn(List.of(view(1L)));
+
+        BatchGetUsersResponse response = stub.batchGetUsers(BatchGetUsersRequest.newBuilder()
+                .addIds(1L).addIds(2L).addIds(2L)
+                .build());
+
+        assertThat(response.getUsersList()).extracting(User::getId).containsExactly(1L);
+        assertThat(response.getMissingIdsList()).containsExactly(2L);
+        verify(userService, times(1)).getUserViews(any());
+    }
+
+    @Test
+    void batchGetUsers_ShouldReturnUnavailable_WhenDatabaseIsDown() {
+        when(userService.getUserViews(Set.of(1L)))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        assertThatThrownBy(() -> stub.batchGetUsers(BatchGetUsersRequest.newBuilder().addIds(1L).build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAVAILABLE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listUsers_ShouldStreamAllUsers() {
+        doAnswer(invocation -> {
+            Consumer<UserView> consumer = invocation.getArgument(0);
+            consumer.accept(view(1L));
+            consumer.accept(view(2L));
+            return null;
+        }).when(userService).forEachUser(any(Consumer.class));
+
+        List<Long> ids = new ArrayList<>();
+        stub.listUsers(ListUsersRequest.getDefaultInstance()).forEachRemaining(user -> ids.add(user.getId()));
+
+        assertThat(ids).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listUsers_ShouldSendOnlyWhatClientRequestedAndReleaseCursorOnCancel() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch cursorReleased = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Consumer<UserView> consumer = invocation.getArgument(0);
+            try {
+                for (long id = 1; id <= 100; id++) {
+                    consumer.accept(view(id));
+                    accepted.incrementAndGet();
+                }
+            } finally {
+                cursorReleased.countDown();
+            }
+            return null;
+        }).when(userService).forEachUser(any(Consumer.class));
+
+        List<Long> received = new CopyOnWriteArrayList<>();
+        AtomicReference<ClientCallStreamObserver<ListUsersRequest>> call = new AtomicReference<>();
+        UserServiceGrpc.newStub(channel).listUsers(ListUsersRequest.getDefaultInstance(),
+                new ClientResponseObserver<ListUsersRequest, User>() {
+                    @Override
+                    public void beforeStart(ClientCallStreamObserver<ListUsersRequest> requestStream) {
+                        call.set(requestStream);
+                        requestStream.disableAutoRequestWithInitial(1);
+                    }
+
+                    @Override
+                    public void onNext(User user) {
+                        received.add(user.getId());
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+
+        Thread.sleep(200);
+        assertThat(received).containsExactly(1L);
+        assertThat(accepted.get()).isEqualTo(1);
+
+        call.get().request(2);
+        Thread.sleep(200);
+        assertThat(received).containsExactly(1L, 2L, 3L);
+
+        call.get().cancel("done", null);
+        assertThat(cursorReleased.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(accepted.get()).isEqualTo(3);
+    }
+
+    @Test
+    void createUser_ShouldDelegateToUserService() {
+        UserDto created = new UserDto();
+        created.setId(5L);
+        created.setName("New User");
+        created.setEmail("new@test.com");
+        created.setAge(25);
+        created.setVersion(0L);
+        when(userService.createUser(any(CreateUserDto.class))).thenReturn(created);
+
+        User user = stub.createUser(CreateUserRequest.newBuilder()
+                .setName("New User").setEmail("new@test.com").setAge(25).build());
+
+        assertThat(user.getId()).isEqualTo(5L);
+        assertThat(user.getName()).isEqualTo("New User");
+    }
+
+    @Test
+    void createUser_ShouldRejectInvalidRequest() {
+        assertThatThrownBy(() -> stub.createUser(CreateUserRequest.newBuilder()
+                .setName("X").setEmail("not-an-email").setAge(0).build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT));
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void createUser_ShouldReturnAlreadyExists_WhenEmailIsTaken() {
+        when(userService.createUser(any(CreateUserDto.class)))
+                .thenThrow(new EmailAlreadyExistsException("new@test.com"));
+
+        assertThatThrownBy(() -> stub.createUser(CreateUserRequest.newBuilder()
+                .setName("New User").setEmail("new@test.com").setAge(25).build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.ALREADY_EXISTS));
+    }
+
+    @Test
+    void createUser_ShouldReturnUnavailable_WhenServiceIsUnavailable() {
+        when(userService.createUser(any(CreateUserDto.class)))
+                .thenThrow(new ServiceUnavailableException(Duration.ofSeconds(30), new RuntimeException("Down")));
+
+        assertThatThrownBy(() -> stub.createUser(CreateUserRequest.newBuilder()
+                .setName("New User").setEmail("new@test.com").setAge(25).build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAVAILABLE));
+    }
+
+    private static UserView view(Long id) {
+        return new UserView(id, "User " + id, "user" + id + "@test.com", 30 + id.intValue(),
+                LocalDateTime.of(2024, 1, 1, 10, 0), 0L);
+    }
+}
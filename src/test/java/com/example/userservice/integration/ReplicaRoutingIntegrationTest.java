@@ -0,0 +1,111 @@
+package com.example.userservice.integration;
+
+import com.example.userservice.datasource.DataSourceRoutingProperties.Balancing;
+import com.example.userservice.datasource.ReadYourWrites;
+import com.example.userservice.datasource.ReplicaLagMonitor;
+import com.example.userservice.datasource.ReplicaPool;
+import com.example.userservice.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class ReplicaRoutingIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> primaryDb = new PostgreSQLContainer<>("postgres:15");
+
+    @Container
+    static PostgreSQLContainer<?> replicaDb = new PostgreSQLContainer<>("postgres:15");
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        HikariDataSource primary = pool(primaryDb, "primary");
+        HikariDataSource replica = pool(replicaDb, "replica-0");
+        markNode(primary);
+        markNode(replica);
+
+        routingDataSource = new ReplicaRoutingDataSource(primary,
+                List.of(new ReplicaPool("replica-0", replica)), Balancing.ROUND_ROBIN);
+        routingDataSource.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        routingDataSource.close();
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldReadFromReplica() {
+        transactionTemplate.setReadOnly(true);
+
+        assertThat(currentNode()).isEqualTo("replica-0");
+    }
+
+    @Test
+    void readWriteTransaction_ShouldUsePrimary() {
+        assertThat(currentNode()).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldStayOnPrimary_AfterClientWrite() {
+        transactionTemplate.setReadOnly(true);
+        ReadYourWrites.pinToPrimary();
+        try {
+            assertThat(currentNode()).isEqualTo("primary");
+        } finally {
+            ReadYourWrites.clear();
+        }
+    }
+
+    @Test
+    void lagMonitor_ShouldKeepCaughtUpReplicaAvailable() {
+        new ReplicaLagMonitor(routingDataSource, new ReadYourWrites(Duration.ofSeconds(5), Clock.systemUTC()),
+                Duration.ofSeconds(5)).checkReplicas();
+
+        assertThat(routingDataSource.getReplicas().get(0).isAvailable()).isTrue();
+    }
+
+    private String currentNode() {
+        return transactionTemplate.execute(status ->
+                jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private static HikariDataSource pool(PostgreSQLContainer<?> db, String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(db.getJdbcUrl());
+        pool.setUsername(db.getUsername());
+        pool.setPassword(db.getPassword());
+        return pool;
+    }
+
+    private static void markNode(HikariDataSource dataSource) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS node (name varchar(32))");
+        jdbc.update("DELETE FROM node");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", dataSource.getPoolName());
+    }
+}
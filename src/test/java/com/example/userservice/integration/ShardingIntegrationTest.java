@@ -0,0 +1,106 @@
+package com.example.userservice.integration;
+
+import com.example.userservice.datasource.KeysetMerge;
+import com.example.userservice.datasource.ShardRing;
+import com.example.userservice.datasource.ShardRouter;
+import com.example.userservice.datasource.ShardRoutingDataSource;
+import com.example.userservice.datasource.SnowflakeIdGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class ShardingIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> shard0Db = new PostgreSQLContainer<>("postgres:15");
+
+    @Container
+    static PostgreSQLContainer<?> shard1Db = new PostgreSQLContainer<>("postgres:15");
+
+    private ShardRoutingDataSource routingDataSource;
+    private ShardRouter router;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        routingDataSource = new ShardRoutingDataSource(List.of(pool(shard0Db, "shard-0"), pool(shard1Db, "shard-1")));
+        routingDataSource.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate newTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        router = new ShardRouter(new ShardRing(2, 128), new SnowflakeIdGenerator(1, Clock.systemUTC()), 2, 3,
+                Executors.newFixedThreadPool(2), newTransaction);
+
+        router.onEachShard(shard -> {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS users (id bigint primary key)");
+            return jdbcTemplate.update("DELETE FROM users");
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        router.close();
+        routingDataSource.close();
+    }
+
+    @Test
+    void onShardOf_ShouldWriteEachUserToItsOwnShardOnly() {
+        List<Long> ids = insertUsers(20);
+
+        for (Long id : ids) {
+            int owner = router.shardOf(id);
+            List<Integer> counts = router.onEachShard(shard ->
+                    jdbcTemplate.queryForObject("SELECT count(*) FROM users WHERE id = ?", Integer.class, id));
+            assertThat(counts.get(owner)).isEqualTo(1);
+            assertThat(counts.get(1 - owner)).isZero();
+        }
+    }
+
+    @Test
+    void merge_ShouldListUsersOfAllShardsInIdOrder() {
+        List<Long> ids = insertUsers(20);
+
+        KeysetMerge<Long> merge = router.merge((afterId, limit) -> jdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?", Long.class, afterId, limit), id -> id);
+
+        assertThat(merge.toList()).containsExactlyElementsOf(ids);
+    }
+
+    private List<Long> insertUsers(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long id = router.nextId();
+            router.onShardOf(id, () -> jdbcTemplate.update("INSERT INTO users (id) VALUES (?)", id));
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static HikariDataSource pool(PostgreSQLContainer<?> db, String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(db.getJdbcUrl());
+        pool.setUsername(db.getUsername());
+        pool.setPassword(db.getPassword());
+        return pool;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.userservice.integration;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.service.UserEventPublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.userservice.datasource.SqlRoundTripFilter.STATEMENTS;
+import static com.example.userservice.datasource.SqlRoundTripFilter.TRANSACTIONS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the SQL statements and transactions each {@code UserController} endpoint runs. A failure here means a
+ * change added (or saved) a database round trip; update the budget only if that is intended.
+ */
+@Testcontainers
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.kafka.topic.name=users",
+        "app.datasource.query-count.enabled=true",
+        "app.cache.snapshot.enabled=false",
+        "app.cache.users.revalidate-after=PT1H"
+})
+@AutoConfigureMockMvc
+class SqlRoundTripBudgetIntegrationTest {
+    private static final AtomicInteger EMAILS = new AtomicInteger();
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @MockBean
+    private UserEventPublisher userEventPublisher;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void getAllUsers() throws Exception {
+        saveUser();
+
+        assertThat(roundTrips(get("/api/users"), "/api/users", status().isOk()))
+                .isEqualTo(new RoundTrips(1, 1));
+        assertThat(roundTrips(get("/api/users").accept(MediaType.APPLICATION_CBOR), "/api/users", status().isOk()))
+                .isEqualTo(new RoundTrips(1, 1));
+    }
+
+    @Test
+    void getAllUsers_NotModified() throws Exception {
+        saveUser();
+        String etag = mockMvc.perform(get("/api/users")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(roundTrips(get("/api/users").header(HttpHeaders.IF_NONE_MATCH, etag), "/api/users",
+                status().isNotModified()))
+                .isEqualTo(new RoundTrips(1, 1));
+        assertThat(roundTrips(get("/api/users").header(HttpHeaders.IF_NONE_MATCH, "\"stale\""), "/api/users",
+                status().isOk()))
+                .isEqualTo(new RoundTrips(2, 2));
+    }
+
+    @Test
+    void getUserStats() throws Exception {
+        assertThat(roundTrips(get("/api/users/stats"), "/api/users/stats", status().isOk()))
+                .isEqualTo(new RoundTrips(0, 0));
+    }
+
+    @Test
+    void getChanges() throws Exception {
+        assertThat(roundTrips(get("/api/users/changes"), "/api/users/changes", status().isOk()))
+                .isEqualTo(new RoundTrips(0, 0));
+    }
+
+    @Test
+    void getUserById() throws Exception {
+        User user = saveUser();
+
+        assertThat(roundTrips(get("/api/users/{id}", user.getId()), "/api/users/{id}", status().isOk()))
+                .as("cache miss")
+                .isEqualTo(new RoundTrips(1, 1));
+        assertThat(roundTrips(get("/api/users/{id}", user.getId()), "/api/users/{id}", status().isOk()))
+                .as("cache hit")
+                .isEqualTo(new RoundTrips(0, 0));
+        assertThat(roundTrips(get("/api/users/{id}", user.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""),
+                "/api/users/{id}", status().isNotModified()))
+                .as("not modified")
+                .isEqualTo(new RoundTrips(1, 1));
+    }
+
+    @Test
+    void getUserById_NotFound() throws Exception {
+        assertThat(roundTrips(get("/api/users/{id}", Long.MAX_VALUE), "/api/users/{id}", status().isNotFound()))
+                .isEqualTo(new RoundTrips(2, 1));
+    }
+
+    @Test
+    void getUserByEmail() throws Exception {
+        User user = saveUser();
+        String email = user.getEmail().toUpperCase();
+
+        assertThat(roundTrips(get("/api/users/by-email/{email}", email), "/api/users/by-email/{email}",
+                status().isOk()))
+                .as("cache miss")
+                .isEqualTo(new RoundTrips(1, 1));
+        assertThat(roundTrips(get("/api/users/by-email/{email}", email), "/api/users/by-email/{email}",
+                status().isOk()))
+                .as("cache hit")
+                .isEqualTo(new RoundTrips(0, 0));
+    }
+
+    @Test
+    void createUser() throws Exception {
+        assertThat(roundTrips(post("/api/users").contentType(MediaType.APPLICATION_JSON).content(userJson(email())),
+                "/api/users", status().isCreated()))
+                .isEqualTo(new RoundTrips(4, 1));
+    }
+
+    @Test
+    void createUser_EmailTaken() throws Exception {
+        User user = saveUser();
+
+        assertThat(roundTrips(post("/api/users").contentType(MediaType.APPLICATION_JSON)
+                .content(userJson(user.getEmail())), "/api/users", status().isConflict()))
+                .isEqualTo(new RoundTrips(1, 1));
+    }
+
+    @Test
+    void updateUser() throws Exception {
+        User user = saveUser();
+
+        assertThat(roundTrips(put("/api/users/{id}", user.getId()).contentType(MediaType.APPLICATION_JSON)
+                .content(userJson(email())), "/api/users/{id}", status().isOk()))
+                .as("email changed")
+                .isEqualTo(new RoundTrips(5, 1));
+        assertThat(roundTrips(put("/api/users/{id}", user.getId()).contentType(MediaType.APPLICATION_JSON)
+                .content(userJson(email()).replace("\"age\":30", "\"age\":31")), "/api/users/{id}", status().isOk()))
+                .as("email and age changed")
+                .isEqualTo(new RoundTrips(5, 1));
+    }
+
+    @Test
+    void patchUser() throws Exception {
+        User user = saveUser();
+
+        assertThat(roundTrips(patch("/api/users/{id}", user.getId()).contentType("application/merge-patch+json")
+                .content("{\"age\":42}"), "/api/users/{id}", status().isOk()))
+                .as("age changed")
+                .isEqualTo(new RoundTrips(3, 1));
+        assertThat(roundTrips(patch("/api/users/{id}", user.getId()).contentType("application/merge-patch+json")
+                .content("{\"age\":42}"), "/api/users/{id}", status().isOk()))
+                .as("unchanged")
+                .isEqualTo(new RoundTrips(1, 1));
+    }
+
+    @Test
+    void deleteUser() throws Exception {
+        User user = saveUser();
+
+        assertThat(roundTrips(delete("/api/users/{id}", user.getId()), "/api/users/{id}", status().isNoContent()))
+                .isEqualTo(new RoundTrips(4, 1));
+    }
+
+    private RoundTrips roundTrips(MockHttpServletRequestBuilder request, String uri, ResultMatcher expectedStatus)
+            throws Exception {
+        meterRegistry.clear();
+        MvcResult result = mockMvc.perform(request).andExpect(expectedStatus).andReturn();
+        String method = result.getRequest().getMethod();
+        return new RoundTrips(count(STATEMENTS, method, uri), count(TRANSACTIONS, method, uri));
+    }
+
+    private long count(String meter, String method, String uri) {
+        return (long) meterRegistry.get(meter).tags("method", method, "uri", uri).summary().totalAmount();
+    }
+
+    private User saveUser() {
+        return userRepository.save(new User("Budget User", email(), 30));
+    }
+
+    private static String email() {
+        return "budget" + EMAILS.incrementAndGet() + "@test.com";
+    }
+
+    private static String userJson(String email) {
+        return "{\"name\":\"Budget User\",\"email\":\"" + email + "\",\"age\":30}";
+    }
+
+    private record RoundTrips(long statements, long transactions) {
+    }
+}
@@ -99,4 +99,29 @@ class UserControllerIntegrationTest {
         assertThat(response.getBody().getLink("self")).isPresent();
         assertThat(response.getBody().getLink("create-user")).isPresent();
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldAnswerNotModifiedForMatchingETagAndGuardUpdatesWithIfMatch() {
+        User user = userRepository.save(new User("ETag User", "etag@test.com", 40));
+
+        ResponseEntity<String> first = restTemplate.getForEntity("/api/users/" + user.getId(), String.class);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isNotNull();
+
+        HttpHeaders conditional = new HttpHeaders();
+        conditional.setIfNoneMatch(etag);
+        ResponseEntity<String> second = restTemplate.exchange("/api/users/" + user.getId(), HttpMethod.GET,
+                new HttpEntity<>(conditional), String.class);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        CreateUserDto updateDto = new CreateUserDto();
+        updateDto.setName("ETag User 2");
+        updateDto.setEmail("etag@test.com");
+        updateDto.setAge(41);
+        HttpHeaders staleIfMatch = new HttpHeaders();
+        staleIfMatch.setIfMatch("\"999\"");
+        ResponseEntity<String> rejected = restTemplate.exchange("/api/users/" + user.getId(), HttpMethod.PUT,
+                new HttpEntity<>(updateDto, staleIfMatch), String.class);
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+}
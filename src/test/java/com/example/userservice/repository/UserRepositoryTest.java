@@ -1,5 +1,7 @@
 package com.example.userservice.repository;
 
+import com.example.userservice.dto.UserCollectionVersion;
+import com.example.userservice.dto.UserView;
 import com.example.userservice.entity.User;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +13,8 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -36,6 +40,9 @@ class UserRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ArchivedUserRepository archivedUserRepository;
+
     @Test
     void existsByEmail_ShouldReturnTrue_WhenEmailExists() {
         String email = "test@example.com";
@@ -57,16 +64,25 @@ class UserRepositoryTest {
     }
 
     @Test
-    void existsByEmail_ShouldBeCaseSensitive() {
+    void existsByEmail_ShouldIgnoreCase() {
         String email = "Test@Example.com";
         User user = new User("Test User", email, 30);
         userRepository.save(user);
 
-        assertThat(userRepository.existsByEmail("test@example.com")).isFalse();
-        assertThat(userRepository.existsByEmail("TEST@EXAMPLE.COM")).isFalse();
+        assertThat(userRepository.existsByEmail("test@example.com")).isTrue();
+        assertThat(userRepository.existsByEmail("TEST@EXAMPLE.COM")).isTrue();
         assertThat(userRepository.existsByEmail(email)).isTrue();
     }
 
+    @Test
+    void saveUser_ShouldStoreEmailLowerCased() {
+        User savedUser = userRepository.save(new User("Test User", "Test@Example.com", 30));
+
+        assertThat(savedUser.getEmail()).isEqualTo("test@example.com");
+        assertThat(userRepository.findViewByEmail("TEST@example.COM"))
+                .hasValueSatisfying(view -> assertThat(view.id()).isEqualTo(savedUser.getId()));
+    }
+
     @Test
     void saveUser_ShouldPersistUser() {
         User user = new User("New User", "new@example.com", 25);
@@ -92,6 +108,26 @@ class UserRepositoryTest {
         assertThat(foundUser.get().getName()).isEqualTo("Test User");
     }
 
+    @Test
+    void listAndVersionQueries_ShouldIncludeArchivedUsers() {
+        LocalDateTime now = LocalDateTime.now();
+        User active = new User("Active User", "active@example.com", 30);
+        active.setUpdatedAt(now);
+        User inactive = new User("Inactive User", "inactive@example.com", 40);
+        inactive.setUpdatedAt(now.minusDays(2));
+        userRepository.saveAndFlush(active);
+        userRepository.saveAndFlush(inactive);
+        UserCollectionVersion before = userRepository.findCollectionVersion();
+
+        assertThat(archivedUserRepository.archiveInactive(now.minusDays(1), 10, now)).isEqualTo(1);
+
+        assertThat(userRepository.findAllViews()).extracting(UserView::id)
+                .containsExactly(active.getId(), inactive.getId());
+        assertThat(userRepository.findCollectionVersion()).isEqualTo(before);
+        assertThat(userRepository.countWithArchived()).isEqualTo(2);
+        assertThat(userRepository.findViewsByIdIn(List.of(inactive.getId()))).hasSize(1);
+    }
+
     @Test
     void findById_ShouldReturnEmpty_WhenUserDoesNotExist() {
         Optional<User> result = userRepository.findById(999L);
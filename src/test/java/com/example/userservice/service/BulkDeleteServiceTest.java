@@ -0,0 +1,212 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.LastKnownGoodUsers;
+import com.example.userservice.cache.OffHeapUserMirror;
+import com.example.userservice.cache.UserEmailCache;
+import com.example.userservice.cache.UserReadCache;
+import com.example.userservice.dto.BulkDeleteRequestDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.entity.BulkDeleteJob;
+import com.example.userservice.entity.BulkDeleteJob.Status;
+import com.example.userservice.exception.BulkDeleteNotSupportedException;
+import com.example.userservice.repository.BulkDeleteJobRepository;
+import com.example.userservice.repository.UserBulkDeleteRepository;
+import com.example.userservice.repository.UserBulkDeleteRepository.DeletedChunk;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkDeleteServiceTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-10T12:00:00Z"), ZoneOffset.UTC);
+    private static final Duration EVENT_TIMEOUT = Duration.ofSeconds(5);
+
+    @Mock
+    private BulkDeleteJobRepository jobRepository;
+
+    @Mock
+    private UserBulkDeleteRepository userBulkDeleteRepository;
+
+    @Mock
+    private UserEventPublisher userEventPublisher;
+
+    @Mock
+    private UserStatistics userStatistics;
+
+    @Mock
+    private UserReadCache userReadCache;
+
+    @Mock
+    private UserEmailCache userEmailCache;
+
+    @Mock
+    private OffHeapUserMirror userMirror;
+
+    @Mock
+    private LastKnownGoodUsers lastKnownGood;
+
+    @Mock
+    private UserShards userShards;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ExecutorService workers;
+
+    private BulkDeleteService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BulkDeleteService(jobRepository, userBulkDeleteRepository, userEventPublisher, userStatistics,
+                userReadCache, userMirror, userEmailCache, lastKnownGood, userShards,
+                new TransactionTemplate(transactionManager), 2, Duration.ofMinutes(1), EVENT_TIMEOUT, CLOCK, workers);
+    }
+
+    @Test
+    void run_ShouldDeleteIdsInChunksAndComplete() {
+        BulkDeleteJob job = job(1L);
+        job.setUserIds(new Long[]{3L, 5L, 8L});
+        claim(job);
+        when(userBulkDeleteRepository.deleteByIds(eq(new Long[]{3L, 5L}), any()))
+                .thenReturn(new DeletedChunk(List.of(user(3L), user(5L)), 5L));
+        when(userBulkDeleteRepository.deleteByIds(eq(new Long[]{8L}), any()))
+                .thenReturn(new DeletedChunk(List.of(), 0L));
+
+        service.run(1L);
+
+        verify(userEventPublisher).publishUserDeletedEvents(List.of(user(3L), user(5L)), EVENT_TIMEOUT);
+        verify(userReadCache).evict(3L);
+        verify(userReadCache).evict(5L);
+        verify(userMirror).remove(3L);
+        verify(userMirror).remove(5L);
+        verify(lastKnownGood).evict(3L);
+        verify(lastKnownGood).evict(5L);
+        verify(jobRepository).recordProgress(eq(1L), eq(5L), eq(2L), any(), any());
+        verify(jobRepository).recordProgress(eq(1L), eq(8L), eq(0L), any(), any());
+        verify(jobRepository).finish(eq(1L), eq(Status.COMPLETED), isNull(), any());
+        verifyNoMoreInteractions(userEventPublisher);
+    }
+
+    @Test
+    void run_ShouldResumeAfterLastCommittedId() {
+        BulkDeleteJob job = job(1L);
+        job.setUserIds(new Long[]{3L, 5L, 8L});
+        job.setLastId(5L);
+        claim(job);
+        when(userBulkDeleteRepository.deleteByIds(eq(new Long[]{8L}), any()))
+                .thenReturn(new DeletedChunk(List.of(user(8L)), 8L));
+
+        service.run(1L);
+
+        verify(userBulkDeleteRepository).deleteByIds(eq(new Long[]{8L}), any());
+        verifyNoMoreInteractions(userBulkDeleteRepository);
+        verify(jobRepository).finish(eq(1L), eq(Status.COMPLETED), isNull(), any());
+    }
+
+    @Test
+    void run_ShouldScanFilterUntilNothingIsLeft() {
+        BulkDeleteJob job = job(1L);
+        job.setEmailDomain("example.com");
+        claim(job);
+        when(userBulkDeleteRepository.deleteByFilter(eq(0L), isNull(), eq("example.com"), isNull(), isNull(),
+                eq(2), any())).thenReturn(new DeletedChunk(List.of(user(4L), user(6L)), 6L));
+        when(userBulkDeleteRepository.deleteByFilter(eq(6L), isNull(), eq("example.com"), isNull(), isNull(),
+                eq(2), any())).thenReturn(new DeletedChunk(List.of(), 0L));
+
+        service.run(1L);
+
+        verify(jobRepository).recordProgress(eq(1L), eq(6L), eq(2L), any(), any());
+        verify(jobRepository).finish(eq(1L), eq(Status.COMPLETED), isNull(), any());
+    }
+
+    @Test
+    void run_ShouldFailWithoutProgressWhenEventsAreNotAcknowledged() {
+        BulkDeleteJob job = job(1L);
+        job.setUserIds(new Long[]{3L});
+        claim(job);
+        when(userBulkDeleteRepository.deleteByIds(any(), any()))
+                .thenReturn(new DeletedChunk(List.of(user(3L)), 3L));
+        doThrow(new KafkaException("broker down")).when(userEventPublisher).publishUserDeletedEvents(any(), any());
+
+        service.run(1L);
+
+        verify(transactionManager).rollback(any());
+        verify(jobRepository, never()).recordProgress(anyLong(), anyLong(), anyLong(), any(), any());
+        verify(jobRepository).finish(eq(1L), eq(Status.FAILED), eq("broker down"), any());
+        verifyNoInteractions(userReadCache);
+    }
+
+    @Test
+    void run_ShouldDoNothingWhenAnotherWorkerHoldsTheLease() {
+        when(jobRepository.claim(eq(1L), any(), any(), eq(Status.RUNNING), eq(Status.COMPLETED))).thenReturn(0);
+
+        service.run(1L);
+
+        verifyNoInteractions(userBulkDeleteRepository);
+        verify(jobRepository, never()).finish(any(), any(), any(), any());
+    }
+
+    @Test
+    void start_ShouldRefuse_WhenSharded() {
+        when(userShards.isSharded()).thenReturn(true);
+        BulkDeleteRequestDto request = new BulkDeleteRequestDto();
+        request.setIds(List.of(1L));
+
+        assertThatThrownBy(() -> service.start(request)).isInstanceOf(BulkDeleteNotSupportedException.class);
+        assertThatThrownBy(() -> service.resume(1L)).isInstanceOf(BulkDeleteNotSupportedException.class);
+        service.resumeAbandoned();
+
+        verifyNoInteractions(jobRepository, workers);
+    }
+
+    @Test
+    void nextIds_ShouldReturnTheChunkAfterTheGivenId() {
+        Long[] ids = {2L, 4L, 6L, 8L, 10L};
+
+        assertThat(BulkDeleteService.nextIds(ids, 0L, 2)).containsExactly(2L, 4L);
+        assertThat(BulkDeleteService.nextIds(ids, 4L, 2)).containsExactly(6L, 8L);
+        assertThat(BulkDeleteService.nextIds(ids, 7L, 2)).containsExactly(8L, 10L);
+        assertThat(BulkDeleteService.nextIds(ids, 10L, 2)).isEmpty();
+    }
+
+    private void claim(BulkDeleteJob job) {
+        when(jobRepository.claim(eq(job.getId()), any(), any(), eq(Status.RUNNING), eq(Status.COMPLETED)))
+                .thenReturn(1);
+        when(jobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+    }
+
+    private static BulkDeleteJob job(Long id) {
+        BulkDeleteJob job = new BulkDeleteJob();
+        job.setId(id);
+        job.setStatus(Status.RUNNING);
+        return job;
+    }
+
+    private static UserView user(Long id) {
+        return new UserView(id, "User " + id, "user" + id + "@example.com", 30,
+                LocalDateTime.of(2024, 1, 1, 0, 0), 0L);
+    }
+}
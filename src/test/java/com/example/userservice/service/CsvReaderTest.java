@@ -0,0 +1,52 @@
+package com.example.userservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvReaderTest {
+
+    @Test
+    void next_ShouldReadQuotedFieldsSpanningLinesWithTheirStartLine() throws IOException {
+        CsvReader reader = reader("a,b\r\n\"x, \"\"y\"\"\",\"two\nlines\"\n,\n");
+
+        assertRecord(reader.next(), 1, List.of("a", "b"), null);
+        assertRecord(reader.next(), 2, List.of("x, \"y\"", "two\nlines"), null);
+        assertRecord(reader.next(), 4, List.of("", ""), null);
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void next_ShouldReadLastRecordWithoutLineBreakAndFlagBlankLines() throws IOException {
+        CsvReader reader = reader("a\n\nb");
+
+        assertThat(reader.next().isBlank()).isFalse();
+        assertThat(reader.next().isBlank()).isTrue();
+        assertRecord(reader.next(), 3, List.of("b"), null);
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void next_ShouldCutOversizedInputAndReportIt() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("abcdef,g\na,b,c,d\n\"open,x\n"), 4, 3);
+
+        assertRecord(reader.next(), 1, List.of("abcd", "g"), "Field longer than 4 characters");
+        assertRecord(reader.next(), 2, List.of("a", "b", "c"), "More than 3 fields");
+        assertRecord(reader.next(), 3, List.of("open"), "Unterminated quoted field");
+        assertThat(reader.next()).isNull();
+    }
+
+    private static CsvReader reader(String csv) {
+        return new CsvReader(new StringReader(csv), 100, 10);
+    }
+
+    private static void assertRecord(CsvReader.Record record, long line, List<String> fields, String problem) {
+        assertThat(record.line()).isEqualTo(line);
+        assertThat(record.fields()).isEqualTo(fields);
+        assertThat(record.problem()).isEqualTo(problem);
+    }
+}
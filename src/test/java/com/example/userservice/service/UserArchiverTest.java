@@ -0,0 +1,88 @@
+package com.example.userservice.service;
+
+import com.example.userservice.repository.ArchivedUserRepository;
+import com.example.userservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserArchiverTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-10T12:00:00Z"), ZoneOffset.UTC);
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 1, 9, 12, 0);
+
+    @Mock
+    private ArchivedUserRepository archivedUserRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserShards userShards;
+
+    private UserArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        archiver = new UserArchiver(archivedUserRepository, userRepository, userShards, Duration.ofDays(1), 100, 3,
+                Duration.ZERO, CLOCK);
+        lenient().when(userShards.shardCount()).thenReturn(1);
+        when(userShards.onShard(anyInt(), any())).thenAnswer(invocation ->
+                invocation.<Supplier<?>>getArgument(1).get());
+    }
+
+    @Test
+    void archive_ShouldArchiveEveryShard() {
+        when(userShards.shardCount()).thenReturn(3);
+        when(archivedUserRepository.archiveInactive(eq(CUTOFF), eq(100), any())).thenReturn(0);
+
+        archiver.archive();
+
+        for (int shard = 0; shard < 3; shard++) {
+            verify(userShards, times(2)).onShard(eq(shard), any());
+        }
+        verify(archivedUserRepository, times(3)).archiveInactive(eq(CUTOFF), eq(100), any());
+        verify(userRepository, times(3)).exceedsSharedBuffers();
+    }
+
+    @Test
+    void archive_ShouldMoveBatchesUntilOneComesBackShort() {
+        when(archivedUserRepository.archiveInactive(eq(CUTOFF), eq(100), any())).thenReturn(100, 40);
+
+        archiver.archive();
+
+        verify(archivedUserRepository, times(2)).archiveInactive(eq(CUTOFF), eq(100), any());
+    }
+
+    @Test
+    void archive_ShouldStopAfterMaxBatchesPerRun() {
+        when(archivedUserRepository.archiveInactive(any(), anyInt(), any())).thenReturn(100);
+
+        archiver.archive();
+
+        verify(archivedUserRepository, times(3)).archiveInactive(any(), anyInt(), any());
+    }
+
+    @Test
+    void archive_ShouldStopAfterEmptyBatch() {
+        when(archivedUserRepository.archiveInactive(any(), anyInt(), any())).thenReturn(0);
+
+        archiver.archive();
+
+        verify(archivedUserRepository, times(1)).archiveInactive(any(), anyInt(), any());
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.OffHeapUserMirror;
+import com.example.userservice.cache.UserReadCache;
+import com.example.userservice.dto.UserChangeDto;
+import com.example.userservice.dto.UserChangesDto;
+import com.example.userservice.dto.UserDto;
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserTombstone;
+import com.example.userservice.exception.ChangeCursorExpiredException;
+import com.example.userservice.exception.ChangeFeedNotSupportedException;
+import com.example.userservice.exception.ServiceUnavailableException;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.repository.UserTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserChangeFeedTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-10T12:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserTombstoneRepository tombstoneRepository;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private OffHeapUserMirror userMirror;
+
+    @Mock
+    private UserReadCache userReadCache;
+
+    private ExecutorService fanOut;
+    private UserChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        fanOut = Executors.newSingleThreadExecutor();
+        feed = new UserChangeFeed(userRepository, tombstoneRepository, userMapper, userMirror, userReadCache, 4, 100,
+                Duration.ofDays(7), Duration.ofMinutes(1), 2, false, CLOCK, fanOut);
+        when(userRepository.findLastChangeSeq()).thenReturn(10L);
+        when(userRepository.findTransactionHorizon()).thenReturn(horizon(100, 100));
+        feed.start();
+    }
+
+    @Test
+    void poll_ShouldMergeUpsertsAndTombstonesInSequenceOrder() {
+        stubChanges(10L, 13L, List.of(user(1L, 11L), user(2L, 13L)), List.of(tombstone(3L, 12L)));
+
+        pollUpTo(13L);
+        UserChangesDto result = feed.changesSince(10L, 100);
+
+        assertThat(result.changes()).extracting(UserChangeDto::seq).containsExactly(11L, 12L, 13L);
+        assertThat(result.changes()).extracting(UserChangeDto::type).containsExactly(
+                UserChangeDto.Type.UPSERT, UserChangeDto.Type.DELETE, UserChangeDto.Type.UPSERT);
+        assertThat(result.cursor()).isEqualTo(13L);
+    }
+
+    @Test
+    void poll_ShouldApplySettledChangesToMirrorAndReadCache() {
+        stubChanges(10L, 12L, List.of(user(1L, 11L)), List.of(tombstone(2L, 12L)));
+
+        pollUpTo(12L);
+
+        verify(userMirror).applyChanges(argThat(changes -> changes.stream().map(UserChangeDto::seq).toList()
+                .equals(List.of(11L, 12L))));
+        verify(userReadCache).applyChanges(argThat(changes -> changes.size() == 2));
+    }
+
+    @Test
+    void changesSince_ShouldServeBufferedCursorsWithoutQueries() {
+        stubChanges(10L, 12L, List.of(user(1L, 11L), user(2L, 12L)), List.of());
+        pollUpTo(12L);
+        clearInvocations(userRepository, tombstoneRepository);
+
+        for (int subscriber = 0; subscriber < 50; subscriber++) {
+            assertThat(feed.changesSince(11L, 100).changes()).extracting(UserChangeDto::seq).containsExactly(12L);
+        }
+
+        verifyNoInteractions(userRepository, tombstoneRepository);
+    }
+
+    @Test
+    void changesSince_ShouldQueryHistory_WhenCursorIsOlderThanBuffer() {
+        when(tombstoneRepository.findHorizon(any())).thenReturn(Optional.empty());
+        when(userRepository.findChanges(eq(3L), eq(10L), any())).thenReturn(List.of(user(1L, 5L)));
+        when(tombstoneRepository.findChanges(eq(3L), eq(10L), any())).thenReturn(List.of());
+
+        UserChangesDto result = feed.changesSince(3L, 100);
+
+        assertThat(result.changes()).extracting(UserChangeDto::seq).containsExactly(5L);
+        assertThat(result.cursor()).isEqualTo(5L);
+    }
+
+    @Test
+    void changesSince_ShouldRejectCursorBehindPurgedTombstones() {
+        when(tombstoneRepository.findHorizon(any())).thenReturn(Optional.of(6L));
+
+        assertThatThrownBy(() -> feed.changesSince(3L, 100)).isInstanceOf(ChangeCursorExpiredException.class);
+    }
+
+    @Test
+    void changesSince_ShouldReturnHead_WhenNoCursorGiven() {
+        assertThat(feed.changesSince(null, 100)).isEqualTo(new UserChangesDto(List.of(), 10L));
+    }
+
+    @Test
+    void awaitChanges_ShouldCompleteWaiterOnNextPoll() throws Exception {
+        DeferredResult<UserChangesDto> result = feed.awaitChanges(10L, 100, Duration.ofSeconds(30));
+        assertThat(result.hasResult()).isFalse();
+
+        stubChanges(10L, 11L, List.of(user(1L, 11L)), List.of());
+        pollUpTo(11L);
+        fanOut.shutdown();
+        fanOut.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(((UserChangesDto) result.getResult()).cursor()).isEqualTo(11L);
+    }
+
+    @Test
+    void poll_ShouldHoldBackPositions_UntilTransactionsRunningWhenTheyWereDrawnFinish() {
+        stubChanges(10L, 13L, List.of(user(1L, 11L), user(2L, 13L)), List.of());
+        when(userRepository.findLastChangeSeq()).thenReturn(13L);
+
+        when(userRepository.findTransactionHorizon()).thenReturn(horizon(100, 105));
+        feed.poll();
+        when(userRepository.findTransactionHorizon()).thenReturn(horizon(103, 106));
+        feed.poll();
+        feed.poll();
+
+        assertThat(feed.changesSince(10L, 100).changes()).isEmpty();
+        verify(userRepository, never()).findChanges(anyLong(), eq(13L), any());
+
+        when(userRepository.findTransactionHorizon()).thenReturn(horizon(106, 106));
+        feed.poll();
+
+        assertThat(feed.changesSince(10L, 100).changes()).extracting(UserChangeDto::seq).containsExactly(11L, 13L);
+    }
+
+    @Test
+    void changesSince_ShouldBeRefused_WhenSharded() {
+        UserChangeFeed sharded = new UserChangeFeed(userRepository, tombstoneRepository, userMapper, userMirror,
+                userReadCache, 4, 100, Duration.ofDays(7), Duration.ofMinutes(1), 2, true, CLOCK, fanOut);
+        sharded.start();
+        sharded.userDeleted(1L);
+
+        assertThatThrownBy(() -> sharded.changesSince(3L, 100)).isInstanceOf(ChangeFeedNotSupportedException.class);
+        assertThatThrownBy(() -> sharded.subscribe(3L)).isInstanceOf(ChangeFeedNotSupportedException.class);
+        verifyNoInteractions(tombstoneRepository);
+    }
+
+    @Test
+    void changesSince_ShouldBeUnavailable_UntilHeadHasSettled() {
+        UserChangeFeed starting = new UserChangeFeed(userRepository, tombstoneRepository, userMapper, userMirror,
+                userReadCache, 4, 100, Duration.ofDays(7), Duration.ofMinutes(1), 2, false, CLOCK, fanOut);
+        when(userRepository.findTransactionHorizon()).thenReturn(horizon(100, 105));
+        starting.start();
+
+        assertThatThrownBy(() -> starting.changesSince(null, 100)).isInstanceOf(ServiceUnavailableException.class);
+        assertThat(starting.changesSince(3L, 100)).isEqualTo(new UserChangesDto(List.of(), 3L));
+
+        when(userRepository.findTransactionHorizon()).thenReturn(horizon(105, 105));
+        starting.poll();
+
+        assertThat(starting.changesSince(null, 100)).isEqualTo(new UserChangesDto(List.of(), 10L));
+    }
+
+    @Test
+    void subscribe_ShouldSendQueuedChanges() throws Exception {
+        SseEmitter emitter = feed.subscribe(10L);
+        stubChanges(10L, 12L, List.of(user(1L, 11L), user(2L, 12L)), List.of());
+
+        pollUpTo(12L);
+        fanOut.shutdown();
+        fanOut.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat((Collection<?>) ReflectionTestUtils.getField(emitter, "earlySendAttempts")).isNotEmpty();
+        assertThat(ReflectionTestUtils.getField(emitter, "complete")).isEqualTo(false);
+    }
+
+    @Test
+    void subscribe_ShouldDisconnectSubscriber_WhenItsQueueOverflows() throws Exception {
+        CountDownLatch stalled = new CountDownLatch(1);
+        fanOut.execute(() -> {
+            try {
+                stalled.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        SseEmitter emitter = feed.subscribe(10L);
+        stubChanges(10L, 13L, List.of(user(1L, 11L), user(2L, 12L), user(3L, 13L)), List.of());
+
+        pollUpTo(13L);
+        stalled.countDown();
+        fanOut.shutdown();
+        fanOut.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(ReflectionTestUtils.getField(emitter, "complete")).isEqualTo(true);
+    }
+
+    @Test
+    void userDeleted_ShouldFlushDeleteBeforeDrawingTombstonePosition() {
+        feed.userDeleted(1L);
+
+        var inOrder = inOrder(userRepository, tombstoneRepository);
+        inOrder.verify(userRepository).flush();
+        inOrder.verify(tombstoneRepository).save(argThat(tombstone -> tombstone.getUserId().equals(1L)));
+    }
+
+    // with no transaction running, each poll settles the position read by the one before
+    private void pollUpTo(long seq) {
+        when(userRepository.findLastChangeSeq()).thenReturn(seq);
+        feed.poll();
+        feed.poll();
+    }
+
+    private void stubChanges(long after, long upTo, List<User> users, List<UserTombstone> tombstones) {
+        lenient().when(userRepository.findChanges(anyLong(), anyLong(), any())).thenReturn(List.of());
+        lenient().when(tombstoneRepository.findChanges(anyLong(), anyLong(), any())).thenReturn(List.of());
+        when(userRepository.findChanges(eq(after), eq(upTo), any())).thenReturn(users);
+        when(tombstoneRepository.findChanges(eq(after), eq(upTo), any())).thenReturn(tombstones);
+        lenient().when(userMapper.toDto(any(User.class))).thenReturn(new UserDto());
+    }
+
+    private static UserRepository.TransactionHorizon horizon(long xmin, long xmax) {
+        return new UserRepository.TransactionHorizon() {
+            @Override
+            public long getXmin() {
+                return xmin;
+            }
+
+            @Override
+            public long getXmax() {
+                return xmax;
+            }
+        };
+    }
+
+    private static User user(Long id, long seq) {
+        User user = new User("User " + id, "user" + id + "@test.com", 30);
+        user.setId(id);
+        user.setChangeSeq(seq);
+        return user;
+    }
+
+    private static UserTombstone tombstone(Long userId, long seq) {
+        UserTombstone tombstone = new UserTombstone(userId, LocalDateTime.now(CLOCK));
+        tombstone.setChangeSeq(seq);
+        return tombstone;
+    }
+}
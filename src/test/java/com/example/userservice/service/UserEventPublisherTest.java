@@ -0,0 +1,75 @@
+package com.example.userservice.service;
+
+import com.example.shared.dto.UserEvent;
+import com.example.userservice.cache.UserStateCodec;
+import com.example.userservice.dto.UserView;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserEventPublisherTest {
+
+    @Mock
+    private KafkaTemplate<String, UserEvent> kafkaTemplate;
+
+    @Mock
+    private KafkaTemplate<Long, byte[]> stateTemplate;
+
+    private final List<ProducerRecord<Long, byte[]>> sent = new ArrayList<>();
+    private UserEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new UserEventPublisher(kafkaTemplate, stateTemplate, "user-events", "users-state");
+        when(stateTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    @Test
+    void publishUserRemoved_ShouldSendTombstoneWithDeletedVersion() {
+        publisher.publishUserRemoved(1L, 4L);
+
+        assertThat(sent).singleElement().satisfies(record -> {
+            assertThat(record.key()).isEqualTo(1L);
+            assertThat(record.value()).isNull();
+            Header version = record.headers().lastHeader(UserStateCodec.VERSION_HEADER);
+            assertThat(ByteBuffer.wrap(version.value()).getLong()).isEqualTo(4L);
+        });
+    }
+
+    @Test
+    void publishUserState_ShouldDropStatesNoNewerThanASentDelete() {
+        publisher.publishUserRemoved(1L, 4L);
+
+        publisher.publishUserState(user(1L, 4L));
+        publisher.publishUserStates(List.of(user(1L, 3L), user(2L, 0L)), List.of(), Duration.ofSeconds(1));
+        publisher.publishUserState(user(1L, 5L));
+
+        assertThat(sent).extracting(ProducerRecord::key).containsExactly(1L, 2L, 1L);
+        assertThat(sent.get(2).value()).isNotNull();
+    }
+
+    private static UserView user(Long id, Long version) {
+        return new UserView(id, "User " + id, "user" + id + "@example.com", 30,
+                LocalDateTime.of(2024, 1, 10, 12, 0), version);
+    }
+}
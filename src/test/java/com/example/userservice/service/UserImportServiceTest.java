@@ -0,0 +1,318 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.OffHeapUserMirror;
+import com.example.userservice.dto.UserImportDto;
+import com.example.userservice.dto.UserView;
+import com.example.userservice.entity.UserImport;
+import com.example.userservice.entity.UserImport.Status;
+import com.example.userservice.exception.ImportNotSupportedException;
+import com.example.userservice.exception.InvalidImportException;
+import com.example.userservice.repository.UserImportRepository;
+import com.example.userservice.repository.UserImportStagingRepository;
+import com.example.userservice.repository.UserImportStagingRepository.ImportedBatch;
+import com.example.userservice.repository.UserImportStagingRepository.MergeResult;
+import com.example.userservice.repository.UserImportStagingRepository.StagedRow;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-10T12:00:00Z"), ZoneOffset.UTC);
+    private static final Duration EVENT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    private static final LocalDateTime NOW = LocalDateTime.now(CLOCK);
+
+    @Mock
+    private UserImportRepository importRepository;
+
+    @Mock
+    private UserImportStagingRepository stagingRepository;
+
+    @Mock
+    private UserShards userShards;
+
+    @Mock
+    private UserEventPublisher userEventPublisher;
+
+    @Mock
+    private UserStatistics userStatistics;
+
+    @Mock
+    private OffHeapUserMirror userMirror;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ValidatorFactory validatorFactory;
+    private UserImportService service;
+
+    @BeforeEach
+    void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        service = new UserImportService(importRepository, stagingRepository, userShards, userEventPublisher,
+                userStatistics, userMirror, validatorFactory.getValidator(),
+                new TransactionTemplate(transactionManager), 3, 2, EVENT_TIMEOUT, LEASE, Duration.ofDays(7),
+                CLOCK);
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void importCsv_ShouldStageMergeThenPublishInBatches() {
+        saveAssignsId();
+        List<List<StagedRow>> copies = new ArrayList<>();
+        when(stagingRepository.copy(eq(1L), any())).thenAnswer(invocation -> {
+            List<StagedRow> copied = new ArrayList<>();
+            Iterator<StagedRow> rows = invocation.getArgument(1);
+            rows.forEachRemaining(copied::add);
+            copies.add(copied);
+            return (long) copied.size();
+        });
+        when(stagingRepository.merge(1L, NOW)).thenReturn(new MergeResult(3, 1));
+        when(importRepository.recordMerged(1L, 4, 3, 2, NOW, NOW.plus(LEASE), Status.RUNNING)).thenReturn(1);
+        when(stagingRepository.findImported(1L, 0L, 2))
+                .thenReturn(new ImportedBatch(List.of(user(1L), user(2L)), 4L));
+        when(stagingRepository.findImported(1L, 4L, 2)).thenReturn(new ImportedBatch(List.of(user(3L)), 5L));
+
+        UserImportDto result = service.importCsv(csv("""
+                age,Email,name
+                30,Ana@Example.com,Ana
+
+                31,ben@example.com,Ben
+                32,cy@example.com,Cy
+                40,not-an-email,Dee
+                """));
+
+        assertThat(copies).extracting(List::size).containsExactly(3, 1);
+        List<StagedRow> staged = copies.stream().flatMap(List::stream).toList();
+        assertThat(staged).extracting(StagedRow::line).containsExactly(2L, 4L, 5L, 6L);
+        assertThat(staged.get(0)).isEqualTo(new StagedRow(2, "Ana", "ana@example.com", 30, null));
+        assertThat(staged.get(3).error()).isEqualTo("Email should be valid");
+        verify(userEventPublisher).publishUserCreatedEvents(List.of(user(1L), user(2L)), EVENT_TIMEOUT);
+        verify(userEventPublisher).publishUserCreatedEvents(List.of(user(3L)), EVENT_TIMEOUT);
+        verify(stagingRepository).deleteAccepted(1L, 4L);
+        verify(stagingRepository).deleteAccepted(1L);
+        verify(importRepository, times(2)).extendLease(1L, NOW.plus(LEASE));
+        verify(importRepository).recordPublished(1L, 2, NOW.plus(LEASE));
+        verify(importRepository).recordPublished(1L, 1, NOW.plus(LEASE));
+        verify(userStatistics).reconcile();
+        // two COPYs, the merge and two event batches, each committed on its own
+        verify(transactionManager, times(5)).commit(any());
+        assertThat(result).isEqualTo(new UserImportDto(1L, Status.COMPLETED, 4, 3, 2, 3,
+                LocalDateTime.now(CLOCK), LocalDateTime.now(CLOCK), null));
+    }
+
+    @Test
+    void importCsv_ShouldFailWithPublishedCount_WhenKafkaFails() {
+        saveAssignsId();
+        when(stagingRepository.copy(eq(1L), any())).thenAnswer(invocation -> {
+            Iterator<StagedRow> rows = invocation.getArgument(1);
+            rows.forEachRemaining(row -> { });
+            return 1L;
+        });
+        when(stagingRepository.merge(anyLong(), any())).thenReturn(new MergeResult(1, 0));
+        when(importRepository.recordMerged(eq(1L), anyLong(), anyLong(), anyLong(), any(), any(), any()))
+                .thenReturn(1);
+        when(stagingRepository.findImported(eq(1L), eq(0L), anyInt()))
+                .thenReturn(new ImportedBatch(List.of(user(1L)), 2L));
+        doThrow(new KafkaException("Send failed")).when(userEventPublisher)
+                .publishUserCreatedEvents(any(), any());
+
+        UserImportDto result = service.importCsv(csv("name,email,age\nAna,ana@example.com,30\n"));
+
+        assertThat(result.status()).isEqualTo(Status.FAILED);
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.published()).isZero();
+        assertThat(result.error()).isEqualTo("Send failed");
+        verify(stagingRepository, never()).deleteAccepted(anyLong());
+        verify(stagingRepository, never()).deleteAccepted(anyLong(), anyLong());
+        verify(importRepository, never()).recordPublished(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void importCsv_ShouldRollBackMerge_WhenImportWasGivenUpOn() {
+        saveAssignsId();
+        when(stagingRepository.copy(eq(1L), any())).thenAnswer(invocation -> {
+            Iterator<StagedRow> rows = invocation.getArgument(1);
+            rows.forEachRemaining(row -> { });
+            return 1L;
+        });
+        when(stagingRepository.merge(anyLong(), any())).thenReturn(new MergeResult(1, 0));
+
+        UserImportDto result = service.importCsv(csv("name,email,age\nAna,ana@example.com,30\n"));
+
+        assertThat(result.status()).isEqualTo(Status.FAILED);
+        verify(transactionManager).rollback(any());
+        verifyNoInteractions(userEventPublisher);
+    }
+
+    @Test
+    void resume_ShouldSendOwedEventsAndComplete() {
+        UserImport failed = failedImport(3, 2);
+        when(importRepository.findById(1L)).thenReturn(Optional.of(failed));
+        when(importRepository.claim(1L, NOW, NOW.plus(LEASE), Status.FAILED, Status.RUNNING)).thenReturn(1);
+        when(importRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(stagingRepository.findImported(1L, 0L, 2)).thenReturn(new ImportedBatch(List.of(user(3L)), 5L));
+
+        UserImportDto result = service.resume(1L);
+
+        verify(userEventPublisher).publishUserCreatedEvents(List.of(user(3L)), EVENT_TIMEOUT);
+        verify(stagingRepository).deleteAccepted(1L);
+        assertThat(result.status()).isEqualTo(Status.COMPLETED);
+        assertThat(result.published()).isEqualTo(3);
+        assertThat(result.error()).isNull();
+    }
+
+    @Test
+    void resume_ShouldLeaveImport_WhenNothingIsOwedOrItRunsElsewhere() {
+        when(importRepository.findById(1L)).thenReturn(Optional.of(failedImport(3, 3)));
+
+        UserImportDto result = service.resume(1L);
+
+        assertThat(result.status()).isEqualTo(Status.FAILED);
+        verifyNoInteractions(stagingRepository, userEventPublisher);
+    }
+
+    @Test
+    void resumeUnfinished_ShouldKeepImportFailed_WhenKafkaStillFails() {
+        UserImport failed = failedImport(3, 1);
+        when(importRepository.findResumable(Status.FAILED, Status.RUNNING, NOW)).thenReturn(List.of(1L));
+        when(importRepository.claim(1L, NOW, NOW.plus(LEASE), Status.FAILED, Status.RUNNING)).thenReturn(1);
+        when(importRepository.findById(1L)).thenReturn(Optional.of(failed));
+        when(stagingRepository.findImported(1L, 0L, 2))
+                .thenReturn(new ImportedBatch(List.of(user(2L), user(3L)), 3L));
+        doThrow(new KafkaException("Send failed")).when(userEventPublisher).publishUserCreatedEvents(any(), any());
+        when(importRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.resumeUnfinished();
+
+        verify(importRepository).save(argThat(userImport -> userImport.getStatus() == Status.FAILED
+                && userImport.getPublished() == 1));
+        verify(stagingRepository, never()).deleteAccepted(anyLong(), anyLong());
+    }
+
+    @Test
+    void resumeUnfinished_ShouldPublishWhatAnAbandonedImportOwes_WhenItWasMerged() {
+        UserImport abandoned = failedImport(2, 1);
+        abandoned.setStatus(Status.RUNNING);
+        abandoned.setError(null);
+        when(importRepository.findResumable(Status.FAILED, Status.RUNNING, NOW)).thenReturn(List.of(1L));
+        when(importRepository.claim(1L, NOW, NOW.plus(LEASE), Status.FAILED, Status.RUNNING)).thenReturn(1);
+        when(importRepository.findById(1L)).thenReturn(Optional.of(abandoned));
+        when(stagingRepository.findImported(1L, 0L, 2)).thenReturn(new ImportedBatch(List.of(user(2L)), 3L));
+        when(importRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.resumeUnfinished();
+
+        verify(userEventPublisher).publishUserCreatedEvents(List.of(user(2L)), EVENT_TIMEOUT);
+        verify(importRepository).save(argThat(userImport -> userImport.getStatus() == Status.COMPLETED
+                && userImport.getPublished() == 2 && userImport.getLeaseUntil() == null));
+    }
+
+    @Test
+    void resumeUnfinished_ShouldFailAbandonedImport_WhenItWasNotMerged() {
+        UserImport abandoned = new UserImport();
+        abandoned.setId(1L);
+        when(importRepository.findResumable(Status.FAILED, Status.RUNNING, NOW)).thenReturn(List.of(1L));
+        when(importRepository.claim(1L, NOW, NOW.plus(LEASE), Status.FAILED, Status.RUNNING)).thenReturn(1);
+        when(importRepository.findById(1L)).thenReturn(Optional.of(abandoned));
+
+        service.resumeUnfinished();
+
+        verify(importRepository).failUnmerged(eq(1L), argThat(error -> error.contains("interrupted")), eq(NOW),
+                eq(Status.RUNNING), eq(Status.FAILED));
+        verifyNoInteractions(stagingRepository, userEventPublisher);
+    }
+
+    @Test
+    void importCsv_ShouldRejectHeaderMissingAColumn() {
+        assertThatThrownBy(() -> service.importCsv(csv("name,mail,age\nAna,ana@example.com,30\n")))
+                .isInstanceOf(InvalidImportException.class)
+                .hasMessageContaining("[name, email, age]");
+        verifyNoInteractions(importRepository, stagingRepository);
+    }
+
+    @Test
+    void importCsv_ShouldRefuse_WhenSharded() {
+        when(userShards.isSharded()).thenReturn(true);
+
+        assertThatThrownBy(() -> service.importCsv(csv("name,email,age\n")))
+                .isInstanceOf(ImportNotSupportedException.class);
+    }
+
+    @Test
+    void stage_ShouldListEveryProblemOfARow() {
+        int[] columns = {0, 1, 2};
+
+        assertThat(stage(columns, "A", "a@example.com", "x").error())
+                .isEqualTo("Age must be a whole number; Name must be between 2 and 50 characters");
+        assertThat(stage(columns, "Ana", "a@example.com").error()).isEqualTo("Age is mandatory");
+        assertThat(stage(columns, "An\0a", "a@example.com", "121").error())
+                .isEqualTo("Age must be less than 120; Row contains a NUL character");
+        assertThat(stage(columns, "Ana", "ana@" + ("a".repeat(50) + ".").repeat(5) + "com", "30").error())
+                .contains("Email must be at most 255 characters");
+    }
+
+    private StagedRow stage(int[] columns, String... fields) {
+        return service.stage(new CsvReader.Record(2, List.of(fields), null), columns);
+    }
+
+    private static UserImport failedImport(long imported, long published) {
+        UserImport userImport = new UserImport();
+        userImport.setId(1L);
+        userImport.setStatus(Status.FAILED);
+        userImport.setImported(imported);
+        userImport.setPublished(published);
+        userImport.setMergedAt(NOW);
+        userImport.setError("Send failed");
+        return userImport;
+    }
+
+    private void saveAssignsId() {
+        when(importRepository.save(any())).thenAnswer(invocation -> {
+            UserImport userImport = invocation.getArgument(0);
+            userImport.setId(1L);
+            return userImport;
+        });
+    }
+
+    private static ByteArrayInputStream csv(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UserView user(Long id) {
+        return new UserView(id, "User " + id, "user" + id + "@example.com", 30, LocalDateTime.now(CLOCK), 0L);
+    }
+}
@@ -1,21 +1,38 @@
 package com.example.userservice.service;
 
+import com.example.userservice.cache.LastKnownGoodUsers;
+import com.example.userservice.cache.LastKnownGoodUsers.Stale;
+import com.example.userservice.cache.OffHeapUserMirror;
+import com.example.userservice.cache.UserEmailCache;
+import com.example.userservice.cache.UserReadCache;
+import com.example.userservice.cache.UserReadModel;
 import com.example.userservice.dto.CreateUserDto;
+import com.example.userservice.dto.PatchUserDto;
 import com.example.userservice.dto.UserDto;
+import com.example.userservice.dto.UserView;
 import com.example.userservice.entity.User;
 import com.example.userservice.exception.EmailAlreadyExistsException;
+import com.example.userservice.exception.PreconditionFailedException;
+import com.example.userservice.exception.ServiceUnavailableException;
 import com.example.userservice.exception.UserNotFoundException;
 import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.repository.ArchivedUserRepository;
 import com.example.userservice.repository.UserRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,52 +52,216 @@ class UserServiceTest {
     @Mock
     private UserEventPublisher userEventPublisher;
 
+    @Mock
+    private UserStatistics userStatistics;
+
+    @Mock
+    private UserReadCache userReadCache;
+
+    @Mock
+    private UserChangeFeed userChangeFeed;
+
+    @Mock
+    private ArchivedUserRepository archivedUserRepository;
+
+    @Mock
+    private UserShards userShards;
+
+    @Mock
+    private OffHeapUserMirror userMirror;
+
+    @Spy
+    private UserEmailCache userEmailCache = new UserEmailCache(100);
+
+    @Mock
+    private LastKnownGoodUsers lastKnownGood;
+
+    @Mock
+    private UserReadModel readModel;
+
     @InjectMocks
     private UserService userService;
 
     @Test
     void getAllUsers_ShouldReturnListOfUserDtos() {
-        User user = new User("Test", "test@example.com", 30);
+        UserView view = new UserView(1L, "Test", "test@example.com", 30, LocalDateTime.now(), 0L);
         UserDto userDto = new UserDto();
         userDto.setId(1L);
         userDto.setName("Test");
 
-        when(userRepository.findAll()).thenReturn(List.of(user));
-        when(userMapper.toDto(user)).thenReturn(userDto);
+        when(userRepository.findAllViews()).thenReturn(List.of(view));
+        when(userMapper.toDto(view)).thenReturn(userDto);
 
         List<UserDto> result = userService.getAllUsers();
 
         assertThat(result).hasSize(1);
         assertThat(result.get(0)).isEqualTo(userDto);
-        verify(userRepository).findAll();
-        verify(userMapper).toDto(user);
+        verify(userRepository).findAllViews();
+        verify(userRepository, never()).findAll();
+        verify(userMapper).toDto(view);
     }
 
     @Test
     void getUserById_ShouldReturnUserDto() {
-        User user = new User("Test", "test@example.com", 30);
+        UserView view = new UserView(1L, "Test", "test@example.com", 30, LocalDateTime.now(), 0L);
         UserDto userDto = new UserDto();
         userDto.setName("Test");
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(userMapper.toDto(user)).thenReturn(userDto);
+        when(userReadCache.get(1L)).thenReturn(Optional.of(view));
+        when(userMapper.toDto(view)).thenReturn(userDto);
 
         UserDto result = userService.getUserById(1L);
 
         assertThat(result).isEqualTo(userDto);
-        verify(userRepository).findById(1L);
-        verify(userMapper).toDto(user);
+        verify(userReadCache).get(1L);
+        verify(userRepository, never()).findById(1L);
+        verify(userMapper).toDto(view);
+        verify(lastKnownGood).put(userDto);
+    }
+
+    @Test
+    void getUserById_ShouldServeFromOffHeapMirror_WhenLoaded() {
+        UserView view = new UserView(1L, "Test", "test@example.com", 30, LocalDateTime.now(), 0L);
+        UserDto userDto = new UserDto();
+        when(userMirror.get(1L)).thenReturn(Optional.of(view));
+        when(userMapper.toDto(view)).thenReturn(userDto);
+
+        assertThat(userService.getUserById(1L)).isEqualTo(userDto);
+        verifyNoInteractions(userReadCache);
+    }
+
+    @Test
+    void getUserById_ShouldOnlyReadTheReadModel_WhenReady() {
+        UserView view = new UserView(1L, "Test", "test@example.com", 30, LocalDateTime.now(), 0L);
+        UserDto userDto = new UserDto();
+        when(readModel.isReady()).thenReturn(true);
+        when(readModel.get(1L)).thenReturn(Optional.of(view));
+        when(userMapper.toDto(view)).thenReturn(userDto);
+
+        assertThat(userService.getUserById(1L)).isEqualTo(userDto);
+        assertThatThrownBy(() -> userService.getUserById(2L)).isInstanceOf(UserNotFoundException.class);
+        verifyNoInteractions(userReadCache, userMirror, userRepository, archivedUserRepository);
     }
 
     @Test
     void getUserById_ShouldThrowExceptionWhenNotFound() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userReadCache.get(1L)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> userService.getUserById(1L))
                 .isInstanceOf(UserNotFoundException.class)
                 .hasMessage("User not found with id: 1");
     }
 
+    @Test
+    void getUserByIdFallback_ShouldServeLastKnownGoodMarkedStale() {
+        UserDto userDto = new UserDto();
+        Stale<UserDto> stale = new Stale<>(userDto, 0L);
+        when(lastKnownGood.get(1L)).thenReturn(Optional.of(stale));
+        when(lastKnownGood.age(stale)).thenReturn(Duration.ofSeconds(42));
+
+        UserDto result = userService.getUserByIdFallback(1L,
+                new DataAccessResourceFailureException("Connection refused"));
+
+        assertThat(result).isSameAs(userDto);
+        assertThat(StaleReads.take()).contains(Duration.ofSeconds(42));
+        verify(lastKnownGood).refresh(eq(1L), any());
+    }
+
+    @Test
+    void getUserByIdFallback_ShouldReportUnavailable_WhenNothingKnown() {
+        when(lastKnownGood.get(1L)).thenReturn(Optional.empty());
+        when(lastKnownGood.retryAfter()).thenReturn(Duration.ofSeconds(30));
+
+        assertThatThrownBy(() -> userService.getUserByIdFallback(1L,
+                new DataAccessResourceFailureException("Connection refused")))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .extracting("retryAfter").isEqualTo(Duration.ofSeconds(30));
+        assertThat(StaleReads.take()).isEmpty();
+    }
+
+    @Test
+    void getUserByIdFallback_ShouldRethrowNotFound() {
+        UserNotFoundException notFound = new UserNotFoundException(1L);
+
+        assertThatThrownBy(() -> userService.getUserByIdFallback(1L, notFound))
+                .isSameAs(notFound);
+        verify(lastKnownGood).evict(1L);
+    }
+
+    @Test
+    void createUserFallback_ShouldReportEmailTaken_WhenUniqueIndexRejectsInsert() {
+        CreateUserDto createUserDto = new CreateUserDto();
+        createUserDto.setEmail("Test@Example.com");
+        DataIntegrityViolationException duplicate = new DataIntegrityViolationException("could not execute statement",
+                new SQLException("duplicate key value violates unique constraint \"uk_users_email_lower\"", "23505"));
+
+        assertThatThrownBy(() -> userService.createUserFallback(createUserDto, duplicate))
+                .isInstanceOf(EmailAlreadyExistsException.class)
+                .hasMessageContaining("test@example.com");
+    }
+
+    @Test
+    void createUserFallback_ShouldReportUnavailable_WhenOtherIntegrityViolation() {
+        CreateUserDto createUserDto = new CreateUserDto();
+        createUserDto.setEmail("test@example.com");
+        when(lastKnownGood.retryAfter()).thenReturn(Duration.ofSeconds(30));
+
+        assertThatThrownBy(() -> userService.createUserFallback(createUserDto, new DataIntegrityViolationException(
+                "could not execute statement", new SQLException("null value in column \"name\"", "23502"))))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    @Test
+    void getUserByEmail_ShouldLoadOnceThenResolveIdFromCache() {
+        UserView view = new UserView(1L, "Test", "test@example.com", 30, LocalDateTime.now(), 0L);
+        UserDto userDto = new UserDto();
+        when(userReadCache.loadByEmail("test@example.com")).thenReturn(Optional.of(view));
+        when(userReadCache.get(1L)).thenReturn(Optional.of(view));
+        when(userMapper.toDto(view)).thenReturn(userDto);
+
+        assertThat(userService.getUserByEmail("Test@Example.com")).isEqualTo(userDto);
+        assertThat(userService.getUserByEmail("TEST@example.com")).isEqualTo(userDto);
+
+        verify(userReadCache).loadByEmail("test@example.com");
+        verify(userReadCache).get(1L);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void getUserByEmail_ShouldReloadByEmail_WhenCachedIdNoLongerHasIt() {
+        UserView moved = new UserView(1L, "Test", "other@example.com", 30, LocalDateTime.now(), 1L);
+        UserView view = new UserView(2L, "Test", "test@example.com", 30, LocalDateTime.now(), 0L);
+        userEmailCache.put("test@example.com", 1L);
+        when(userReadCache.get(1L)).thenReturn(Optional.of(moved));
+        when(userReadCache.loadByEmail("test@example.com")).thenReturn(Optional.of(view));
+        when(userMapper.toDto(view)).thenReturn(new UserDto());
+
+        userService.getUserByEmail("test@example.com");
+
+        assertThat(userEmailCache.get("test@example.com")).contains(2L);
+    }
+
+    @Test
+    void getUserByEmail_ShouldServeFromOffHeapMirror_WhenLoaded() {
+        UserView view = new UserView(1L, "Test", "test@example.com", 30, LocalDateTime.now(), 0L);
+        when(userMirror.findByEmail("test@example.com")).thenReturn(Optional.of(view));
+        when(userMapper.toDto(view)).thenReturn(new UserDto());
+
+        userService.getUserByEmail("Test@example.com");
+
+        verifyNoInteractions(userRepository, userReadCache);
+    }
+
+    @Test
+    void getUserByEmail_ShouldThrowExceptionAndForgetEmail_WhenNotFound() {
+        userEmailCache.put("gone@example.com", 1L);
+
+        assertThatThrownBy(() -> userService.getUserByEmail("gone@example.com"))
+                .isInstanceOf(UserNotFoundException.class)
+                .hasMessage("User not found with email: gone@example.com");
+        assertThat(userEmailCache.get("gone@example.com")).isEmpty();
+    }
+
     @Test
     void createUser_ShouldSaveAndPublishEvent() {
         CreateUserDto createDto = new CreateUserDto();
@@ -108,6 +289,9 @@ class UserServiceTest {
         verify(userRepository).save(user);
         verify(userMapper).toDto(savedUser);
         verify(userEventPublisher).publishUserCreatedEvent("new@example.com", "New");
+        verify(userEventPublisher).publishUserState(any());
+        verify(userStatistics).userCreated(25, savedUser.getCreatedAt());
+        verify(userChangeFeed).userWritten(user);
     }
 
     @Test
@@ -126,29 +310,139 @@ class UserServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
         when(userRepository.existsByEmail("updated@example.com")).thenReturn(false);
-        when(userRepository.save(any())).thenReturn(updatedUser);
+        when(userRepository.saveAndFlush(any())).thenReturn(updatedUser);
         when(userMapper.toDto(updatedUser)).thenReturn(userDto);
 
-        UserDto result = userService.updateUser(1L, updateDto);
+        UserDto result = userService.updateUser(1L, updateDto, null);
 
         assertThat(result.getId()).isEqualTo(1L);
         verify(userRepository).findById(1L);
         verify(userRepository).existsByEmail("updated@example.com");
-        verify(userRepository).save(any());
+        verify(userRepository).saveAndFlush(any());
         verify(userMapper).toDto(updatedUser);
+        verify(userStatistics).ageChanged(25, 30);
+        verify(userChangeFeed).userWritten(existingUser);
+    }
+
+    @Test
+    void updateUser_ShouldRejectStaleVersion() {
+        CreateUserDto updateDto = new CreateUserDto();
+        updateDto.setEmail("old@example.com");
+
+        User existingUser = new User("Old", "old@example.com", 25);
+        existingUser.setId(1L);
+        existingUser.setVersion(4L);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
+
+        assertThatThrownBy(() -> userService.updateUser(1L, updateDto, 3L))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void patchUser_ShouldWriteOnlyChangedFieldsWithoutEmailCheck_WhenEmailUnchanged() {
+        User existingUser = new User("Old", "old@example.com", 25);
+        existingUser.setId(1L);
+        PatchUserDto patch = new PatchUserDto();
+        patch.setName("New");
+        patch.setEmail("old@example.com");
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
+        when(userRepository.saveAndFlush(existingUser)).thenReturn(existingUser);
+
+        userService.patchUser(1L, patch, null);
+
+        assertThat(existingUser.getName()).isEqualTo("New");
+        assertThat(existingUser.getAge()).isEqualTo(25);
+        verify(userRepository, never()).existsByEmail(any());
+        verify(userStatistics, never()).ageChanged(any(), any());
+        verify(userRepository).saveAndFlush(existingUser);
+    }
+
+    @Test
+    void patchUser_ShouldSkipWrite_WhenNothingDiffers() {
+        User existingUser = new User("Old", "old@example.com", 25);
+        existingUser.setId(1L);
+        PatchUserDto patch = new PatchUserDto();
+        patch.setAge(25);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
+
+        userService.patchUser(1L, patch, null);
+
+        verify(userRepository, never()).saveAndFlush(any());
+        verify(userChangeFeed, never()).userWritten(any());
+        verify(userMapper).toDto(existingUser);
+    }
+
+    @Test
+    void patchUser_ShouldRejectTakenEmail() {
+        User existingUser = new User("Old", "old@example.com", 25);
+        existingUser.setId(1L);
+        PatchUserDto patch = new PatchUserDto();
+        patch.setEmail("taken@example.com");
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
+        when(userRepository.existsByEmail("taken@example.com")).thenReturn(true);
+
+        assertThatThrownBy(() -> userService.patchUser(1L, patch, null))
+                .isInstanceOf(EmailAlreadyExistsException.class);
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void getUserVersion_ShouldThrowExceptionWhenNotFound() {
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> userService.getUserVersion(1L))
+                .isInstanceOf(UserNotFoundException.class);
     }
 
     @Test
     void deleteUser_ShouldDeleteAndPublishEvent() {
         User user = new User("Test", "test@example.com", 30);
         user.setId(1L);
+        user.setVersion(2L);
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
 
-        userService.deleteUser(1L);
+        userService.deleteUser(1L, null);
 
         verify(userRepository).findById(1L);
         verify(userRepository).delete(user);
         verify(userEventPublisher).publishUserDeletedEvent("test@example.com", "Test");
+        verify(userStatistics).userDeleted(30, user.getCreatedAt());
+        verify(userReadCache).evict(1L);
+        verify(userEventPublisher).publishUserRemoved(1L, 2L);
+        verify(userChangeFeed).userDeleted(1L);
+    }
+
+    @Test
+    void deleteUser_ShouldRestoreArchivedUserBeforeDeleting() {
+        User user = new User("Test", "test@example.com", 30);
+        user.setId(1L);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.empty(), Optional.of(user));
+        when(archivedUserRepository.restore(1L)).thenReturn(1);
+
+        userService.deleteUser(1L, null);
+
+        verify(archivedUserRepository).restore(1L);
+        verify(userRepository).delete(user);
+        verify(userChangeFeed).userDeleted(1L);
+    }
+
+    @Test
+    void createUser_ShouldThrowException_WhenEmailBelongsToArchivedUser() {
+        CreateUserDto createUserDto = new CreateUserDto();
+        createUserDto.setEmail("archived@example.com");
+
+        when(userRepository.existsByEmail("archived@example.com")).thenReturn(false);
+        when(archivedUserRepository.existsByEmail("archived@example.com")).thenReturn(true);
+
+        assertThatThrownBy(() -> userService.createUser(createUserDto))
+                .isInstanceOf(EmailAlreadyExistsException.class);
+        verify(userRepository, never()).save(any());
     }
-}
\ No newline at end of file
+}
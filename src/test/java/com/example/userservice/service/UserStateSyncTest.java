@@ -0,0 +1,164 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.UserReadModel;
+import com.example.userservice.datasource.ReadYourWrites;
+import com.example.userservice.dto.UserView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserStateSyncTest {
+    private static final Duration PUBLISH_TIMEOUT = Duration.ofSeconds(5);
+
+    @Mock
+    private UserReadModel readModel;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UserEventPublisher userEventPublisher;
+
+    private final List<List<Long>> publishedStates = new ArrayList<>();
+    private final List<List<Long>> publishedTombstones = new ArrayList<>();
+    private UserStateSync stateSync;
+
+    @BeforeEach
+    void setUp() {
+        stateSync = new UserStateSync(readModel, userService, userEventPublisher, PUBLISH_TIMEOUT, 2, Runnable::run);
+    }
+
+    @Test
+    void start_ShouldBackfillMissingAndOlderUsersAndTombstoneRemovedOnesBeforeMarkingReady() {
+        when(readModel.isEnabled()).thenReturn(true);
+        when(readModel.start()).thenReturn(CompletableFuture.completedFuture(null));
+        when(readModel.snapshot()).thenReturn(List.of(user(1L, 0L), user(2L, 0L), user(3L, 1L), user(5L, 0L)));
+        users(user(1L, 0L), user(3L, 2L), user(4L, 0L));
+        recordPublished();
+
+        stateSync.start();
+
+        assertThat(publishedStates.stream().flatMap(List::stream)).containsExactly(3L, 4L);
+        assertThat(publishedTombstones.stream().flatMap(List::stream)).containsExactly(2L, 5L);
+        var inOrder = inOrder(userEventPublisher, readModel);
+        inOrder.verify(userEventPublisher, atLeastOnce()).publishUserStates(anyList(), anyCollection(),
+                eq(PUBLISH_TIMEOUT));
+        inOrder.verify(readModel).markReady();
+        verify(readModel).put(argThat(user -> user.id().equals(3L) && user.version() == 2L));
+        verify(readModel).put(argThat(user -> user.id().equals(4L)));
+        verify(readModel).remove(2L);
+        verify(readModel).remove(5L);
+    }
+
+    @Test
+    void start_ShouldNotBackfill_WhenReadModelDisabled() {
+        stateSync.start();
+
+        verify(readModel, never()).start();
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void repair_ShouldRetryFailedBackfill() {
+        when(readModel.snapshot()).thenReturn(List.of());
+        users(user(1L, 0L));
+        doThrow(new KafkaException("Broker gone")).doNothing()
+                .when(userEventPublisher).publishUserStates(anyList(), anyCollection(), any());
+
+        stateSync.backfill();
+        verify(readModel, never()).markReady();
+
+        stateSync.repair();
+        verify(readModel).markReady();
+        verify(userEventPublisher, times(2)).publishUserStates(anyList(), anyCollection(), any());
+    }
+
+    @Test
+    void repair_ShouldResendUnsentStatesAndTombstoneMissingUsers() {
+        when(userEventPublisher.drainUnsentStates()).thenReturn(Set.of(1L, 2L));
+        when(userService.getUserViews(anyCollection())).thenReturn(List.of(user(1L, 3L)));
+        recordPublished();
+
+        stateSync.repair();
+
+        assertThat(publishedStates).containsExactly(List.of(1L));
+        assertThat(publishedTombstones).containsExactly(List.of(2L));
+        verify(userService, never()).forEachUser(any());
+    }
+
+    @Test
+    void backfillAndRepair_ShouldReadThePrimary() {
+        List<Boolean> pinned = new ArrayList<>();
+        when(readModel.snapshot()).thenReturn(List.of());
+        doAnswer(invocation -> pinned.add(ReadYourWrites.isPinnedToPrimary()))
+                .when(userService).forEachUser(any());
+        when(userEventPublisher.drainUnsentStates()).thenReturn(Set.of(1L));
+        when(userService.getUserViews(anyCollection())).thenAnswer(invocation -> {
+            pinned.add(ReadYourWrites.isPinnedToPrimary());
+            return List.of(user(1L, 3L));
+        });
+
+        stateSync.backfill();
+        stateSync.repair();
+
+        assertThat(pinned).containsExactly(true, true);
+        assertThat(ReadYourWrites.isPinnedToPrimary()).isFalse();
+    }
+
+    @Test
+    void repair_ShouldKeepUnsentStates_WhenResendFails() {
+        when(userEventPublisher.drainUnsentStates()).thenReturn(Set.of(1L));
+        when(userService.getUserViews(anyCollection())).thenReturn(List.of(user(1L, 3L)));
+        doThrow(new KafkaException("Broker gone"))
+                .when(userEventPublisher).publishUserStates(anyList(), anyCollection(), any());
+
+        stateSync.repair();
+
+        verify(userEventPublisher).markUnsent(List.of(1L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void users(UserView... users) {
+        doAnswer(invocation -> {
+            Consumer<UserView> consumer = invocation.getArgument(0);
+            List.of(users).forEach(consumer);
+            return null;
+        }).when(userService).forEachUser(any(Consumer.class));
+    }
+
+    // the backfill reuses its batch lists, so copy them when they are published
+    private void recordPublished() {
+        doAnswer(invocation -> {
+            List<UserView> users = invocation.getArgument(0);
+            Collection<Long> removedIds = invocation.getArgument(1);
+            publishedStates.add(users.stream().map(UserView::id).toList());
+            publishedTombstones.add(List.copyOf(removedIds));
+            return null;
+        }).when(userEventPublisher).publishUserStates(anyList(), anyCollection(), any());
+    }
+
+    private static UserView user(Long id, Long version) {
+        return new UserView(id, "User " + id, "user" + id + "@example.com", 30,
+                LocalDateTime.of(2024, 1, 10, 12, 0), version);
+    }
+}
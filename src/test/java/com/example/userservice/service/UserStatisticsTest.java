@@ -0,0 +1,123 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.AgeCount;
+import com.example.userservice.dto.DayCount;
+import com.example.userservice.dto.UserStatsDto;
+import com.example.userservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserStatisticsTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 10);
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserShards userShards;
+
+    private UserStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2024-03-10T12:00:00Z"), ZoneOffset.UTC);
+        statistics = new UserStatistics(userRepository, userShards, 7, clock);
+    }
+
+    @Test
+    void reconcile_ShouldSeedCountersFromAggregates() {
+        shards(1);
+        when(userRepository.countWithArchived()).thenReturn(3L);
+        when(userRepository.countByAge()).thenReturn(List.of(new AgeCount(30, 2L), new AgeCount(45, 1L)));
+        when(userRepository.countCreatedPerDaySince(any()))
+                .thenReturn(List.of(new DayCount(TODAY.minusDays(1), 1L), new DayCount(TODAY, 2L)));
+
+        statistics.reconcile();
+        UserStatsDto stats = statistics.snapshot();
+
+        assertThat(stats.getTotal()).isEqualTo(3);
+        assertThat(stats.getAgeHistogram()).hasSize(120).containsEntry(30, 2L).containsEntry(45, 1L);
+        assertThat(stats.getCreatedPerDay()).hasSize(7)
+                .containsEntry(TODAY.minusDays(1), 1L)
+                .containsEntry(TODAY, 2L)
+                .containsEntry(TODAY.minusDays(6), 0L);
+        assertThat(stats.getReconciledAt()).isNotNull();
+    }
+
+    @Test
+    void reconcile_ShouldSumEveryShard() {
+        shards(2);
+        when(userRepository.countWithArchived()).thenReturn(3L);
+        when(userRepository.countByAge()).thenReturn(List.of(new AgeCount(30, 3L)));
+        when(userRepository.countCreatedPerDaySince(any())).thenReturn(List.of(new DayCount(TODAY, 3L)));
+
+        statistics.reconcile();
+        UserStatsDto stats = statistics.snapshot();
+
+        assertThat(stats.getTotal()).isEqualTo(6);
+        assertThat(stats.getAgeHistogram()).containsEntry(30, 6L);
+        assertThat(stats.getCreatedPerDay()).containsEntry(TODAY, 6L);
+    }
+
+    @Test
+    void reconcile_ShouldKeepWritesThatCommitWhileItRuns() {
+        when(userShards.onEachShard(any())).thenAnswer(invocation -> {
+            Supplier<?> work = invocation.getArgument(0);
+            Object counted = work.get();
+            // commits after the aggregates were read
+            statistics.userCreated(30, TODAY.atTime(9, 0));
+            return List.of(counted);
+        });
+        when(userRepository.countWithArchived()).thenReturn(2L);
+        when(userRepository.countByAge()).thenReturn(List.of(new AgeCount(30, 2L)));
+        when(userRepository.countCreatedPerDaySince(any())).thenReturn(List.of(new DayCount(TODAY, 2L)));
+
+        statistics.reconcile();
+        UserStatsDto stats = statistics.snapshot();
+
+        assertThat(stats.getTotal()).isEqualTo(3);
+        assertThat(stats.getAgeHistogram()).containsEntry(30, 3L);
+        assertThat(stats.getCreatedPerDay()).containsEntry(TODAY, 3L);
+    }
+
+    @Test
+    void writes_ShouldUpdateCountersIncrementally() {
+        statistics.userCreated(30, TODAY.atTime(9, 0));
+        statistics.userCreated(40, TODAY.atTime(10, 0));
+        statistics.ageChanged(40, 41);
+        statistics.userDeleted(30, TODAY.atTime(9, 0));
+
+        UserStatsDto stats = statistics.snapshot();
+
+        assertThat(stats.getTotal()).isEqualTo(1);
+        assertThat(stats.getAgeHistogram())
+                .containsEntry(30, 0L)
+                .containsEntry(40, 0L)
+                .containsEntry(41, 1L);
+        assertThat(stats.getCreatedPerDay()).containsEntry(TODAY, 1L);
+    }
+
+    // every shard answers with the same aggregates
+    private void shards(int count) {
+        when(userShards.onEachShard(any())).thenAnswer(invocation -> {
+            Supplier<?> work = invocation.getArgument(0);
+            return IntStream.range(0, count).mapToObj(shard -> work.get()).toList();
+        });
+    }
+}